@@ -0,0 +1,117 @@
+package bench;
+
+import ui.LatencyHistogram;
+import ui.RaceClient;
+import ui.RaceOpponent;
+import ui.RaceServer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Many simulated racers against one RaceServer on localhost. Each racer is a
+ * RaceOpponent sending its progress over a real socket. The harness reports
+ * tick latency percentiles, meaning the time from the server building a tick to
+ * each client having decoded it. Server and clients share this JVM, so they
+ * also share the nanoTime clock.
+ *
+ * Run: java -cp benchmarks/target/benchmarks.jar bench.RaceServerLoadTest [racers] [seconds] [wpm]
+ */
+public class RaceServerLoadTest {
+
+    public static void main(String[] args) throws Exception {
+        int racers = args.length > 0 ? Integer.parseInt(args[0]) : 300;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+        double wpm = args.length > 2 ? Double.parseDouble(args[2]) : 60;
+
+        StringBuilder sb = new StringBuilder();
+        while (sb.length() < 3_000) sb.append("the quick brown fox jumps over the lazy dog. ");
+        String text = sb.toString();
+
+        try (RaceServer server = new RaceServer(0)) {
+            List<Bot> bots = new ArrayList<>();
+            CountDownLatch started = new CountDownLatch(racers);
+            for (int i = 0; i < racers; i++) {
+                Bot bot = new Bot(started);
+                bot.client = RaceClient.connect("localhost", server.port(), "bot-" + i, bot);
+                bots.add(bot);
+            }
+            while (server.racerCount() < racers) Thread.sleep(10);
+
+            server.startRace(text);
+            if (!started.await(10, TimeUnit.SECONDS)) throw new IllegalStateException("racers did not start");
+            long t0 = System.nanoTime();
+            List<Thread> typists = new ArrayList<>();
+            for (int i = 0; i < racers; i++) {
+                RaceOpponent typist = new RaceOpponent("bot-" + i, wpm * (0.7 + 0.6 * i / racers), 95, 0.5);
+                typist.reset(text.length(), i);
+                RaceClient client = bots.get(i).client;
+                typists.add(Thread.ofVirtual().start(() -> type(typist, client, t0, seconds)));
+            }
+            for (Thread t : typists) t.join();
+            Thread.sleep(200);                       // let the last ticks arrive
+
+            LatencyHistogram all = new LatencyHistogram();
+            long ticks = 0;
+            long entries = 0;
+            for (Bot bot : bots) {
+                synchronized (bot) {
+                    all.add(bot.latency);
+                    ticks += bot.ticks;
+                    entries += bot.entries.get();
+                }
+                bot.client.close();
+            }
+            System.out.printf("%d racers, %d s at ~%.0f WPM, %d Hz ticks%n", racers, seconds, wpm, RaceServer.TICK_HZ);
+            System.out.printf("ticks received %d (%.1f/client/s), %.1f racers per tick%n",
+                    ticks, ticks / (double) racers / seconds, entries / (double) Math.max(1, ticks));
+            System.out.printf("tick latency us: p50 %d  p90 %d  p99 %d  p99.9 %d  max %d%n",
+                    all.percentile(50), all.percentile(90), all.percentile(99), all.percentile(99.9), all.max());
+        }
+    }
+
+    private static void type(RaceOpponent typist, RaceClient client, long t0, int seconds) {
+        long end = t0 + seconds * 1_000_000_000L;
+        try {
+            for (long now; (now = System.nanoTime()) < end && !typist.isFinished(); ) {
+                if (typist.advance(now - t0)) client.sendProgress(typist.correct(), typist.typed());
+                Thread.sleep(10);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /** Counts ticks and their latency; callbacks arrive on the client's reader thread. */
+    private static final class Bot implements RaceClient.Listener {
+        final CountDownLatch started;
+        final LatencyHistogram latency = new LatencyHistogram();
+        final AtomicLong entries = new AtomicLong();
+        long ticks;
+        RaceClient client;
+
+        Bot(CountDownLatch started) {
+            this.started = started;
+        }
+
+        @Override
+        public void started(String text) {
+            started.countDown();
+        }
+
+        @Override
+        public synchronized void tick(long serverNanos, int count, int[] ids, int[] correct, int[] typed) {
+            latency.record((System.nanoTime() - serverNanos) / 1_000);
+            ticks++;
+            entries.addAndGet(count);
+        }
+
+        @Override
+        public void closed(java.io.IOException cause) {
+            if (cause != null) System.err.println("racer dropped: " + cause.getMessage());
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package bench.jmh;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Compares two JMH JSON result files, e.g. from the commits before and after a
+ * change. A benchmark counts as a regression when it got worse by more than the
+ * threshold and by more than the two runs' error margins combined. Exits with
+ * status 1 if anything regressed, so a script can fail on it.
+ *
+ * Run: java -cp benchmarks.jar bench.jmh.CompareResults before.json after.json [threshold %]
+ */
+public class CompareResults {
+
+    private record Score(String mode, double score, double error, String unit) {}
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("usage: CompareResults before.json after.json [threshold %]");
+            System.exit(2);
+        }
+        Map<String, Score> before = read(Path.of(args[0]));
+        Map<String, Score> after = read(Path.of(args[1]));
+        double threshold = args.length > 2 ? Double.parseDouble(args[2]) : 5;
+
+        int regressions = 0;
+        System.out.printf("%-70s %14s %14s %8s%n", "benchmark", "before", "after", "change");
+        for (Map.Entry<String, Score> e : after.entrySet()) {
+            Score b = before.get(e.getKey());
+            Score a = e.getValue();
+            if (b == null) {
+                System.out.printf("%-70s %14s %14.3f %8s  %s%n", e.getKey(), "-", a.score(), "new", a.unit());
+                continue;
+            }
+            double change = (a.score() - b.score()) / b.score() * 100;
+            // throughput: higher is better; every other mode measures time per op
+            boolean worse = "thrpt".equals(a.mode()) ? change < -threshold : change > threshold;
+            boolean significant = Math.abs(a.score() - b.score()) > nanToZero(a.error()) + nanToZero(b.error());
+            String flag = worse && significant ? "  REGRESSION" : "";
+            if (!flag.isEmpty()) regressions++;
+            System.out.printf("%-70s %14.3f %14.3f %+7.1f%%  %s%s%n",
+                    e.getKey(), b.score(), a.score(), change, a.unit(), flag);
+        }
+        for (String gone : before.keySet()) {
+            if (!after.containsKey(gone)) System.out.printf("%-70s %14s%n", gone, "removed");
+        }
+        System.out.printf("%d regression(s) over %.1f%%%n", regressions, threshold);
+        if (regressions > 0) System.exit(1);
+    }
+
+    /** Scores by benchmark name plus parameters, e.g. {@code FlashcardDaoBenchmark.getAll rows=1000}. */
+    private static Map<String, Score> read(Path file) throws IOException {
+        Map<String, Score> scores = new TreeMap<>();
+        JsonArray runs = JsonParser.parseString(Files.readString(file)).getAsJsonArray();
+        for (JsonElement run : runs) {
+            JsonObject r = run.getAsJsonObject();
+            String name = r.get("benchmark").getAsString();
+            StringBuilder key = new StringBuilder(name.substring(name.lastIndexOf('.', name.lastIndexOf('.') - 1) + 1));
+            if (r.has("params")) {
+                Map<String, String> params = new LinkedHashMap<>();
+                r.getAsJsonObject("params").entrySet().forEach(p -> params.put(p.getKey(), p.getValue().getAsString()));
+                params.forEach((k, v) -> key.append(' ').append(k).append('=').append(v));
+            }
+            JsonObject metric = r.getAsJsonObject("primaryMetric");
+            JsonElement error = metric.get("scoreError");
+            scores.put(key.toString(), new Score(r.get("mode").getAsString(),
+                    metric.get("score").getAsDouble(),
+                    error == null || !error.isJsonPrimitive() || !error.getAsJsonPrimitive().isNumber()
+                            ? Double.NaN : error.getAsDouble(),
+                    metric.get("scoreUnit").getAsString()));
+        }
+        return scores;
+    }
+
+    private static double nanToZero(double d) {
+        return Double.isNaN(d) ? 0 : d;
+    }
+}
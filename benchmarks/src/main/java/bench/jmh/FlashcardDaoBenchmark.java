@@ -0,0 +1,97 @@
+package bench.jmh;
+
+import model.Flashcard;
+import model.FlashcardDAO;
+import model.SqliteConnectionPool;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * FlashcardDAO on a pooled on-disk database holding {@code rows} cards. Cards
+ * added by {@link #insert} are deleted after each iteration, so every
+ * iteration sees the same table size.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FlashcardDaoBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    public int rows;
+
+    private Path dir;
+    private SqliteConnectionPool pool;
+    private FlashcardDAO dao;
+    private PrintStream stdout;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void open() throws Exception {
+        dir = Files.createTempDirectory("studymate-jmh");
+        pool = new SqliteConnectionPool("jdbc:sqlite:" + dir.resolve("cards.db"));
+        dao = new FlashcardDAO(pool);
+        dao.init();
+        List<Flashcard> cards = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            cards.add(new Flashcard("Topic " + (i % 20), "Question " + i, "Answer " + i));
+        }
+        dao.insertAll(cards);
+        // insert() prints every card; keep that out of JMH's output
+        stdout = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+    }
+
+    @TearDown(Level.Iteration)
+    public void trim() throws SQLException {
+        try (Connection c = pool.writer();
+             PreparedStatement ps = c.prepareStatement("DELETE FROM flashcards WHERE id > ?")) {
+            ps.setLong(1, rows);
+            ps.executeUpdate();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void close() throws Exception {
+        System.setOut(stdout);
+        pool.close();
+        try (var files = Files.list(dir)) {
+            for (Path p : (Iterable<Path>) files::iterator) Files.deleteIfExists(p);
+        }
+        Files.deleteIfExists(dir);
+    }
+
+    @Benchmark
+    public void insert() throws SQLException {
+        int i = next++;
+        dao.insert(new Flashcard("Bench", "Question " + i, "Answer " + i));
+    }
+
+    @Benchmark
+    public Optional<Flashcard> random() throws SQLException {
+        return dao.random(null);
+    }
+
+    @Benchmark
+    public Optional<Flashcard> randomInTopic() throws SQLException {
+        return dao.random("Topic 7");
+    }
+
+    @Benchmark
+    public List<Flashcard> getAll() throws SQLException {
+        return dao.getAll();
+    }
+}
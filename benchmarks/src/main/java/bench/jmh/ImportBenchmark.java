@@ -0,0 +1,85 @@
+package bench.jmh;
+
+import model.Flashcard;
+import model.FlashcardDAO;
+import model.FlashcardImporter;
+import model.SqliteConnectionPool;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bulk import into an empty on-disk table, in cards per second: raw
+ * insertAll() and the CSV importer on top of it. The target is at least
+ * 50k cards/sec on a laptop SSD. The table is emptied after every batch.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ImportBenchmark {
+    private static final int CARDS = 50_000;
+
+    private Path dir;
+    private SqliteConnectionPool pool;
+    private FlashcardDAO dao;
+    private String csv;
+
+    @Setup(Level.Trial)
+    public void open() throws Exception {
+        dir = Files.createTempDirectory("studymate-jmh");
+        pool = new SqliteConnectionPool("jdbc:sqlite:" + dir.resolve("import.db"));
+        dao = new FlashcardDAO(pool);
+        dao.init();
+        StringBuilder sb = new StringBuilder("topic,question,answer\n");
+        for (int i = 0; i < CARDS; i++) {
+            sb.append("Bench,\"What is ").append(i).append(", really?\",Answer ").append(i).append('\n');
+        }
+        csv = sb.toString();
+    }
+
+    @TearDown(Level.Invocation)
+    public void empty() throws SQLException {
+        try (Connection c = pool.writer(); Statement st = c.createStatement()) {
+            st.executeUpdate("DELETE FROM flashcards");
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void close() throws Exception {
+        pool.close();
+        try (var files = Files.list(dir)) {
+            for (Path p : (Iterable<Path>) files::iterator) Files.deleteIfExists(p);
+        }
+        Files.deleteIfExists(dir);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CARDS)
+    public long insertAll() throws SQLException {
+        return dao.insertAll(generated(CARDS));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CARDS)
+    public long csvImport() throws Exception {
+        return new FlashcardImporter(dao).importFrom(new StringReader(csv), FlashcardImporter.Format.CSV);
+    }
+
+    private static Iterable<Flashcard> generated(int n) {
+        return () -> new Iterator<>() {
+            int i;
+            public boolean hasNext() { return i < n; }
+            public Flashcard next() { i++; return new Flashcard("Bench", "Question " + i, "Answer " + i); }
+        };
+    }
+}
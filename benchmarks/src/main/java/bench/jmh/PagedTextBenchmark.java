@@ -0,0 +1,118 @@
+package bench.jmh;
+
+import org.openjdk.jmh.annotations.*;
+import ui.PagedText;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Opening a {@code megabytes} MB document: time to the first page with
+ * PagedText versus Files.readString (what TextLibrary.readText does), and
+ * PagedText reading the whole file page by page.
+ *
+ * The two opens also report {@code retainedBytes}: the heap still held by what
+ * they return, measured after GC at the end of each iteration. Run with
+ * {@code -prof gc} for the allocation per open as well.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PagedTextBenchmark {
+
+    @Param({"20", "200"})
+    public int megabytes;
+
+    private Path file;
+
+    @Setup(Level.Trial)
+    public void write() throws IOException {
+        file = Files.createTempFile("studymate-jmh", ".txt");
+        write(file, megabytes * 1024L * 1024);
+    }
+
+    @TearDown(Level.Trial)
+    public void delete() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    /** Heap reachable only from the last result of an iteration, as an extra result column. */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Retained {
+        public long retainedBytes;
+        private Object kept;
+
+        @Setup(Level.Iteration)
+        public void clear() {
+            retainedBytes = 0;
+            kept = null;
+        }
+
+        @TearDown(Level.Iteration)
+        public void measure() {
+            long with = usedAfterGc();
+            kept = null;
+            retainedBytes = Math.max(0, with - usedAfterGc());
+        }
+
+        private static long usedAfterGc() {
+            System.gc();
+            System.gc();
+            return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+        }
+    }
+
+    /** The document open for reading: the PagedText with its first page decoded. */
+    @Benchmark
+    public PagedText pagedFirstPage(Retained retained) throws IOException {
+        PagedText text = PagedText.open(file);
+        text.page(0);
+        if (retained.kept instanceof PagedText previous) previous.close();
+        retained.kept = text;
+        return text;
+    }
+
+    @Benchmark
+    public String readString(Retained retained) throws IOException {
+        retained.kept = null;     // so two copies are never held at once
+        String text = Files.readString(file);
+        retained.kept = text;
+        return text;
+    }
+
+    @Benchmark
+    public long pagedFullScan() throws IOException {
+        long chars = 0;
+        try (PagedText text = PagedText.open(file)) {
+            for (int p = 0; p < text.pageCount(); p++) chars += text.page(p).length();
+        }
+        return chars;
+    }
+
+    /** Paragraphs of mostly ASCII words with some accented and CJK text. */
+    private static void write(Path file, long size) throws IOException {
+        Random random = new Random(7);
+        String[] words = {"lecture", "notes", "the", "of", "mitochondria", "équation", "café", "学习", "and", "theory"};
+        long written = 0;
+        try (BufferedWriter out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            StringBuilder line = new StringBuilder();
+            while (written < size) {
+                line.setLength(0);
+                for (int i = 0; i < 80; i++) line.append(words[random.nextInt(words.length)]).append(' ');
+                line.append(".\n\n");
+                out.write(line.toString());
+                written += line.toString().getBytes(StandardCharsets.UTF_8).length;
+            }
+        }
+    }
+}
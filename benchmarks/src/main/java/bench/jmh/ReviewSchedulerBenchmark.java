@@ -0,0 +1,91 @@
+package bench.jmh;
+
+import model.Flashcard;
+import model.FlashcardDAO;
+import model.ReviewScheduler;
+import model.ReviewState;
+import model.SqliteConnectionPool;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ReviewScheduler on a deck of {@code rows} new cards. {@link #nextDue} polls
+ * without answering, so batch refills and pass restarts are included; it
+ * should stay flat as the deck grows. {@link #review} answers cards picked
+ * outside the queue, as when browsing, and the deck's scheduling state is
+ * reset after each iteration.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ReviewSchedulerBenchmark {
+
+    @Param({"10000", "100000", "1000000"})
+    public int rows;
+
+    private Path dir;
+    private SqliteConnectionPool pool;
+    private FlashcardDAO dao;
+    private ReviewScheduler scheduler;
+    private List<Flashcard> browsed;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void open() throws Exception {
+        dir = Files.createTempDirectory("studymate-jmh");
+        pool = new SqliteConnectionPool("jdbc:sqlite:" + dir.resolve("srs.db"));
+        dao = new FlashcardDAO(pool);
+        dao.init();
+        dao.insertAll(generated(rows));
+        browsed = dao.page(0, Long.MAX_VALUE, 1_000);
+        scheduler = new ReviewScheduler(dao);
+    }
+
+    @TearDown(Level.Iteration)
+    public void forget() throws SQLException {
+        try (Connection c = pool.writer(); Statement st = c.createStatement()) {
+            st.executeUpdate("UPDATE flashcards SET ease = 2.5, interval_days = 0, repetitions = 0, due = 0 WHERE due <> 0");
+        }
+        scheduler.reset();
+    }
+
+    @TearDown(Level.Trial)
+    public void close() throws Exception {
+        pool.close();
+        try (var files = Files.list(dir)) {
+            for (Path p : (Iterable<Path>) files::iterator) Files.deleteIfExists(p);
+        }
+        Files.deleteIfExists(dir);
+    }
+
+    @Benchmark
+    public Flashcard nextDue() throws SQLException {
+        return scheduler.nextDue().orElseThrow();
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public ReviewState review() throws SQLException {
+        int i = next++;
+        return scheduler.review(browsed.get(i % browsed.size()), ReviewScheduler.quality(i % 3 != 0));
+    }
+
+    private static Iterable<Flashcard> generated(int n) {
+        return () -> new Iterator<>() {
+            int i;
+            public boolean hasNext() { return i < n; }
+            public Flashcard next() { i++; return new Flashcard("Bench", "Question " + i, "Answer " + i); }
+        };
+    }
+}
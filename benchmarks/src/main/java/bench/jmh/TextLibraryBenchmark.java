@@ -0,0 +1,141 @@
+package bench.jmh;
+
+import org.openjdk.jmh.annotations.*;
+import ui.TextIndex;
+import ui.TextLibrary;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * TextLibrary over {@code documents} synthetic notes with Zipf-distributed
+ * words, so that common terms have long postings lists as in real text:
+ * search on the bare index and with passage text, and {@link #addFile}, which
+ * stores and indexes one new document and waits for the ingestion pipeline.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TextLibraryBenchmark {
+    private static final int VOCABULARY = 30_000;
+
+    @Param({"3000"})
+    public int documents;
+
+    private final Random random = new Random(42);
+    private final String[] words = new String[VOCABULARY];
+    private final double[] zipf = zipf(VOCABULARY);
+    private Path root;
+    private Path sources;
+    private TextLibrary library;
+    private TextIndex index;
+    private String[] queries;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void build() throws IOException {
+        for (int i = 0; i < VOCABULARY; i++) words[i] = word(random);
+        root = Files.createTempDirectory("studymate-jmh");
+        sources = Files.createDirectories(root.resolve("sources"));
+        library = new TextLibrary(root.resolve("library"), root.resolve("index"));
+        for (int d = 0; d < documents; d++) {
+            Path f = sources.resolve("doc" + d + ".txt");
+            Files.writeString(f, document());
+            library.addFile(f.toFile());
+        }
+        index = new TextIndex(root.resolve("index"));
+        queries = new String[1024];
+        for (int i = 0; i < queries.length; i++) queries[i] = query();
+    }
+
+    /** A document not yet in the library, written before each {@link #addFile} call. */
+    @State(Scope.Thread)
+    public static class NewDocument {
+        File file;
+        private int n;
+
+        @Setup(Level.Invocation)
+        public void write(TextLibraryBenchmark b) throws IOException {
+            Path f = b.sources.resolve("new" + n++ + ".txt");
+            Files.writeString(f, b.document());
+            file = f.toFile();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void close() throws IOException {
+        library.close();
+        try (Stream<Path> files = Files.walk(root)) {
+            for (Path p : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) Files.deleteIfExists(p);
+        }
+    }
+
+    @Benchmark
+    public List<TextIndex.Hit> indexSearch() {
+        return index.search(queries[next++ & (queries.length - 1)], 10);
+    }
+
+    @Benchmark
+    public List<TextLibrary.SearchResult> librarySearch() {
+        return library.search(queries[next++ & (queries.length - 1)], 10);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public Path addFile(NewDocument doc) throws IOException {
+        return library.addFile(doc.file);
+    }
+
+    private String document() {
+        StringBuilder sb = new StringBuilder();
+        int paragraphs = 3 + random.nextInt(6);
+        for (int p = 0; p < paragraphs; p++) {
+            int sentences = 2 + random.nextInt(8);
+            for (int s = 0; s < sentences; s++) {
+                int n = 6 + random.nextInt(14);
+                for (int w = 0; w < n; w++) sb.append(w == 0 ? "" : " ").append(words[pick(random, zipf)]);
+                sb.append(". ");
+            }
+            sb.append("\n\n");
+        }
+        return sb.toString();
+    }
+
+    /** One to three words, biased away from the very common ones like a real query. */
+    private String query() {
+        StringBuilder sb = new StringBuilder();
+        int n = 1 + random.nextInt(3);
+        for (int i = 0; i < n; i++) sb.append(words[Math.min(VOCABULARY - 1, pick(random, zipf) + 20)]).append(' ');
+        return sb.toString();
+    }
+
+    private static double[] zipf(int n) {
+        double[] cumulative = new double[n];
+        double sum = 0;
+        for (int i = 0; i < n; i++) cumulative[i] = sum += 1.0 / (i + 1);
+        for (int i = 0; i < n; i++) cumulative[i] /= sum;
+        return cumulative;
+    }
+
+    private static int pick(Random random, double[] cumulative) {
+        int i = Arrays.binarySearch(cumulative, random.nextDouble());
+        return i < 0 ? -i - 1 : i;
+    }
+
+    private static String word(Random random) {
+        char[] c = new char[3 + random.nextInt(7)];
+        for (int i = 0; i < c.length; i++) c[i] = (char) ('a' + random.nextInt(26));
+        return new String(c);
+    }
+}
@@ -0,0 +1,111 @@
+package bench.jmh;
+
+import org.openjdk.jmh.annotations.*;
+import ui.KeystrokeRecorder;
+import ui.LatencyHistogram;
+import ui.TypingDiff;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-keystroke work of the typing screens: the mismatch scan (TypingDiff), the
+ * keystroke log with its analytics (KeystrokeRecorder) and the latency
+ * histogram under it, and the WPM/accuracy and slow-bigram stats read back
+ * for the results panel.
+ *
+ * Each key invocation types the next character of a {@code length}-char
+ * passage and starts over at the end.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TypingBenchmark {
+
+    @Param({"400", "4000"})
+    public int length;
+
+    private String target;
+    private String[] prefix;
+    private String corrected;
+    private final TypingDiff diff = new TypingDiff();
+    private final KeystrokeRecorder recorder = new KeystrokeRecorder();
+    private final LatencyHistogram histogram = new LatencyHistogram();
+    private long sample;
+    private int pos;
+    private long now;
+
+    @Setup(Level.Trial)
+    public void passage() {
+        StringBuilder sb = new StringBuilder();
+        while (sb.length() < length) sb.append("the quick brown fox jumps over the lazy dog. ");
+        target = sb.substring(0, length);
+        // prefixes are built up front so the keys measure the typing code, not string building
+        prefix = new String[length + 1];
+        for (int i = 0; i <= length; i++) prefix[i] = target.substring(0, i);
+        // the whole passage with one typo half way, for re-scans after a correction
+        char[] typo = target.toCharArray();
+        typo[length / 2] = '#';
+        corrected = new String(typo);
+
+        diff.reset(target);
+        diff.edit(0, target);
+        recorder.reset(target);
+        now = System.nanoTime();
+        // a full passage of history so the stats have something to work on
+        for (int i = 0; i < length; i++) recordKey();
+    }
+
+    @Benchmark
+    public int diffKey() {
+        if (pos == length) {
+            diff.reset(target);
+            pos = 0;
+        }
+        diff.edit(pos, prefix[pos + 1]);
+        pos++;
+        return diff.firstMismatch();
+    }
+
+    /** Fixing a typo half way along makes TypingDiff re-scan the rest of the passage. */
+    @Benchmark
+    public int diffCorrection() {
+        diff.edit(length / 2, target);
+        diff.edit(length / 2, corrected);
+        return diff.firstMismatch();
+    }
+
+    @Benchmark
+    public int recorderKey() {
+        return recordKey();
+    }
+
+    @Benchmark
+    public void histogramRecord() {
+        histogram.record((sample++ * 2654435761L) & 0x3FFFFF);   // scattered over the buckets
+    }
+
+    @Benchmark
+    public double wpmAndAccuracy() {
+        return recorder.wpm(now) + recorder.accuracy();
+    }
+
+    @Benchmark
+    public String[] slowestBigrams() {
+        return recorder.analytics().slowestBigrams(5, 3);
+    }
+
+    private int recordKey() {
+        if (pos == length) {
+            recorder.reset(target);
+            pos = 0;
+        }
+        now += 90_000_000 + (pos % 7) * 10_000_000;     // ~120 WPM with some jitter
+        recorder.edit(pos, 0, 1);
+        int at = recorder.record(prefix[pos], prefix[pos + 1], now);
+        pos++;
+        return at;
+    }
+}
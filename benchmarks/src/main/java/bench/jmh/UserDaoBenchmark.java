@@ -0,0 +1,64 @@
+package bench.jmh;
+
+import model.SqliteConnectionPool;
+import model.User;
+import model.UserDAO;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Login cost: UserDAO.authenticate for a right and a wrong password, an unknown
+ * email, and the password hash on its own.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UserDaoBenchmark {
+    private static final String EMAIL = "bench@studymate.com";
+    private static final String PASSWORD = "secret123";
+
+    private Path db;
+    private SqliteConnectionPool pool;
+    private UserDAO users;
+
+    @Setup(Level.Trial)
+    public void open() throws Exception {
+        db = Files.createTempFile("studymate-jmh", ".db");
+        pool = new SqliteConnectionPool("jdbc:sqlite:" + db);
+        users = new UserDAO(pool);
+        for (int i = 0; i < 1_000; i++) users.createUser("user" + i, "user" + i + "@studymate.com", "password" + i);
+        users.createUser("bench", EMAIL, PASSWORD);
+    }
+
+    @TearDown(Level.Trial)
+    public void close() throws Exception {
+        pool.close();
+        Files.deleteIfExists(db);
+    }
+
+    @Benchmark
+    public User authenticate() {
+        return users.authenticate(EMAIL, PASSWORD);
+    }
+
+    @Benchmark
+    public User authenticateWrongPassword() {
+        return users.authenticate(EMAIL, "wrong-password1");
+    }
+
+    @Benchmark
+    public User authenticateUnknownEmail() {
+        return users.authenticate("nobody@studymate.com", PASSWORD);
+    }
+
+    @Benchmark
+    public String sha256() {
+        return UserDAO.sha256(PASSWORD);
+    }
+}
@@ -0,0 +1,99 @@
+package ui;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * GeminiClient's own overhead: building request JSON for a single prompt and
+ * for a chat window, parsing replies (whole and streamed), and a full
+ * askGemini round trip against a {@link GeminiStub} that answers at once.
+ * Lives in package {@code ui} to reach the package-private JSON helpers.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GeminiClientBenchmark {
+
+    @Param({"200", "4000"})
+    public int replyChars;
+
+    private String prompt;
+    private Conversation.Window window;
+    private String reply;
+    private String[] streamLines;
+    private GeminiStub stub;
+    private GeminiClient client;
+
+    @Setup(Level.Trial)
+    public void start() throws Exception {
+        prompt = "Explain the difference between mitosis and meiosis in two short paragraphs.";
+        Conversation conversation = new Conversation("You are a helpful study assistant.");
+        for (int i = 0; i < 20; i++) {
+            Conversation.Exchange e = conversation.ask("Question " + i + ": " + prompt);
+            conversation.answer(e, text(replyChars / 4));
+        }
+        window = conversation.window(conversation.ask(prompt));
+
+        String answer = text(replyChars);
+        reply = GeminiStub.replyJson(answer);
+        // the same answer as an SSE stream of ~100-char chunks
+        int chunks = Math.max(1, replyChars / 100);
+        streamLines = new String[chunks * 2];
+        for (int i = 0; i < chunks; i++) {
+            int from = answer.length() * i / chunks;
+            int to = answer.length() * (i + 1) / chunks;
+            streamLines[2 * i] = "data: " + GeminiStub.replyJson(answer.substring(from, to));
+            streamLines[2 * i + 1] = "";
+        }
+
+        stub = new GeminiStub(answer, 100, 0);
+        client = new GeminiClient("bench-key", stub.url());
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() throws IOException {
+        stub.close();
+    }
+
+    @Benchmark
+    public String buildPromptRequest() {
+        return GeminiClient.body(prompt).toString();
+    }
+
+    @Benchmark
+    public String buildWindowRequest() {
+        return GeminiClient.body(window).toString();
+    }
+
+    @Benchmark
+    public String parseReply() {
+        return GeminiClient.parseText(reply);
+    }
+
+    @Benchmark
+    public int parseStream() {
+        GeminiStreamParser parser = new GeminiStreamParser();
+        int length = 0;
+        for (String line : streamLines) {
+            String text = parser.feed(line);
+            if (text != null) length += text.length();
+        }
+        return length;
+    }
+
+    @Benchmark
+    public String askStub() {
+        return client.askGemini(prompt);
+    }
+
+    private static String text(int chars) {
+        StringBuilder sb = new StringBuilder(chars + 16);
+        while (sb.length() < chars) sb.append("Mitosis makes two identical cells; meiosis makes four \"unique\" gametes.\n");
+        return sb.substring(0, chars);
+    }
+}
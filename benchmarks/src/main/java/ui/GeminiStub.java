@@ -0,0 +1,136 @@
+package ui;
+
+import com.google.gson.JsonObject;
+
+import java.io.BufferedInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Loopback stand-in for the Gemini API, for benchmarks and the view harness.
+ * Every generateContent call gets {@code reply} as one JSON body. Every
+ * streamGenerateContent call gets it as server-sent events of
+ * {@code chunkChars} characters, {@code chunkDelayMs} apart.
+ *
+ * Keep-alive HTTP/1.1 with Nagle off, and each response or event is written in
+ * one piece, so no delayed-ACK stalls end up in the measurements.
+ */
+final class GeminiStub implements AutoCloseable {
+    private final ServerSocket socket;
+    private final byte[] whole;
+    private final byte[][] events;
+    private final long chunkDelayMs;
+    private final AtomicInteger completed = new AtomicInteger();
+
+    GeminiStub(String reply, int chunkChars, long chunkDelayMs) throws IOException {
+        this.chunkDelayMs = chunkDelayMs;
+        byte[] body = replyJson(reply).getBytes(StandardCharsets.UTF_8);
+        whole = concat(("HTTP/1.1 200 OK\r\nContent-Type: application/json\r\nContent-Length: " + body.length
+                + "\r\n\r\n").getBytes(StandardCharsets.US_ASCII), body);
+        int chunks = Math.max(1, (reply.length() + chunkChars - 1) / chunkChars);
+        events = new byte[chunks][];
+        for (int i = 0; i < chunks; i++) {
+            String piece = reply.substring(Math.min(reply.length(), i * chunkChars),
+                    Math.min(reply.length(), (i + 1) * chunkChars));
+            events[i] = httpChunk(("data: " + replyJson(piece) + "\r\n\r\n").getBytes(StandardCharsets.UTF_8));
+        }
+        socket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+        Thread.ofVirtual().start(this::accept);
+    }
+
+    /** Base URL to hand to {@link GeminiClient#GeminiClient(String, String)}. */
+    String url() {
+        return "http://127.0.0.1:" + socket.getLocalPort() + "/";
+    }
+
+    /** Responses sent in full so far. */
+    int completed() {
+        return completed.get();
+    }
+
+    @Override
+    public void close() throws IOException {
+        socket.close();
+    }
+
+    private void accept() {
+        while (!socket.isClosed()) {
+            try {
+                Socket s = socket.accept();
+                s.setTcpNoDelay(true);
+                Thread.ofVirtual().start(() -> serve(s));
+            } catch (IOException e) {
+                return;
+            }
+        }
+    }
+
+    private void serve(Socket s) {
+        try (s) {
+            InputStream in = new BufferedInputStream(s.getInputStream());
+            OutputStream out = s.getOutputStream();
+            while (true) {
+                String requestLine = readLine(in);
+                int contentLength = 0;
+                String line;
+                while (!(line = readLine(in)).isEmpty()) {
+                    if (line.regionMatches(true, 0, "Content-Length:", 0, 15)) {
+                        contentLength = Integer.parseInt(line.substring(15).trim());
+                    }
+                }
+                in.readNBytes(contentLength);
+                if (requestLine.contains(":streamGenerateContent")) {
+                    out.write(("HTTP/1.1 200 OK\r\nContent-Type: text/event-stream\r\nTransfer-Encoding: chunked\r\n\r\n")
+                            .getBytes(StandardCharsets.US_ASCII));
+                    for (byte[] event : events) {
+                        out.write(event);
+                        out.flush();
+                        if (chunkDelayMs > 0) Thread.sleep(chunkDelayMs);
+                    }
+                    out.write("0\r\n\r\n".getBytes(StandardCharsets.US_ASCII));
+                } else {
+                    out.write(whole);
+                }
+                out.flush();
+                completed.incrementAndGet();
+            }
+        } catch (IOException | InterruptedException e) {
+            // client went away
+        }
+    }
+
+    static String replyJson(String text) {
+        JsonObject part = new JsonObject();
+        part.addProperty("text", text);
+        return "{\"candidates\":[{\"content\":{\"role\":\"model\",\"parts\":[" + part + "]},"
+                + "\"finishReason\":\"STOP\"}],\"usageMetadata\":{\"promptTokenCount\":18}}";
+    }
+
+    private static byte[] httpChunk(byte[] data) {
+        return concat(concat((Integer.toHexString(data.length) + "\r\n").getBytes(StandardCharsets.US_ASCII), data),
+                "\r\n".getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private static byte[] concat(byte[] a, byte[] b) {
+        byte[] out = new byte[a.length + b.length];
+        System.arraycopy(a, 0, out, 0, a.length);
+        System.arraycopy(b, 0, out, a.length, b.length);
+        return out;
+    }
+
+    private static String readLine(InputStream in) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        for (int c; (c = in.read()) != '\n'; ) {
+            if (c < 0) throw new EOFException();
+            if (c != '\r') sb.append((char) c);
+        }
+        return sb.toString();
+    }
+}
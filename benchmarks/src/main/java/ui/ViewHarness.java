@@ -0,0 +1,539 @@
+package ui;
+
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import javafx.animation.AnimationTimer;
+import javafx.application.Platform;
+import javafx.event.Event;
+import javafx.scene.Node;
+import javafx.scene.Parent;
+import javafx.scene.Scene;
+import javafx.scene.control.Button;
+import javafx.scene.control.TextArea;
+import javafx.scene.control.TextField;
+import javafx.scene.control.TextInputControl;
+import javafx.scene.input.KeyCode;
+import javafx.scene.input.KeyEvent;
+import javafx.scene.layout.Pane;
+import javafx.scene.text.Text;
+import javafx.scene.text.TextFlow;
+import javafx.stage.Stage;
+import model.Database;
+import model.Flashcard;
+import model.FlashcardDAO;
+import ui.views.ChatView;
+import ui.views.TypingExerciseView;
+import ui.views.TypingRaceView;
+
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+/**
+ * Drives synthetic input into each view on a headless JavaFX stage (Monocle)
+ * and fails when a view gets slower, bigger or more wasteful than its limits.
+ *
+ * Each scenario runs its view in a 1000x700 scene and feeds it input from an
+ * AnimationTimer, one step per frame. The input is keystroke streams for the
+ * typing views and answer fields, and message bursts streamed back from a
+ * {@link GeminiStub} for the chat views. It records:
+ * <ul>
+ *   <li>pulse time: CSS + layout per pulse, from the scene's pulse listeners</li>
+ *   <li>frame time: the gap between consecutive frames</li>
+ *   <li>peak node count of the scene graph, skins included</li>
+ *   <li>bytes allocated on the FX thread, per second and per input event</li>
+ * </ul>
+ * Limits are per scenario and can be overridden with
+ * {@code -Dharness.<scenario>.<pulseP99Ms|frameP99Ms|maxNodes|allocMBps>=value}.
+ * Results go to {@code view-harness.json} ({@code -Dharness.out=...}) in JMH's
+ * JSON layout, so {@code bench.jmh.CompareResults} can diff two runs.
+ *
+ * Run: java -cp benchmarks.jar ui.ViewHarness [scenario...]
+ * (-Dharness.display=true to watch it on a real screen instead)
+ */
+public class ViewHarness {
+    private static final int SETTLE_FRAMES = 20;          // skins, CSS and first layout before measuring
+    private static final long TIMEOUT_NANOS = TimeUnit.SECONDS.toNanos(120);
+    private static final int FLASHCARDS = 5_000;
+
+    /** Exceeding any of these fails the run. */
+    private record Limits(double pulseP99Ms, double frameP99Ms, int maxNodes, double allocMBps) {
+        Limits overriddenFor(String scenario) {
+            return new Limits(
+                    Double.parseDouble(System.getProperty("harness." + scenario + ".pulseP99Ms", "" + pulseP99Ms)),
+                    Double.parseDouble(System.getProperty("harness." + scenario + ".frameP99Ms", "" + frameP99Ms)),
+                    Integer.parseInt(System.getProperty("harness." + scenario + ".maxNodes", "" + maxNodes)),
+                    Double.parseDouble(System.getProperty("harness." + scenario + ".allocMBps", "" + allocMBps)));
+        }
+    }
+
+    private record Result(String scenario, int events, double seconds, double pulseP50Ms, double pulseP99Ms,
+                          double pulseMaxMs, double frameP99Ms, double frameMaxMs, int peakNodes,
+                          double allocMBps, double allocKBPerEvent, boolean timedOut) {
+        List<String> failures(Limits limits) {
+            List<String> f = new ArrayList<>();
+            if (timedOut) f.add("did not finish within " + TimeUnit.NANOSECONDS.toSeconds(TIMEOUT_NANOS) + " s");
+            if (pulseP99Ms > limits.pulseP99Ms()) f.add(String.format("pulse p99 %.1f ms > %.1f", pulseP99Ms, limits.pulseP99Ms()));
+            if (frameP99Ms > limits.frameP99Ms()) f.add(String.format("frame p99 %.1f ms > %.1f", frameP99Ms, limits.frameP99Ms()));
+            if (peakNodes > limits.maxNodes()) f.add(String.format("%d nodes > %d", peakNodes, limits.maxNodes()));
+            if (allocMBps > limits.allocMBps()) f.add(String.format("allocating %.1f MB/s > %.1f", allocMBps, limits.allocMBps()));
+            return f;
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (!Boolean.getBoolean("harness.display")) {
+            System.setProperty("glass.platform", "Monocle");
+            System.setProperty("monocle.platform", "Headless");
+            System.setProperty("prism.order", "sw");
+            System.setProperty("java.awt.headless", "true");
+        }
+        // Keep the views' databases (flashcards, typing history) out of the real home directory.
+        Path home = Files.createTempDirectory("studymate-harness");
+        System.setProperty("user.home", home.toString());
+        seedFlashcards(home);
+
+        String reply = ("Mitosis produces two identical daughter cells, while meiosis produces four "
+                + "genetically distinct gametes with half the chromosomes. ").repeat(10);
+        List<Result> results = new ArrayList<>();
+        List<String> failures = new ArrayList<>();
+        try (GeminiStub stub = new GeminiStub(reply, 24, 8)) {
+            GeminiClient gemini = new GeminiClient("harness-key", stub.url());
+            List<Scenario> scenarios = List.of(
+                    new TypingScenario("typing-exercise", new Limits(8, 50, 400, 64), false),
+                    new TypingScenario("typing-race", new Limits(8, 50, 500, 64), true),
+                    new ChatScenario(gemini, stub),
+                    new FlashcardsScenario(),
+                    new SummaryScenario(gemini));
+
+            Platform.startup(() -> {});
+            Stage stage = onFx(() -> {
+                Stage s = new Stage();
+                s.setScene(new Scene(new Pane(), 1000, 700));
+                s.show();
+                return s;
+            });
+            for (Scenario scenario : scenarios) {
+                if (args.length > 0 && !List.of(args).contains(scenario.name)) continue;
+                Result r = run(stage, scenario);
+                results.add(r);
+                Limits limits = scenario.limits.overriddenFor(scenario.name);
+                for (String f : r.failures(limits)) failures.add(scenario.name + ": " + f);
+            }
+            onFx(() -> {
+                stage.close();
+                return null;
+            });
+        }
+
+        System.out.printf("%-16s %7s %8s %9s %9s %9s %9s %7s %8s %9s%n", "scenario", "events", "seconds",
+                "pulse p50", "pulse p99", "frame p99", "frame max", "nodes", "MB/s", "KB/event");
+        for (Result r : results) {
+            System.out.printf("%-16s %7d %8.1f %9.2f %9.2f %9.1f %9.1f %7d %8.1f %9.1f%n", r.scenario(), r.events(),
+                    r.seconds(), r.pulseP50Ms(), r.pulseP99Ms(), r.frameP99Ms(), r.frameMaxMs(), r.peakNodes(),
+                    r.allocMBps(), r.allocKBPerEvent());
+        }
+        Path out = Path.of(System.getProperty("harness.out", "view-harness.json"));
+        Files.writeString(out, toJson(results));
+        System.out.println("results written to " + out.toAbsolutePath());
+
+        failures.forEach(f -> System.out.println("FAIL " + f));
+        System.out.println(failures.isEmpty() ? "all views within limits" : failures.size() + " limit(s) exceeded");
+        Platform.exit();
+        System.exit(failures.isEmpty() ? 0 : 1);
+    }
+
+    // ===== Running a scenario =====
+
+    private static Result run(Stage stage, Scenario scenario) throws Exception {
+        CompletableFuture<Result> done = new CompletableFuture<>();
+        Platform.runLater(() -> {
+            Scene scene = stage.getScene();
+            try {
+                scene.setRoot(scenario.create());
+            } catch (Exception e) {
+                done.completeExceptionally(e);
+                return;
+            }
+            Probe probe = new Probe(scene);
+            new AnimationTimer() {
+                int frame;
+
+                @Override
+                public void handle(long now) {
+                    if (++frame <= SETTLE_FRAMES) return;
+                    if (frame == SETTLE_FRAMES + 1) probe.start(now);
+                    probe.frame(now, frame);
+                    boolean more;
+                    try {
+                        more = scenario.frame(frame - SETTLE_FRAMES);
+                    } catch (RuntimeException e) {
+                        stop();
+                        probe.detach();
+                        done.completeExceptionally(e);
+                        return;
+                    }
+                    boolean timedOut = now - probe.startNanos > TIMEOUT_NANOS;
+                    if (more && !timedOut) return;
+                    stop();
+                    Result r = probe.finish(scenario, timedOut);
+                    scene.setRoot(new Pane());        // views clean up once they leave the scene
+                    done.complete(r);
+                }
+            }.start();
+        });
+        return done.get();
+    }
+
+    /** Pulse and frame timings, node counts and FX-thread allocation while a scenario runs. */
+    private static final class Probe {
+        private final Scene scene;
+        private final LatencyHistogram pulses = new LatencyHistogram();   // us
+        private final LatencyHistogram frames = new LatencyHistogram();   // us
+        private long pulseStart;
+        private final Runnable beforeLayout = () -> pulseStart = System.nanoTime();
+        private final Runnable afterLayout = () -> {
+            if (pulseStart != 0) pulses.record((System.nanoTime() - pulseStart) / 1_000);
+        };
+        private long startNanos;
+        private long lastFrame;
+        private long startBytes;
+        private int peakNodes;
+
+        Probe(Scene scene) {
+            this.scene = scene;
+        }
+
+        void start(long now) {
+            startNanos = now;
+            startBytes = allocatedBytes();
+            scene.addPreLayoutPulseListener(beforeLayout);
+            scene.addPostLayoutPulseListener(afterLayout);
+        }
+
+        void frame(long now, int frame) {
+            if (lastFrame != 0) frames.record((now - lastFrame) / 1_000);
+            lastFrame = now;
+            if (frame % 30 == 0) peakNodes = Math.max(peakNodes, countNodes(scene.getRoot()));
+        }
+
+        void detach() {
+            scene.removePreLayoutPulseListener(beforeLayout);
+            scene.removePostLayoutPulseListener(afterLayout);
+        }
+
+        Result finish(Scenario scenario, boolean timedOut) {
+            detach();
+            double seconds = (lastFrame - startNanos) / 1e9;
+            long bytes = allocatedBytes() - startBytes;
+            peakNodes = Math.max(peakNodes, countNodes(scene.getRoot()));
+            return new Result(scenario.name, scenario.events, seconds,
+                    pulses.percentile(50) / 1e3, pulses.percentile(99) / 1e3, pulses.max() / 1e3,
+                    frames.percentile(99) / 1e3, frames.max() / 1e3, peakNodes,
+                    bytes / 1048576.0 / Math.max(seconds, 1e-9),
+                    bytes / 1024.0 / Math.max(1, scenario.events), timedOut);
+        }
+    }
+
+    // ===== Scenarios =====
+
+    /** A view plus the input fed into it, one step per frame on the FX thread. */
+    private abstract static class Scenario {
+        final String name;
+        final Limits limits;
+        int events;              // keystrokes, clicks and messages fed in so far
+
+        Scenario(String name, Limits limits) {
+            this.name = name;
+            this.limits = limits;
+        }
+
+        abstract Parent create() throws Exception;
+
+        /** @return false once the scenario is complete */
+        abstract boolean frame(int frame);
+    }
+
+    /**
+     * Types passages into a typing view two keys per frame (about 1,400 WPM at
+     * 60 fps), with a typo and its correction every 29 keys. A finished passage
+     * is replaced by the next one.
+     */
+    private static final class TypingScenario extends Scenario {
+        private static final int KEYS = 3_000;
+        private static final int KEYS_PER_FRAME = 2;
+        private final boolean race;
+        private Parent view;
+        private TextArea input;
+        private String target;
+        private boolean typo;
+        private int round;
+
+        TypingScenario(String name, Limits limits, boolean race) {
+            super(name, limits);
+            this.race = race;
+        }
+
+        @Override
+        Parent create() {
+            if (race) {
+                TypingRaceView v = new TypingRaceView();
+                v.setSeed(1);
+                view = v;
+            } else {
+                view = new TypingExerciseView();
+            }
+            return view;
+        }
+
+        @Override
+        boolean frame(int frame) {
+            if (input == null) {
+                input = find(view, TextArea.class, n -> true);
+                target = flowText(find(view, TextFlow.class, n -> true));
+            }
+            for (int k = 0; k < KEYS_PER_FRAME && events < KEYS; k++) {
+                if (input.isDisabled()) {              // passage finished
+                    nextRound();
+                    return true;
+                }
+                int at = input.getLength();
+                if (typo) {
+                    press(input, KeyCode.BACK_SPACE);
+                    typo = false;
+                } else if (events % 29 == 28) {
+                    type(input, '#');
+                    typo = true;
+                } else if (at < target.length()) {
+                    type(input, target.charAt(at));
+                }
+                events++;
+            }
+            return events < KEYS;
+        }
+
+        private void nextRound() {
+            if (race) {
+                ((TypingRaceView) view).setSeed(++round + 1);
+            } else {
+                find(view, Button.class, b -> "Next".equals(b.getText())).fire();
+                events++;
+            }
+            target = flowText(find(view, TextFlow.class, n -> true));
+        }
+    }
+
+    /** Bursts of chat messages, each answered by a streamed reply; ends once every reply is in. */
+    private static final class ChatScenario extends Scenario {
+        private static final int MESSAGES = 40;
+        private final GeminiClient gemini;
+        private final GeminiStub stub;
+        private ChatView view;
+        private int repliesBefore;
+        private int idleFrames;
+
+        ChatScenario(GeminiClient gemini, GeminiStub stub) {
+            super("chat", new Limits(16, 50, 600, 100));
+            this.gemini = gemini;
+            this.stub = stub;
+        }
+
+        @Override
+        Parent create() {
+            view = new ChatView(gemini);
+            repliesBefore = stub.completed();
+            return view;
+        }
+
+        @Override
+        boolean frame(int frame) {
+            if (events < MESSAGES) {
+                if (frame % 6 == 0) {                  // ten messages a second
+                    TextField input = find(view, TextField.class, n -> true);
+                    input.setText("Question " + events + ": how do mitosis and meiosis differ in their outcome?");
+                    find(view, Button.class, b -> "Send".equals(b.getText())).fire();
+                    events++;
+                }
+                return true;
+            }
+            if (stub.completed() - repliesBefore < MESSAGES) return true;
+            return ++idleFrames < 30;                  // let the last replies render
+        }
+    }
+
+    /** Answers {@value #CARDS} cards: types an answer, checks it, moves to the next card. */
+    private static final class FlashcardsScenario extends Scenario {
+        private static final int CARDS = 150;
+        private static final String ANSWER = "answer";
+        private Parent view;
+        private TextField answer;
+        private int cards;
+        private int typed;
+
+        FlashcardsScenario() {
+            super("flashcards", new Limits(12, 50, 400, 64));
+        }
+
+        @Override
+        Parent create() {
+            view = new StudyMateApp.FlashcardsView(new FlashcardDAO(Database.shared()));
+            return view;
+        }
+
+        @Override
+        boolean frame(int frame) {
+            if (answer == null) answer = find(view, TextField.class, n -> true);
+            if (answer.isDisabled()) return true;      // cards still loading
+            if (typed < ANSWER.length()) {
+                type(answer, ANSWER.charAt(typed++));
+                if (typed < ANSWER.length()) type(answer, ANSWER.charAt(typed++));
+            } else if (typed == ANSWER.length()) {
+                press(answer, KeyCode.ENTER);
+                typed++;
+            } else {
+                Button next = find(view, Button.class, b -> b.getText().startsWith("Next"));
+                if (next.isDisabled()) return true;    // next page of cards still loading
+                next.fire();
+                typed = 0;
+                cards++;
+            }
+            events++;
+            return cards < CARDS;
+        }
+    }
+
+    /** Sends requests from the AI summary view one after another, each reply streamed back. */
+    private static final class SummaryScenario extends Scenario {
+        private static final int REQUESTS = 15;
+        private final GeminiClient gemini;
+        private Parent view;
+        private int idleFrames;
+
+        SummaryScenario(GeminiClient gemini) {
+            super("ai-summary", new Limits(16, 50, 300, 100));
+            this.gemini = gemini;
+        }
+
+        @Override
+        Parent create() {
+            view = new StudyMateApp.AISummaryView(gemini, text -> {}, null);
+            return view;
+        }
+
+        @Override
+        boolean frame(int frame) {
+            Button send = find(view, Button.class, b -> "Send".equals(b.getText()));
+            if (send.isDisabled()) return true;        // reply still streaming
+            if (events < REQUESTS) {
+                find(view, TextArea.class, TextArea::isEditable)
+                        .setText("Photosynthesis converts light energy into chemical energy. ".repeat(20));
+                send.fire();
+                events++;
+                return true;
+            }
+            return ++idleFrames < 30;
+        }
+    }
+
+    // ===== Helpers =====
+
+    private static void type(TextInputControl target, char c) {
+        Event.fireEvent(target, new KeyEvent(KeyEvent.KEY_TYPED, String.valueOf(c), "", KeyCode.UNDEFINED,
+                false, false, false, false));
+    }
+
+    private static void press(TextInputControl target, KeyCode code) {
+        Event.fireEvent(target, new KeyEvent(KeyEvent.KEY_PRESSED, "", "", code, false, false, false, false));
+        Event.fireEvent(target, new KeyEvent(KeyEvent.KEY_RELEASED, "", "", code, false, false, false, false));
+    }
+
+    /** First node of {@code type} matching {@code test}, depth first. */
+    private static <T extends Node> T find(Node root, Class<T> type, Predicate<T> test) {
+        T found = search(root, type, test);
+        if (found == null) throw new IllegalStateException("no matching " + type.getSimpleName() + " in the view");
+        return found;
+    }
+
+    private static <T extends Node> T search(Node node, Class<T> type, Predicate<T> test) {
+        if (type.isInstance(node) && test.test(type.cast(node))) return type.cast(node);
+        if (node instanceof Parent p) {
+            for (Node child : p.getChildrenUnmodifiable()) {
+                T found = search(child, type, test);
+                if (found != null) return found;
+            }
+        }
+        return null;
+    }
+
+    /** The passage shown by a TypingHighlighter: its Text nodes, in order. */
+    private static String flowText(TextFlow flow) {
+        StringBuilder sb = new StringBuilder();
+        for (Node n : flow.getChildren()) if (n instanceof Text t) sb.append(t.getText());
+        return sb.toString();
+    }
+
+    private static int countNodes(Node node) {
+        int n = 1;
+        if (node instanceof Parent p) for (Node child : p.getChildrenUnmodifiable()) n += countNodes(child);
+        return n;
+    }
+
+    private static long allocatedBytes() {
+        return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean())
+                .getCurrentThreadAllocatedBytes();
+    }
+
+    private static <T> T onFx(java.util.concurrent.Callable<T> task) throws Exception {
+        CompletableFuture<T> f = new CompletableFuture<>();
+        Platform.runLater(() -> {
+            try {
+                f.complete(task.call());
+            } catch (Exception e) {
+                f.completeExceptionally(e);
+            }
+        });
+        return f.get();
+    }
+
+    private static void seedFlashcards(Path home) throws Exception {
+        Path dir = Files.createDirectories(home.resolve("StudyMate"));
+        FlashcardDAO dao = new FlashcardDAO(Database.pool("jdbc:sqlite:" + dir.resolve("studymate.db").toAbsolutePath()));
+        dao.init();
+        List<Flashcard> cards = new ArrayList<>(FLASHCARDS);
+        for (int i = 0; i < FLASHCARDS; i++) {
+            cards.add(new Flashcard("Topic " + (i % 12), "What is term " + i + "?", i % 3 == 0 ? "answer" : "other " + i));
+        }
+        dao.insertAll(cards);
+    }
+
+    /** One entry per metric, in JMH's JSON layout (all lower-is-better, so mode "avgt"). */
+    private static String toJson(List<Result> results) {
+        JsonArray out = new JsonArray();
+        for (Result r : results) {
+            metric(out, r, "pulseP99", r.pulseP99Ms(), "ms");
+            metric(out, r, "frameP99", r.frameP99Ms(), "ms");
+            metric(out, r, "peakNodes", r.peakNodes(), "nodes");
+            metric(out, r, "allocRate", r.allocMBps(), "MB/s");
+            metric(out, r, "allocPerEvent", r.allocKBPerEvent(), "KB/event");
+        }
+        return new GsonBuilder().setPrettyPrinting().create().toJson(out);
+    }
+
+    private static void metric(JsonArray out, Result r, String name, double score, String unit) {
+        JsonObject primary = new JsonObject();
+        primary.addProperty("score", score);
+        primary.addProperty("scoreError", "NaN");
+        primary.addProperty("scoreUnit", unit);
+        JsonObject entry = new JsonObject();
+        entry.addProperty("benchmark", "ui.ViewHarness." + r.scenario() + "." + name);
+        entry.addProperty("mode", "avgt");
+        entry.add("primaryMetric", primary);
+        out.add(entry);
+    }
+}
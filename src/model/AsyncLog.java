@@ -0,0 +1,280 @@
+package model;
+
+import org.slf4j.event.Level;
+import org.slf4j.helpers.MessageFormatter;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The pipeline behind the app's SLF4J loggers (see {@link AsyncLogProvider}).
+ *
+ * A logging call only checks the level and sampling, then offers one event
+ * to a bounded queue. Formatting and I/O happen on a single daemon thread,
+ * which writes each event as a logfmt line to ~/StudyMate/studymate.log and
+ * echoes WARN and above to stderr.
+ *
+ * The caller never waits. Once the queue is three quarters full, TRACE to
+ * INFO events are dropped, and once it is full everything is. Drops are counted
+ * in {@code log.dropped} and noted in the log when the queue catches up.
+ *
+ * Settings (system properties):
+ *  - {@code studymate.log.level}: lowest level logged, default info;
+ *  - {@code studymate.log.console}: lowest level echoed to stderr, default warn;
+ *  - {@code studymate.log.sample.<level>=N}: keep one in N events of that level;
+ *  - {@code studymate.log.file}: log file, or "none" for console only.
+ */
+public final class AsyncLog {
+    private static final int CAPACITY = 8192;
+    private static final int LOW_PRIORITY_LIMIT = CAPACITY * 3 / 4;
+    private static final long MAX_FILE_BYTES = 5L << 20;
+
+    private record Event(long millis, Level level, String logger, String thread,
+                         String pattern, Object[] args, Throwable error) {}
+
+    private static final BlockingQueue<Event> QUEUE = new ArrayBlockingQueue<>(CAPACITY);
+    private static final int THRESHOLD = level("studymate.log.level", Level.INFO).toInt();
+    private static final int CONSOLE = level("studymate.log.console", Level.WARN).toInt();
+    private static final int[] SAMPLE_EVERY = new int[Level.values().length];
+    private static final AtomicLong[] SAMPLE_SEQ = new AtomicLong[Level.values().length];
+    private static final LongAdder ACCEPTED = new LongAdder();
+    private static final AtomicLong DROPPED = new AtomicLong();
+    private static final Metrics.Counter DROPPED_TOTAL = Metrics.counter("log.dropped");
+    private static volatile long written;
+
+    static {
+        for (Level l : Level.values()) {
+            SAMPLE_EVERY[l.ordinal()] = Math.max(1,
+                    Integer.getInteger("studymate.log.sample." + l.name().toLowerCase(Locale.ROOT), 1));
+            SAMPLE_SEQ[l.ordinal()] = new AtomicLong();
+        }
+        Metrics.gauge("log.queue", QUEUE::size);
+        Thread writer = new Thread(AsyncLog::drain, "log-writer");
+        writer.setDaemon(true);
+        writer.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> flush(Duration.ofSeconds(1)), "log-flush"));
+    }
+
+    private AsyncLog() {}
+
+    static boolean isEnabled(Level level) {
+        return level.toInt() >= THRESHOLD;
+    }
+
+    /** Queue one event; never blocks. Mutable {@code args} are rendered now, as they are at the call. */
+    static void log(Level level, String logger, String pattern, Object[] args, Throwable error) {
+        if (!isEnabled(level)) return;
+        int every = SAMPLE_EVERY[level.ordinal()];
+        if (every > 1 && SAMPLE_SEQ[level.ordinal()].getAndIncrement() % every != 0) return;
+        if (level.toInt() < Level.WARN.toInt() && QUEUE.size() >= LOW_PRIORITY_LIMIT) {
+            drop();
+            return;
+        }
+        Event e = new Event(System.currentTimeMillis(), level, logger, Thread.currentThread().getName(),
+                pattern, snapshot(args), error);
+        if (QUEUE.offer(e)) {
+            ACCEPTED.increment();
+        } else {
+            drop();
+        }
+    }
+
+    /** Wait until everything logged so far has been written, or {@code timeout} passes. */
+    public static void flush(Duration timeout) {
+        long target = ACCEPTED.sum();
+        long deadline = System.nanoTime() + timeout.toNanos();
+        while (written < target && System.nanoTime() < deadline) {
+            try {
+                Thread.sleep(2);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    /**
+     * {@code args} with everything but immutable values replaced by its string
+     * form, so the writer thread sees them as they were when logged. Copies
+     * the array only if something had to be replaced.
+     */
+    private static Object[] snapshot(Object[] args) {
+        if (args == null) return null;
+        Object[] copy = args;
+        for (int i = 0; i < args.length; i++) {
+            Object v = args[i];
+            if (isImmutable(v)) continue;
+            if (copy == args) copy = args.clone();
+            // arrays go through the formatter so they still print as [a, b]
+            copy[i] = v.getClass().isArray()
+                    ? MessageFormatter.basicArrayFormat("{}", new Object[]{v})
+                    : String.valueOf(v);
+        }
+        return copy;
+    }
+
+    private static boolean isImmutable(Object v) {
+        return v == null || v instanceof String || v instanceof Integer || v instanceof Long
+                || v instanceof Double || v instanceof Float || v instanceof Short || v instanceof Byte
+                || v instanceof Boolean || v instanceof Character || v instanceof Enum<?>
+                || v instanceof BigInteger || v instanceof BigDecimal
+                || v instanceof Path || v instanceof Duration || v instanceof Instant;
+    }
+
+    private static void drop() {
+        DROPPED.incrementAndGet();
+        DROPPED_TOTAL.inc();
+    }
+
+    // ===== writer thread =====
+
+    private static void drain() {
+        Writer file = openFile();
+        StringBuilder line = new StringBuilder(256);
+        List<Event> batch = new ArrayList<>(256);
+        while (true) {
+            try {
+                batch.add(QUEUE.take());
+            } catch (InterruptedException e) {
+                return;
+            }
+            QUEUE.drainTo(batch, 255);
+            for (Event e : batch) {
+                line.setLength(0);
+                format(e, line);
+                file = write(file, line, e.level().toInt() >= CONSOLE);
+            }
+            long dropped = DROPPED.getAndSet(0);
+            if (dropped > 0 && QUEUE.isEmpty()) {
+                line.setLength(0);
+                format(new Event(System.currentTimeMillis(), Level.WARN, AsyncLog.class.getName(),
+                        Thread.currentThread().getName(), "Dropped {} log event(s), queue was full",
+                        new Object[]{dropped}, null), line);
+                file = write(file, line, true);
+            } else if (dropped > 0) {
+                DROPPED.addAndGet(dropped);   // report once the backlog is gone
+            }
+            if (file != null) {
+                try {
+                    file.flush();
+                } catch (IOException ex) {
+                    file = fileFailed(file, ex);
+                }
+            }
+            written += batch.size();
+            batch.clear();
+        }
+    }
+
+    private static Writer write(Writer file, CharSequence line, boolean console) {
+        if (console || file == null) System.err.print(line);
+        if (file == null) return null;
+        try {
+            file.append(line);
+            return file;
+        } catch (IOException e) {
+            return fileFailed(file, e);
+        }
+    }
+
+    private static Writer fileFailed(Writer file, IOException e) {
+        System.err.println("Log file disabled: " + e.getMessage());
+        try {
+            file.close();
+        } catch (IOException ignored) { }
+        return null;
+    }
+
+    /** {@code ts=... level=INFO logger=... thread=... msg=...}, then any stack trace indented. */
+    private static void format(Event e, StringBuilder sb) {
+        sb.append("ts=").append(Instant.ofEpochMilli(e.millis()))
+                .append(" level=").append(e.level())
+                .append(" logger=").append(e.logger().substring(e.logger().lastIndexOf('.') + 1));
+        sb.append(" thread=");
+        value(e.thread(), sb);
+        sb.append(" msg=");
+        value(e.args() == null || e.args().length == 0 ? e.pattern()
+                : MessageFormatter.basicArrayFormat(e.pattern(), e.args()), sb);
+        sb.append('\n');
+        if (e.error() != null) {
+            StringWriter trace = new StringWriter();
+            e.error().printStackTrace(new PrintWriter(trace));
+            for (String l : trace.toString().split("\\R")) sb.append("    ").append(l).append('\n');
+        }
+    }
+
+    /** Bare if it is a single token, otherwise quoted with {@code "}, {@code \} and newlines escaped. */
+    private static void value(String v, StringBuilder sb) {
+        if (v == null) v = "null";
+        boolean bare = !v.isEmpty();
+        for (int i = 0; i < v.length() && bare; i++) {
+            char c = v.charAt(i);
+            bare = c > ' ' && c != '"' && c != '=' && c != '\\';
+        }
+        if (bare) {
+            sb.append(v);
+            return;
+        }
+        sb.append('"');
+        for (int i = 0; i < v.length(); i++) {
+            char c = v.charAt(i);
+            switch (c) {
+                case '"', '\\' -> sb.append('\\').append(c);
+                case '\n' -> sb.append("\\n");
+                case '\r' -> sb.append("\\r");
+                case '\t' -> sb.append("\\t");
+                default -> sb.append(c);
+            }
+        }
+        sb.append('"');
+    }
+
+    /** Append to the log file, moving it to {@code .1} first once it passes 5 MB; null means console only. */
+    private static Writer openFile() {
+        String setting = System.getProperty("studymate.log.file");
+        if ("none".equals(setting)) return null;
+        Path file = setting != null ? Paths.get(setting)
+                : Paths.get(System.getProperty("user.home"), "StudyMate", "studymate.log");
+        try {
+            if (file.getParent() != null) Files.createDirectories(file.getParent());
+            if (Files.exists(file) && Files.size(file) > MAX_FILE_BYTES) {
+                Files.move(file, file.resolveSibling(file.getFileName() + ".1"), StandardCopyOption.REPLACE_EXISTING);
+            }
+            return new BufferedWriter(Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND), 1 << 16);
+        } catch (IOException e) {
+            System.err.println("Logging to console only: " + e.getMessage());
+            return null;
+        }
+    }
+
+    private static Level level(String property, Level fallback) {
+        String v = System.getProperty(property);
+        if (v == null) return fallback;
+        try {
+            return Level.valueOf(v.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            return fallback;
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package model;
+
+import org.slf4j.ILoggerFactory;
+import org.slf4j.IMarkerFactory;
+import org.slf4j.Logger;
+import org.slf4j.Marker;
+import org.slf4j.event.Level;
+import org.slf4j.helpers.BasicMarkerFactory;
+import org.slf4j.helpers.LegacyAbstractLogger;
+import org.slf4j.helpers.NOPMDCAdapter;
+import org.slf4j.spi.MDCAdapter;
+import org.slf4j.spi.SLF4JServiceProvider;
+
+import java.io.Serial;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * SLF4J binding that sends every logger to {@link AsyncLog}. Selected with
+ * {@code -Dslf4j.provider=model.AsyncLogProvider}, which
+ * {@code StudyMateApp.main} sets; other entry points keep slf4j-simple.
+ */
+public class AsyncLogProvider implements SLF4JServiceProvider {
+    private final IMarkerFactory markers = new BasicMarkerFactory();
+    private final MDCAdapter mdc = new NOPMDCAdapter();
+    private final Map<String, Logger> loggers = new ConcurrentHashMap<>();
+    private final ILoggerFactory factory = name -> loggers.computeIfAbsent(name, AsyncLogger::new);
+
+    @Override
+    public ILoggerFactory getLoggerFactory() { return factory; }
+
+    @Override
+    public IMarkerFactory getMarkerFactory() { return markers; }
+
+    @Override
+    public MDCAdapter getMDCAdapter() { return mdc; }
+
+    @Override
+    public String getRequestedApiVersion() { return "2.0.99"; }
+
+    @Override
+    public void initialize() { }
+
+    private static final class AsyncLogger extends LegacyAbstractLogger {
+        @Serial
+        private static final long serialVersionUID = 1L;
+
+        AsyncLogger(String name) {
+            this.name = name;
+        }
+
+        @Override public boolean isTraceEnabled() { return AsyncLog.isEnabled(Level.TRACE); }
+        @Override public boolean isDebugEnabled() { return AsyncLog.isEnabled(Level.DEBUG); }
+        @Override public boolean isInfoEnabled() { return AsyncLog.isEnabled(Level.INFO); }
+        @Override public boolean isWarnEnabled() { return AsyncLog.isEnabled(Level.WARN); }
+        @Override public boolean isErrorEnabled() { return AsyncLog.isEnabled(Level.ERROR); }
+
+        @Override
+        protected String getFullyQualifiedCallerName() { return null; }
+
+        @Override
+        protected void handleNormalizedLoggingCall(Level level, Marker marker, String pattern,
+                                                   Object[] args, Throwable error) {
+            AsyncLog.log(level, name, pattern, args, error);
+        }
+    }
+}
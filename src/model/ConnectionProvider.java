@@ -0,0 +1,23 @@
+package model;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Hands out JDBC connections to the DAOs.
+ *
+ * Connections returned by {@link #reader()} and {@link #writer()} are leases:
+ * always use them in try-with-resources so close() gives them back.
+ */
+public interface ConnectionProvider extends AutoCloseable {
+
+    /** A connection for SELECTs. May be shared with other readers over time. */
+    Connection reader() throws SQLException;
+
+    /** The connection for INSERT/UPDATE/DDL. Only one writer lease is live at a time. */
+    Connection writer() throws SQLException;
+
+    /** Close every underlying connection. */
+    @Override
+    void close();
+}
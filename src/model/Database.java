@@ -0,0 +1,61 @@
+package model;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Process-wide registry of connection pools, one per database URL,
+ * so every DAO talking to the same file shares the same connections.
+ */
+public final class Database {
+    private static final Map<String, SqliteConnectionPool> POOLS = new HashMap<>();
+
+    static {
+        Metrics.gauge("db.statement_cache.hits", () -> statementCacheTotal(true));
+        Metrics.gauge("db.statement_cache.misses", () -> statementCacheTotal(false));
+    }
+
+    private Database() {}
+
+    /** ~/StudyMate/studymate.db, creating the folder if needed. */
+    public static String defaultUrl() {
+        return url("studymate.db");
+    }
+
+    /** JDBC URL for a database file under ~/StudyMate, creating the folder if needed. */
+    public static String url(String fileName) {
+        Path dir = Paths.get(System.getProperty("user.home"), "StudyMate");
+        try {
+            Files.createDirectories(dir);
+        } catch (IOException ignored) { }
+        return "jdbc:sqlite:" + dir.resolve(fileName).toAbsolutePath();
+    }
+
+    /** Shared pool for the default database. */
+    public static ConnectionProvider shared() {
+        return pool(defaultUrl());
+    }
+
+    /** Shared pool for the given JDBC URL, created on first use. */
+    public static synchronized ConnectionProvider pool(String jdbcUrl) {
+        return POOLS.computeIfAbsent(jdbcUrl, SqliteConnectionPool::new);
+    }
+
+    private static synchronized long statementCacheTotal(boolean hits) {
+        long total = 0;
+        for (SqliteConnectionPool p : POOLS.values()) {
+            total += hits ? p.getStatementCacheHits() : p.getStatementCacheMisses();
+        }
+        return total;
+    }
+
+    /** Close all pools; call once on application shutdown. */
+    public static synchronized void closeAll() {
+        for (SqliteConnectionPool p : POOLS.values()) p.close();
+        POOLS.clear();
+    }
+}
@@ -1,16 +1,23 @@
 package model;
 
 public class Flashcard {
+    private final long id;          // 0 until the card is stored
     private final String topic;
     private final String question;
     private final String answer;
 
     public Flashcard(String topic, String question, String answer) {
+        this(0, topic, question, answer);
+    }
+
+    public Flashcard(long id, String topic, String question, String answer) {
+        this.id = id;
         this.topic = topic;
         this.question = question;
         this.answer = answer;
     }
 
+    public long getId()         { return id; }
     public String getTopic()    { return topic; }
     public String getQuestion() { return question; }
     public String getAnswer()   { return answer; }
@@ -1,18 +1,30 @@
 package model;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
 import java.sql.*;
 import java.util.*;
+import java.util.function.LongConsumer;
 
 public class FlashcardDAO {
-    private final String jdbcUrl;
+    private static final Logger LOG = LoggerFactory.getLogger(FlashcardDAO.class);
+    /** Rows per executeBatch() call in {@link #insertAll(Iterable)}. */
+    public static final int DEFAULT_BATCH_SIZE = 1_000;
+
+    private static final String INSERT_SQL =
+            "INSERT INTO flashcards(topic, question, answer) VALUES (?,?,?)";
 
-    public FlashcardDAO(String jdbcUrl) {
-        this.jdbcUrl = jdbcUrl; // Example: "jdbc:sqlite:studymate.db"
+    private final ConnectionProvider db;
+    private final IdSampler sampler = new IdSampler();
+
+    public FlashcardDAO(ConnectionProvider db) {
+        this.db = db; // Example: Database.pool("jdbc:sqlite:studymate.db")
     }
 
     /** Initialise the database (create table if not exists). */
     public void init() throws SQLException {
-        try (Connection conn = DriverManager.getConnection(jdbcUrl);
+        try (Connection conn = db.writer();
              Statement st = conn.createStatement()) {
             conn.setAutoCommit(true); // Ensure auto-commit is enabled
             st.executeUpdate("""
@@ -20,15 +32,45 @@ public class FlashcardDAO {
                     id INTEGER PRIMARY KEY AUTOINCREMENT,
                     topic TEXT,
                     question TEXT NOT NULL,
-                    answer  TEXT NOT NULL
+                    answer  TEXT NOT NULL,
+                    ease REAL NOT NULL DEFAULT 2.5,
+                    interval_days INTEGER NOT NULL DEFAULT 0,
+                    repetitions INTEGER NOT NULL DEFAULT 0,
+                    due INTEGER NOT NULL DEFAULT 0
                 )
             """);
+            addScheduleColumns(conn);
+            st.executeUpdate("CREATE INDEX IF NOT EXISTS idx_flashcards_topic ON flashcards(topic)");
+            st.executeUpdate("CREATE INDEX IF NOT EXISTS idx_flashcards_due ON flashcards(due, id)");
+        }
+    }
+
+    /** Older databases predate spaced repetition; add the scheduling columns in place. */
+    private static void addScheduleColumns(Connection conn) throws SQLException {
+        Set<String> columns = new HashSet<>();
+        try (Statement st = conn.createStatement();
+             ResultSet rs = st.executeQuery("PRAGMA table_info(flashcards)")) {
+            while (rs.next()) columns.add(rs.getString("name"));
+        }
+        try (Statement st = conn.createStatement()) {
+            if (!columns.contains("ease")) {
+                st.executeUpdate("ALTER TABLE flashcards ADD COLUMN ease REAL NOT NULL DEFAULT 2.5");
+            }
+            if (!columns.contains("interval_days")) {
+                st.executeUpdate("ALTER TABLE flashcards ADD COLUMN interval_days INTEGER NOT NULL DEFAULT 0");
+            }
+            if (!columns.contains("repetitions")) {
+                st.executeUpdate("ALTER TABLE flashcards ADD COLUMN repetitions INTEGER NOT NULL DEFAULT 0");
+            }
+            if (!columns.contains("due")) {
+                st.executeUpdate("ALTER TABLE flashcards ADD COLUMN due INTEGER NOT NULL DEFAULT 0");
+            }
         }
     }
 
     /** Get the total number of flashcards. */
     public int count() throws SQLException {
-        try (Connection conn = DriverManager.getConnection(jdbcUrl);
+        try (Connection conn = db.reader();
              Statement st = conn.createStatement();
              ResultSet rs = st.executeQuery("SELECT COUNT(*) FROM flashcards")) {
             return rs.next() ? rs.getInt(1) : 0;
@@ -40,24 +82,23 @@ public class FlashcardDAO {
         Connection conn = null;
         PreparedStatement ps = null;
         try {
-            conn = DriverManager.getConnection(jdbcUrl);
+            conn = db.writer();
             conn.setAutoCommit(false); // Start transaction
 
-            ps = conn.prepareStatement(
-                    "INSERT INTO flashcards(topic, question, answer) VALUES (?,?,?)");
+            ps = conn.prepareStatement(INSERT_SQL);
             ps.setString(1, card.getTopic());
             ps.setString(2, card.getQuestion());
             ps.setString(3, card.getAnswer());
             ps.executeUpdate();
 
             conn.commit(); // Explicitly commit the transaction
-            System.out.println("Flashcard inserted successfully: " + card.getQuestion());
+            LOG.debug("Flashcard inserted, topic {}", card.getTopic());
         } catch (SQLException e) {
             if (conn != null) {
                 try {
                     conn.rollback(); // Rollback on error
                 } catch (SQLException ex) {
-                    ex.printStackTrace();
+                    LOG.warn("Rollback failed", ex);
                 }
             }
             throw e; // Re-throw the exception
@@ -67,42 +108,193 @@ public class FlashcardDAO {
         }
     }
 
+    /** Insert many flashcards in one transaction. Returns the number inserted. */
+    public long insertAll(Iterable<Flashcard> cards) throws SQLException {
+        return insertAll(cards, DEFAULT_BATCH_SIZE, null);
+    }
+
+    /**
+     * Insert many flashcards using JDBC batching inside a single transaction.
+     * The source is consumed lazily, so it can stream from a file of any size.
+     * Either every card is stored or, on error, none are.
+     *
+     * @param batchSize rows sent per executeBatch() call
+     * @param progress  called with the running total after each batch (may be null)
+     */
+    public long insertAll(Iterable<Flashcard> cards, int batchSize, LongConsumer progress) throws SQLException {
+        if (batchSize < 1) throw new IllegalArgumentException("batchSize must be >= 1");
+        long inserted = 0;
+        try (Connection conn = db.writer()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement ps = conn.prepareStatement(INSERT_SQL)) {
+                int pending = 0;
+                for (Flashcard card : cards) {
+                    ps.setString(1, card.getTopic());
+                    ps.setString(2, card.getQuestion());
+                    ps.setString(3, card.getAnswer());
+                    ps.addBatch();
+                    if (++pending == batchSize) {
+                        ps.executeBatch();
+                        inserted += pending;
+                        pending = 0;
+                        if (progress != null) progress.accept(inserted);
+                    }
+                }
+                if (pending > 0) {
+                    ps.executeBatch();
+                    inserted += pending;
+                    if (progress != null) progress.accept(inserted);
+                }
+                conn.commit();
+            } catch (SQLException | RuntimeException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        }
+        return inserted;
+    }
+
     /**
      * Return a random flashcard.
      * If topic is provided, select randomly from that topic first.
+     *
+     * Picks from a cached id array instead of ORDER BY RANDOM(), so the cost
+     * does not depend on the deck size.
      */
     public Optional<Flashcard> random(String topic) throws SQLException {
-        String sql = (topic != null && !topic.isBlank())
-                ? "SELECT topic, question, answer FROM flashcards WHERE topic = ? ORDER BY RANDOM() LIMIT 1"
-                : "SELECT topic, question, answer FROM flashcards ORDER BY RANDOM() LIMIT 1";
-        try (Connection conn = DriverManager.getConnection(jdbcUrl);
-             PreparedStatement ps = conn.prepareStatement(sql)) {
-            if (topic != null && !topic.isBlank()) ps.setString(1, topic);
+        try (Connection conn = db.reader()) {
+            for (int attempt = 0; attempt < 2; attempt++) {
+                long id = sampler.pick(conn, topic);
+                if (id < 0) return Optional.empty();
+                try (PreparedStatement ps = conn.prepareStatement(
+                        "SELECT id, topic, question, answer FROM flashcards WHERE id = ?")) {
+                    ps.setLong(1, id);
+                    try (ResultSet rs = ps.executeQuery()) {
+                        if (rs.next()) return Optional.of(map(rs));
+                    }
+                }
+                sampler.invalidate(); // row removed behind our back; reload ids and retry
+            }
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Keyset pagination: up to {@code limit} cards with {@code afterId < id < beforeId},
+     * in id order. Pass the last id of the previous page as {@code afterId}
+     * and {@code Long.MAX_VALUE} as {@code beforeId} for an open-ended page.
+     * Each page is an index range scan, so the cost does not grow with the offset.
+     */
+    public List<Flashcard> page(long afterId, long beforeId, int limit) throws SQLException {
+        List<Flashcard> cards = new ArrayList<>(limit);
+        try (Connection conn = db.reader();
+             PreparedStatement ps = conn.prepareStatement(
+                     "SELECT id, topic, question, answer FROM flashcards WHERE id > ? AND id < ? ORDER BY id LIMIT ?")) {
+            ps.setLong(1, afterId);
+            ps.setLong(2, beforeId);
+            ps.setInt(3, limit);
             try (ResultSet rs = ps.executeQuery()) {
-                if (rs.next()) {
-                    return Optional.of(new Flashcard(
-                            rs.getString("topic"),
-                            rs.getString("question"),
-                            rs.getString("answer")));
+                while (rs.next()) cards.add(map(rs));
+            }
+        }
+        return cards;
+    }
+
+    /**
+     * Cards due at or before {@code now}, in (due, id) order, starting strictly after
+     * the (afterDue, afterId) position. Served by idx_flashcards_due, so a batch costs
+     * O(log n + limit) however large the deck is.
+     */
+    public List<ScheduledCard> due(long now, long afterDue, long afterId, int limit) throws SQLException {
+        List<ScheduledCard> cards = new ArrayList<>(limit);
+        // Two index seeks rather than one row-value comparison: SQLite only seeks on
+        // "due" for (due, id) > (?, ?), and every new card shares due = 0.
+        try (Connection conn = db.reader()) {
+            if (afterDue <= now) {
+                try (PreparedStatement ps = conn.prepareStatement(
+                        "SELECT id, topic, question, answer, ease, interval_days, repetitions, due FROM flashcards "
+                                + "WHERE due = ? AND id > ? ORDER BY id LIMIT ?")) {
+                    ps.setLong(1, afterDue);
+                    ps.setLong(2, afterId);
+                    ps.setInt(3, limit);
+                    readScheduled(ps, cards);
                 }
-                return Optional.empty();
             }
+            if (cards.size() < limit) {
+                try (PreparedStatement ps = conn.prepareStatement(
+                        "SELECT id, topic, question, answer, ease, interval_days, repetitions, due FROM flashcards "
+                                + "WHERE due > ? AND due <= ? ORDER BY due, id LIMIT ?")) {
+                    ps.setLong(1, afterDue);
+                    ps.setLong(2, now);
+                    ps.setInt(3, limit - cards.size());
+                    readScheduled(ps, cards);
+                }
+            }
+        }
+        return cards;
+    }
+
+    private static void readScheduled(PreparedStatement ps, List<ScheduledCard> out) throws SQLException {
+        try (ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+                out.add(new ScheduledCard(map(rs), new ReviewState(
+                        rs.getDouble("ease"),
+                        rs.getInt("interval_days"),
+                        rs.getInt("repetitions"),
+                        rs.getLong("due"))));
+            }
+        }
+    }
+
+    /** Stored scheduling state of one card; empty if it no longer exists. */
+    public Optional<ReviewState> state(long id) throws SQLException {
+        try (Connection conn = db.reader();
+             PreparedStatement ps = conn.prepareStatement(
+                     "SELECT ease, interval_days, repetitions, due FROM flashcards WHERE id = ?")) {
+            ps.setLong(1, id);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (!rs.next()) return Optional.empty();
+                return Optional.of(new ReviewState(
+                        rs.getDouble("ease"),
+                        rs.getInt("interval_days"),
+                        rs.getInt("repetitions"),
+                        rs.getLong("due")));
+            }
+        }
+    }
+
+    /** Store the outcome of a review. */
+    public void saveReview(long id, ReviewState state) throws SQLException {
+        try (Connection conn = db.writer();
+             PreparedStatement ps = conn.prepareStatement(
+                     "UPDATE flashcards SET ease = ?, interval_days = ?, repetitions = ?, due = ? WHERE id = ?")) {
+            ps.setDouble(1, state.getEase());
+            ps.setInt(2, state.getIntervalDays());
+            ps.setInt(3, state.getRepetitions());
+            ps.setLong(4, state.getDueAt());
+            ps.setLong(5, id);
+            ps.executeUpdate();
         }
     }
 
     /** Get all flashcards for debugging purposes. */
     public List<Flashcard> getAll() throws SQLException {
         List<Flashcard> cards = new ArrayList<>();
-        try (Connection conn = DriverManager.getConnection(jdbcUrl);
+        try (Connection conn = db.reader();
              Statement st = conn.createStatement();
-             ResultSet rs = st.executeQuery("SELECT topic, question, answer FROM flashcards")) {
-            while (rs.next()) {
-                cards.add(new Flashcard(
-                        rs.getString("topic"),
-                        rs.getString("question"),
-                        rs.getString("answer")));
-            }
+             ResultSet rs = st.executeQuery("SELECT id, topic, question, answer FROM flashcards")) {
+            while (rs.next()) cards.add(map(rs));
         }
         return cards;
     }
+
+    private static Flashcard map(ResultSet rs) throws SQLException {
+        return new Flashcard(
+                rs.getLong("id"),
+                rs.getString("topic"),
+                rs.getString("question"),
+                rs.getString("answer"));
+    }
 }
\ No newline at end of file
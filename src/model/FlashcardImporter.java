@@ -0,0 +1,267 @@
+package model;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.NoSuchElementException;
+import java.util.function.LongConsumer;
+
+/**
+ * Streams flashcards from CSV, TSV or JSON into {@link FlashcardDAO#insertAll}.
+ *
+ * Delimited files hold either {@code topic,question,answer} or {@code question,answer}
+ * per row, optionally with a header row naming the columns. Quoted fields may contain
+ * delimiters, doubled quotes and newlines. JSON is an array of objects with
+ * {@code topic}, {@code question} and {@code answer} properties.
+ *
+ * Rows are parsed lazily, so memory use does not grow with the file size.
+ */
+public class FlashcardImporter {
+
+    public enum Format {
+        CSV, TSV, JSON;
+
+        /** Guess the format from a file extension; defaults to CSV. */
+        public static Format fromFileName(String name) {
+            String n = name.toLowerCase(Locale.ROOT);
+            if (n.endsWith(".tsv") || n.endsWith(".tab")) return TSV;
+            if (n.endsWith(".json")) return JSON;
+            return CSV;
+        }
+    }
+
+    private final FlashcardDAO dao;
+    private int batchSize = FlashcardDAO.DEFAULT_BATCH_SIZE;
+    private LongConsumer progress;
+
+    public FlashcardImporter(FlashcardDAO dao) {
+        this.dao = dao;
+    }
+
+    public FlashcardImporter batchSize(int batchSize) {
+        this.batchSize = batchSize;
+        return this;
+    }
+
+    /** Called with the running total after each batch is written. */
+    public FlashcardImporter onProgress(LongConsumer progress) {
+        this.progress = progress;
+        return this;
+    }
+
+    /** Import a file, picking the format from its extension. */
+    public long importFile(Path file) throws IOException, SQLException {
+        try (Reader r = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            return importFrom(r, Format.fromFileName(file.getFileName().toString()));
+        }
+    }
+
+    /**
+     * Import everything from the reader in one transaction.
+     * @return number of cards inserted
+     * @throws IllegalArgumentException if a row is malformed (nothing is inserted)
+     */
+    public long importFrom(Reader reader, Format format) throws IOException, SQLException {
+        try {
+            return dao.insertAll(parse(reader, format), batchSize, progress);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /** Lazily parse cards; I/O errors surface as UncheckedIOException while iterating. */
+    public static Iterable<Flashcard> parse(Reader reader, Format format) {
+        return switch (format) {
+            case CSV -> () -> new DelimitedIterator(reader, ',');
+            case TSV -> () -> new DelimitedIterator(reader, '\t');
+            case JSON -> () -> new JsonIterator(reader);
+        };
+    }
+
+    /* ---------- CSV / TSV ---------- */
+
+    private static final class DelimitedIterator implements Iterator<Flashcard> {
+        private final BufferedReader in;
+        private final char delim;
+        private int topicCol = -1, questionCol, answerCol;
+        private boolean headerChecked;
+        private long line;
+        private Flashcard next;
+
+        DelimitedIterator(Reader reader, char delim) {
+            this.in = reader instanceof BufferedReader b ? b : new BufferedReader(reader, 1 << 16);
+            this.delim = delim;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (next == null) next = advance();
+            return next != null;
+        }
+
+        @Override
+        public Flashcard next() {
+            if (!hasNext()) throw new NoSuchElementException();
+            Flashcard c = next;
+            next = null;
+            return c;
+        }
+
+        private Flashcard advance() {
+            List<String> row;
+            while ((row = readRecord()) != null) {
+                if (row.size() == 1 && row.get(0).isBlank()) continue; // blank line
+                if (!headerChecked) {
+                    headerChecked = true;
+                    if (applyHeader(row)) continue;
+                    applyPositional(row.size());
+                }
+                int needed = Math.max(topicCol, Math.max(questionCol, answerCol));
+                if (row.size() <= needed) {
+                    throw new IllegalArgumentException("Line " + line + ": expected "
+                            + (needed + 1) + " columns but found " + row.size());
+                }
+                String topic = topicCol >= 0 ? row.get(topicCol).trim() : "";
+                return new Flashcard(topic, row.get(questionCol).trim(), row.get(answerCol).trim());
+            }
+            return null;
+        }
+
+        private boolean applyHeader(List<String> row) {
+            int t = -1, q = -1, a = -1;
+            for (int i = 0; i < row.size(); i++) {
+                switch (row.get(i).trim().toLowerCase(Locale.ROOT)) {
+                    case "topic" -> t = i;
+                    case "question" -> q = i;
+                    case "answer" -> a = i;
+                    default -> { }
+                }
+            }
+            if (q < 0 || a < 0) return false;
+            topicCol = t; questionCol = q; answerCol = a;
+            return true;
+        }
+
+        private void applyPositional(int columns) {
+            if (columns >= 3) { topicCol = 0; questionCol = 1; answerCol = 2; }
+            else { topicCol = -1; questionCol = 0; answerCol = 1; }
+        }
+
+        /** One record, honouring quoted fields that span lines; null at EOF. */
+        private List<String> readRecord() {
+            try {
+                String first = in.readLine();
+                if (first == null) return null;
+                // Excel and Notepad start UTF-8 files with a byte order mark; it would hide the header.
+                if (line++ == 0 && first.startsWith("\uFEFF")) first = first.substring(1);
+                List<String> fields = new ArrayList<>(3);
+                StringBuilder field = new StringBuilder();
+                String cur = first;
+                int i = 0;
+                boolean quoted = false;
+                while (true) {
+                    if (i >= cur.length()) {
+                        if (!quoted) break;
+                        String more = in.readLine();
+                        if (more == null) throw new IllegalArgumentException("Line " + line + ": unterminated quote");
+                        line++;
+                        field.append('\n');
+                        cur = more;
+                        i = 0;
+                        continue;
+                    }
+                    char ch = cur.charAt(i++);
+                    if (quoted) {
+                        if (ch == '"') {
+                            if (i < cur.length() && cur.charAt(i) == '"') { field.append('"'); i++; }
+                            else quoted = false;
+                        } else {
+                            field.append(ch);
+                        }
+                    } else if (ch == '"' && field.isEmpty()) {
+                        quoted = true;
+                    } else if (ch == delim) {
+                        fields.add(field.toString());
+                        field.setLength(0);
+                    } else {
+                        field.append(ch);
+                    }
+                }
+                fields.add(field.toString());
+                return fields;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    /* ---------- JSON ---------- */
+
+    private static final class JsonIterator implements Iterator<Flashcard> {
+        private final JsonReader json;
+        private boolean started;
+        private int index;
+
+        JsonIterator(Reader reader) {
+            this.json = new JsonReader(reader);
+        }
+
+        @Override
+        public boolean hasNext() {
+            try {
+                if (!started) {
+                    started = true;
+                    json.beginArray();
+                }
+                if (json.hasNext()) return true;
+                if (json.peek() == JsonToken.END_ARRAY) json.endArray();
+                return false;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            } catch (IllegalStateException e) {
+                throw new IllegalArgumentException("Expected a JSON array of flashcards", e);
+            }
+        }
+
+        @Override
+        public Flashcard next() {
+            if (!hasNext()) throw new NoSuchElementException();
+            index++;
+            String topic = "", question = null, answer = null;
+            try {
+                json.beginObject();
+                while (json.hasNext()) {
+                    String name = json.nextName();
+                    if (json.peek() == JsonToken.NULL) { json.nextNull(); continue; }
+                    switch (name) {
+                        case "topic" -> topic = json.nextString();
+                        case "question" -> question = json.nextString();
+                        case "answer" -> answer = json.nextString();
+                        default -> json.skipValue();
+                    }
+                }
+                json.endObject();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            } catch (IllegalStateException e) {
+                throw new IllegalArgumentException("Card " + index + ": " + e.getMessage(), e);
+            }
+            if (question == null || answer == null) {
+                throw new IllegalArgumentException("Card " + index + ": question and answer are required");
+            }
+            return new Flashcard(topic.trim(), question.trim(), answer.trim());
+        }
+    }
+}
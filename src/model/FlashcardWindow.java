@@ -0,0 +1,211 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * A sliding window over the flashcard deck for browsing with Prev/Next.
+ *
+ * Cards are fetched a page at a time with {@link FlashcardDAO#page} on a background
+ * thread. {@link #start} walks the deck in id order; {@link #shuffle} starts from a
+ * random card, wraps around the deck once and shuffles each page. The next page is
+ * prefetched while the user is still on the current one, and cards far behind the
+ * cursor are dropped, so memory stays flat however large the deck is. The deck size
+ * is counted after the first page is shown.
+ *
+ * All methods except the constructor must be called on the {@code uiExecutor}
+ * thread (the FX thread in the app); results are posted back there.
+ */
+public class FlashcardWindow {
+    public static final int DEFAULT_PAGE_SIZE = 50;
+    public static final int DEFAULT_MAX_RETAINED = 200;
+
+    private static final ExecutorService LOADER = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "flashcard-window-loader");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private final FlashcardDAO dao;
+    private final int pageSize;
+    private final int maxRetained;
+    private final Executor uiExecutor;
+
+    private final List<Flashcard> buffer = new ArrayList<>();
+    private int base;            // absolute position of buffer.get(0)
+    private int pos;             // absolute position of the current card
+    private long startId;        // first card shown; the walk stops just before it
+    private long cursorId;       // last id fetched
+    private boolean wrapped;     // past the end of the table, now reading ids < startId
+    private boolean exhausted;   // every card has been fetched
+    private boolean shuffled;    // random start, pages shuffled
+    private boolean loading;
+    private int total = -1;
+    private Exception lastError;
+    private int generation;      // bumped by start() so late pages from an old walk are ignored
+    private Runnable onChange;
+
+    public FlashcardWindow(FlashcardDAO dao, Executor uiExecutor) {
+        this(dao, DEFAULT_PAGE_SIZE, DEFAULT_MAX_RETAINED, uiExecutor);
+    }
+
+    public FlashcardWindow(FlashcardDAO dao, int pageSize, int maxRetained, Executor uiExecutor) {
+        this.dao = dao;
+        this.pageSize = pageSize;
+        this.maxRetained = Math.max(maxRetained, pageSize);
+        this.uiExecutor = uiExecutor;
+    }
+
+    /** Called (on the UI thread) whenever cards arrive or the total becomes known. */
+    public void setOnChange(Runnable onChange) { this.onChange = onChange; }
+
+    /** Reset and load the first page in id order, then the deck size, in the background. */
+    public void start() {
+        begin(false);
+    }
+
+    /**
+     * Reset and load a page from a random card onwards, in shuffled order. Only
+     * this needs the DAO's id sampler, which reads every card id on first use.
+     */
+    public void shuffle() {
+        begin(true);
+    }
+
+    private void begin(boolean shuffle) {
+        buffer.clear();
+        base = 0; pos = 0;
+        wrapped = false; exhausted = false; loading = true;
+        shuffled = shuffle;
+        total = -1;
+        int gen = ++generation;
+        LOADER.execute(() -> {
+            try {
+                long first = 1;
+                if (shuffle) first = dao.random(null).map(Flashcard::getId).orElse(1L);
+                List<Flashcard> page = dao.page(first - 1, Long.MAX_VALUE, pageSize);
+                long start = first;
+                uiExecutor.execute(() -> {
+                    if (gen != generation) return;
+                    startId = start;
+                    cursorId = start - 1;
+                    accept(gen, page, null);
+                });
+            } catch (Exception e) {
+                uiExecutor.execute(() -> accept(gen, List.of(), e));
+                return;
+            }
+            countDeck(gen);
+        });
+    }
+
+    /** COUNT(*) scans the table, so it runs after the first page rather than before it. */
+    private void countDeck(int gen) {
+        try {
+            int n = dao.count();
+            uiExecutor.execute(() -> {
+                if (gen != generation) return;
+                total = n;
+                if (onChange != null) onChange.run();
+            });
+        } catch (Exception e) {
+            uiExecutor.execute(() -> {
+                if (gen == generation) lastError = e;
+            });
+        }
+    }
+
+    /** Deck size, or -1 while it is still being counted. */
+    public int total() { return total; }
+
+    public boolean isLoading() { return loading && buffer.isEmpty(); }
+    public boolean isEmpty() { return !loading && buffer.isEmpty(); }
+
+    /** Zero-based position of the current card within this browsing session. */
+    public int position() { return pos; }
+
+    public Flashcard current() {
+        int i = pos - base;
+        return (i >= 0 && i < buffer.size()) ? buffer.get(i) : null;
+    }
+
+    public boolean hasPrev() { return pos > base; }
+    public boolean hasNext() { return pos - base + 1 < buffer.size(); }
+
+    /** True while more cards are still to be fetched after the buffered ones. */
+    public boolean hasMore() { return !exhausted; }
+
+    public Flashcard prev() {
+        if (hasPrev()) pos--;
+        return current();
+    }
+
+    public Flashcard next() {
+        if (hasNext()) pos++;
+        trimBehind();
+        prefetchIfLow();
+        return current();
+    }
+
+    /** The error from the last failed load, if any. */
+    public Exception lastError() { return lastError; }
+
+    /* ---------- loading ---------- */
+
+    private void prefetchIfLow() {
+        int ahead = buffer.size() - (pos - base) - 1;
+        if (loading || exhausted || ahead > pageSize / 2) return;
+        loading = true;
+        long after = cursorId;
+        long before = wrapped ? startId : Long.MAX_VALUE;
+        int gen = generation;
+        LOADER.execute(() -> {
+            try {
+                List<Flashcard> page = dao.page(after, before, pageSize);
+                uiExecutor.execute(() -> accept(gen, page, null));
+            } catch (Exception e) {
+                uiExecutor.execute(() -> accept(gen, List.of(), e));
+            }
+        });
+    }
+
+    private void accept(int gen, List<Flashcard> page, Exception error) {
+        if (gen != generation) return;
+        loading = false;
+        lastError = error;
+        if (error == null) {
+            if (!page.isEmpty()) {
+                cursorId = page.get(page.size() - 1).getId();
+                if (shuffled) {
+                    List<Flashcard> mixed = new ArrayList<>(page);
+                    Collections.shuffle(mixed);
+                    buffer.addAll(mixed);
+                } else {
+                    buffer.addAll(page);
+                }
+            }
+            if (page.size() < pageSize) {
+                if (!wrapped && startId > 1) {
+                    wrapped = true;   // continue from the start of the table up to startId
+                    cursorId = 0;
+                } else {
+                    exhausted = true;
+                }
+            }
+        }
+        if (onChange != null) onChange.run();
+        if (error == null) prefetchIfLow();
+    }
+
+    private void trimBehind() {
+        int behind = pos - base;
+        int excess = behind - maxRetained;
+        if (excess <= 0) return;
+        buffer.subList(0, excess).clear();
+        base += excess;
+    }
+}
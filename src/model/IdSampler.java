@@ -0,0 +1,108 @@
+package model;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * In-memory arrays of flashcard ids, one per topic (plus one for the whole deck),
+ * so a random card is an O(1) array pick followed by a primary-key lookup.
+ *
+ * Each array is loaded once, then kept current by fetching only the rows whose
+ * id is above the highest id already seen. That also picks up cards inserted
+ * through another DAO on the same database. A refresh also checks the array
+ * against COUNT(*) and reloads it if rows went missing, as it does when MAX(id)
+ * drops; a deletion between refreshes is caught by the caller, which calls
+ * {@link #invalidate()} when a picked id has vanished. At most
+ * {@value #MAX_TOPICS} arrays are kept, least recently picked evicted first.
+ */
+class IdSampler {
+    private static final String ALL = "\u0000all";
+    private static final int MAX_TOPICS = 64;
+
+    private final Map<String, Ids> byTopic = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Ids> eldest) {
+            return size() > MAX_TOPICS;
+        }
+    };
+
+    /** Pick a random id for the topic (null/blank = whole deck), or -1 if there are none. */
+    synchronized long pick(Connection conn, String topic) throws SQLException {
+        String key = (topic == null || topic.isBlank()) ? ALL : topic;
+        String filter = key == ALL ? null : key;
+        Ids ids = byTopic.computeIfAbsent(key, k -> new Ids());
+        long maxId = maxId(conn);
+        if (maxId != ids.lastSeen) {
+            if (maxId > ids.lastSeen) ids.loadAfter(conn, filter, maxId);
+            if (maxId < ids.lastSeen || ids.size != count(conn, filter, maxId)) {
+                // rows were deleted since the last load; the array holds stale ids
+                ids = new Ids();
+                ids.loadAfter(conn, filter, maxId);
+                byTopic.put(key, ids);
+            }
+        }
+        if (ids.size == 0) return -1;
+        return ids.values[ThreadLocalRandom.current().nextInt(ids.size)];
+    }
+
+    /** Drop every cached array; they are reloaded on the next pick. */
+    synchronized void invalidate() {
+        byTopic.clear();
+    }
+
+    private static long maxId(Connection conn) throws SQLException {
+        try (Statement st = conn.createStatement();
+             ResultSet rs = st.executeQuery("SELECT MAX(id) FROM flashcards")) {
+            return rs.next() ? rs.getLong(1) : 0;
+        }
+    }
+
+    private static long count(Connection conn, String topic, long upTo) throws SQLException {
+        String sql = topic == null
+                ? "SELECT COUNT(*) FROM flashcards WHERE id <= ?"
+                : "SELECT COUNT(*) FROM flashcards WHERE topic = ? AND id <= ?";
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            int i = 1;
+            if (topic != null) ps.setString(i++, topic);
+            ps.setLong(i, upTo);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? rs.getLong(1) : 0;
+            }
+        }
+    }
+
+    /** Growable primitive array of ids plus the high-water mark it covers. */
+    private static final class Ids {
+        long[] values = new long[16];
+        int size;
+        long lastSeen;
+
+        void loadAfter(Connection conn, String topic, long upTo) throws SQLException {
+            String sql = topic == null
+                    ? "SELECT id FROM flashcards WHERE id > ? AND id <= ?"
+                    : "SELECT id FROM flashcards WHERE topic = ? AND id > ? AND id <= ?";
+            try (PreparedStatement ps = conn.prepareStatement(sql)) {
+                int i = 1;
+                if (topic != null) ps.setString(i++, topic);
+                ps.setLong(i++, lastSeen);
+                ps.setLong(i, upTo);
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) add(rs.getLong(1));
+                }
+            }
+            lastSeen = upTo;
+        }
+
+        private void add(long id) {
+            if (size == values.length) values = Arrays.copyOf(values, size * 2);
+            values[size++] = id;
+        }
+    }
+}
@@ -0,0 +1,306 @@
+package model;
+
+import com.sun.management.GarbageCollectionNotificationInfo;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.management.NotificationEmitter;
+import javax.management.openmbean.CompositeData;
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.DoubleSupplier;
+
+/**
+ * Process-wide metrics: counters, gauges and latency timers, looked up by a
+ * dotted name such as {@code db.reader.hold}.
+ *
+ * Recording never locks or allocates, so hot paths (every connection lease,
+ * every FX pulse) record unconditionally. Look a metric up once and keep it in
+ * a static field; the registry lookup is only for wiring.
+ *
+ * {@link #dump(Path)} writes everything as {@code metrics.json} and in
+ * Prometheus text format as {@code metrics.prom}.
+ */
+public final class Metrics {
+    private static final Logger LOG = LoggerFactory.getLogger(Metrics.class);
+    private static final Map<String, Counter> COUNTERS = new ConcurrentHashMap<>();
+    private static final Map<String, DoubleSupplier> GAUGES = new ConcurrentHashMap<>();
+    private static final Map<String, Timer> TIMERS = new ConcurrentHashMap<>();
+    private static final long STARTED = System.nanoTime();
+    private static final AtomicBoolean JVM_INSTALLED = new AtomicBoolean();
+
+    private Metrics() {}
+
+    /** A count that only goes up. */
+    public static final class Counter {
+        private final LongAdder value = new LongAdder();
+
+        public void inc() {
+            value.increment();
+        }
+
+        public void add(long n) {
+            value.add(n);
+        }
+
+        public long get() {
+            return value.sum();
+        }
+    }
+
+    /**
+     * Latency histogram in microseconds, with the same log-linear buckets as
+     * {@code ui.LatencyHistogram} (exact below 64 us, then about 3%), but safe
+     * to record into from any number of threads.
+     */
+    public static final class Timer {
+        private static final int SUB_BUCKETS = 64;
+        private static final int HALF = SUB_BUCKETS / 2;
+        private static final int MAX_SHIFT = 31;
+
+        private final AtomicLongArray counts = new AtomicLongArray(SUB_BUCKETS + MAX_SHIFT * HALF);
+        private final LongAdder count = new LongAdder();
+        private final LongAdder sum = new LongAdder();
+        private final AtomicLong max = new AtomicLong();
+
+        public void record(long micros) {
+            if (micros < 0) micros = 0;
+            counts.incrementAndGet(indexOf(micros));
+            count.increment();
+            sum.add(micros);
+            long m = max.get();
+            while (micros > m && !max.compareAndSet(m, micros)) m = max.get();
+        }
+
+        /** Record the time since {@code startNanos}, a {@link System#nanoTime()} reading. */
+        public void recordSince(long startNanos) {
+            record((System.nanoTime() - startNanos) / 1_000);
+        }
+
+        /** Counts and percentiles as of now; recording may continue meanwhile. */
+        public Snapshot snapshot() {
+            long[] c = new long[counts.length()];
+            long total = 0;
+            for (int i = 0; i < c.length; i++) total += c[i] = counts.get(i);
+            long mx = max.get();
+            return new Snapshot(total, sum.sum(), mx,
+                    percentile(c, total, mx, 50), percentile(c, total, mx, 90), percentile(c, total, mx, 99));
+        }
+
+        private static long percentile(long[] c, long total, long max, double p) {
+            if (total == 0) return 0;
+            long rank = Math.max(1, (long) Math.ceil(p / 100.0 * total));
+            long seen = 0;
+            for (int i = 0; i < c.length; i++) {
+                seen += c[i];
+                if (seen >= rank) return Math.min(max, highestValueAt(i));
+            }
+            return max;
+        }
+
+        private static int indexOf(long v) {
+            if (v < SUB_BUCKETS) return (int) v;
+            int shift = 63 - Long.numberOfLeadingZeros(v) - 5;
+            if (shift > MAX_SHIFT) return SUB_BUCKETS + MAX_SHIFT * HALF - 1;
+            int mantissa = (int) (v >>> shift);
+            return SUB_BUCKETS + (shift - 1) * HALF + (mantissa - HALF);
+        }
+
+        private static long highestValueAt(int index) {
+            if (index < SUB_BUCKETS) return index;
+            int shift = (index - SUB_BUCKETS) / HALF + 1;
+            long mantissa = (index - SUB_BUCKETS) % HALF + HALF;
+            return ((mantissa + 1) << shift) - 1;
+        }
+    }
+
+    /** A timer's state at one moment; all values in microseconds. */
+    public record Snapshot(long count, long sumMicros, long maxMicros, long p50Micros, long p90Micros, long p99Micros) {
+        public double meanMicros() {
+            return count == 0 ? 0 : (double) sumMicros / count;
+        }
+    }
+
+    public static Counter counter(String name) {
+        return COUNTERS.computeIfAbsent(name, n -> new Counter());
+    }
+
+    public static Timer timer(String name) {
+        return TIMERS.computeIfAbsent(name, n -> new Timer());
+    }
+
+    /** Report {@code value} under {@code name}, replacing any earlier gauge of that name. */
+    public static void gauge(String name, DoubleSupplier value) {
+        GAUGES.put(name, value);
+    }
+
+    /** Current counter values, by name. */
+    public static Map<String, Long> counters() {
+        Map<String, Long> out = new TreeMap<>();
+        COUNTERS.forEach((name, c) -> out.put(name, c.get()));
+        return out;
+    }
+
+    /** Current gauge readings, by name; a gauge that throws reads as NaN. */
+    public static Map<String, Double> gauges() {
+        Map<String, Double> out = new TreeMap<>();
+        GAUGES.forEach((name, g) -> {
+            double v;
+            try {
+                v = g.getAsDouble();
+            } catch (RuntimeException e) {
+                v = Double.NaN;
+            }
+            out.put(name, v);
+        });
+        return out;
+    }
+
+    public static Map<String, Snapshot> timers() {
+        Map<String, Snapshot> out = new TreeMap<>();
+        TIMERS.forEach((name, t) -> out.put(name, t.snapshot()));
+        return out;
+    }
+
+    public static double uptimeSeconds() {
+        return (System.nanoTime() - STARTED) / 1e9;
+    }
+
+    // ===== JVM =====
+
+    /**
+     * Heap and thread gauges, plus a {@code gc.pause} timer fed by GC
+     * notifications. Concurrent collector cycles are not pauses and are left
+     * out. Safe to call more than once.
+     */
+    public static void installJvmMetrics() {
+        if (!JVM_INSTALLED.compareAndSet(false, true)) return;
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        gauge("jvm.heap.used_mb", () -> memory.getHeapMemoryUsage().getUsed() / 1048576.0);
+        gauge("jvm.heap.committed_mb", () -> memory.getHeapMemoryUsage().getCommitted() / 1048576.0);
+        gauge("jvm.threads", () -> ManagementFactory.getThreadMXBean().getThreadCount());
+
+        Timer pauses = timer("gc.pause");
+        Counter collections = counter("gc.collections");
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            if (!(gc instanceof NotificationEmitter emitter)) continue;
+            emitter.addNotificationListener((notification, handback) -> {
+                if (!GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION.equals(notification.getType())) return;
+                GarbageCollectionNotificationInfo info =
+                        GarbageCollectionNotificationInfo.from((CompositeData) notification.getUserData());
+                String name = info.getGcName();
+                if (name.contains("Concurrent") || name.contains("Cycles")) return;
+                collections.inc();
+                pauses.record(info.getGcInfo().getDuration() * 1_000);
+            }, null, null);
+        }
+    }
+
+    // ===== Dumps =====
+
+    /** Write {@code metrics.json} and {@code metrics.prom} into {@code dir}, each replaced atomically. */
+    public static void dump(Path dir) throws IOException {
+        Files.createDirectories(dir);
+        write(dir.resolve("metrics.json"), toJson());
+        write(dir.resolve("metrics.prom"), toPrometheus());
+    }
+
+    /** {@link #dump} every {@code period} on a daemon thread, until the JVM exits. */
+    public static void startDumping(Path dir, Duration period) {
+        ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "metrics-dump");
+            t.setDaemon(true);
+            return t;
+        });
+        timer.scheduleAtFixedRate(() -> {
+            try {
+                dump(dir);
+            } catch (IOException e) {
+                LOG.warn("Could not write metrics: {}", e.getMessage());
+            }
+        }, period.toMillis(), period.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    public static String toJson() {
+        StringBuilder sb = new StringBuilder("{\n");
+        sb.append(String.format(Locale.ROOT, "  \"uptimeSeconds\": %.1f,%n", uptimeSeconds()));
+        sb.append("  \"counters\": {");
+        String sep = "\n";
+        for (Map.Entry<String, Long> e : counters().entrySet()) {
+            sb.append(sep).append("    \"").append(e.getKey()).append("\": ").append(e.getValue());
+            sep = ",\n";
+        }
+        sb.append("\n  },\n  \"gauges\": {");
+        sep = "\n";
+        for (Map.Entry<String, Double> e : gauges().entrySet()) {
+            double v = e.getValue();
+            sb.append(sep).append("    \"").append(e.getKey()).append("\": ")
+                    .append(Double.isFinite(v) ? String.format(Locale.ROOT, "%.3f", v) : "null");
+            sep = ",\n";
+        }
+        sb.append("\n  },\n  \"timers\": {");
+        sep = "\n";
+        for (Map.Entry<String, Snapshot> e : timers().entrySet()) {
+            Snapshot s = e.getValue();
+            sb.append(sep).append("    \"").append(e.getKey()).append("\": ").append(String.format(Locale.ROOT,
+                    "{\"count\": %d, \"meanUs\": %.1f, \"p50Us\": %d, \"p90Us\": %d, \"p99Us\": %d, \"maxUs\": %d}",
+                    s.count(), s.meanMicros(), s.p50Micros(), s.p90Micros(), s.p99Micros(), s.maxMicros()));
+            sep = ",\n";
+        }
+        return sb.append("\n  }\n}\n").toString();
+    }
+
+    /** Counters as {@code _total}, gauges as-is, timers as summaries in seconds. */
+    public static String toPrometheus() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("# TYPE studymate_uptime_seconds gauge\n")
+                .append(String.format(Locale.ROOT, "studymate_uptime_seconds %.1f%n", uptimeSeconds()));
+        counters().forEach((name, v) -> {
+            String n = promName(name) + "_total";
+            sb.append("# TYPE ").append(n).append(" counter\n").append(n).append(' ').append(v).append('\n');
+        });
+        gauges().forEach((name, v) -> {
+            String n = promName(name);
+            sb.append("# TYPE ").append(n).append(" gauge\n").append(n).append(' ')
+                    .append(Double.isFinite(v) ? String.format(Locale.ROOT, "%.3f", v) : "NaN").append('\n');
+        });
+        timers().forEach((name, s) -> {
+            String n = promName(name) + "_seconds";
+            sb.append("# TYPE ").append(n).append(" summary\n");
+            sb.append(String.format(Locale.ROOT, "%s{quantile=\"0.5\"} %.6f%n", n, s.p50Micros() / 1e6));
+            sb.append(String.format(Locale.ROOT, "%s{quantile=\"0.9\"} %.6f%n", n, s.p90Micros() / 1e6));
+            sb.append(String.format(Locale.ROOT, "%s{quantile=\"0.99\"} %.6f%n", n, s.p99Micros() / 1e6));
+            sb.append(String.format(Locale.ROOT, "%s_sum %.6f%n", n, s.sumMicros() / 1e6));
+            sb.append(n).append("_count ").append(s.count()).append('\n');
+        });
+        return sb.toString();
+    }
+
+    private static String promName(String name) {
+        return "studymate_" + name.replaceAll("[^A-Za-z0-9_]", "_");
+    }
+
+    private static void write(Path file, String text) throws IOException {
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        Files.writeString(tmp, text, StandardCharsets.UTF_8);
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
@@ -0,0 +1,119 @@
+package model;
+
+import java.sql.*;
+import java.util.Optional;
+
+/**
+ * On-disk tier of the AI response cache: one row per prompt hash.
+ * Rows older than the TTL are ignored and purged; the total size is kept
+ * under a cap by evicting the least recently used rows.
+ */
+public class ResponseCacheDAO {
+    private final ConnectionProvider db;
+
+    /** A stored reply and when it was first cached (epoch millis). */
+    public record Cached(String response, long createdAt) {}
+
+    public ResponseCacheDAO(ConnectionProvider db) {
+        this.db = db;
+    }
+
+    /** Create the table if it does not exist. */
+    public void init() throws SQLException {
+        try (Connection conn = db.writer(); Statement st = conn.createStatement()) {
+            st.executeUpdate("""
+                CREATE TABLE IF NOT EXISTS ai_cache (
+                    key TEXT PRIMARY KEY,
+                    model TEXT NOT NULL,
+                    response TEXT NOT NULL,
+                    size INTEGER NOT NULL,
+                    created_at INTEGER NOT NULL,
+                    last_access INTEGER NOT NULL
+                )
+            """);
+            st.executeUpdate("CREATE INDEX IF NOT EXISTS idx_ai_cache_access ON ai_cache(last_access)");
+        }
+    }
+
+    /** The cached response if present and created after {@code notBefore} (epoch millis). */
+    public Optional<Cached> get(String key, long notBefore, long now) throws SQLException {
+        Cached found = null;
+        try (Connection conn = db.reader();
+             PreparedStatement ps = conn.prepareStatement(
+                     "SELECT response, created_at FROM ai_cache WHERE key = ? AND created_at >= ?")) {
+            ps.setString(1, key);
+            ps.setLong(2, notBefore);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (rs.next()) found = new Cached(rs.getString(1), rs.getLong(2));
+            }
+        }
+        if (found == null) return Optional.empty();
+        try (Connection conn = db.writer();
+             PreparedStatement ps = conn.prepareStatement("UPDATE ai_cache SET last_access = ? WHERE key = ?")) {
+            ps.setLong(1, now);
+            ps.setString(2, key);
+            ps.executeUpdate();
+        }
+        return Optional.of(found);
+    }
+
+    /**
+     * Store a response, then drop expired rows and, if the table is over
+     * {@code maxBytes}, the least recently used rows until it fits.
+     */
+    public void put(String key, String model, String response, long now, long notBefore, long maxBytes)
+            throws SQLException {
+        try (Connection conn = db.writer()) {
+            conn.setAutoCommit(false);
+            try {
+                try (PreparedStatement ps = conn.prepareStatement(
+                        "INSERT OR REPLACE INTO ai_cache(key, model, response, size, created_at, last_access) "
+                                + "VALUES (?,?,?,?,?,?)")) {
+                    ps.setString(1, key);
+                    ps.setString(2, model);
+                    ps.setString(3, response);
+                    ps.setLong(4, response.length() * 2L);
+                    ps.setLong(5, now);
+                    ps.setLong(6, now);
+                    ps.executeUpdate();
+                }
+                try (PreparedStatement ps = conn.prepareStatement("DELETE FROM ai_cache WHERE created_at < ?")) {
+                    ps.setLong(1, notBefore);
+                    ps.executeUpdate();
+                }
+                long total;
+                try (Statement st = conn.createStatement();
+                     ResultSet rs = st.executeQuery("SELECT COALESCE(SUM(size), 0) FROM ai_cache")) {
+                    total = rs.next() ? rs.getLong(1) : 0;
+                }
+                if (total > maxBytes) evict(conn, total - maxBytes);
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        }
+    }
+
+    /** Delete least recently used rows until at least {@code bytes} are freed. */
+    private static void evict(Connection conn, long bytes) throws SQLException {
+        long freed = 0;
+        try (PreparedStatement sel = conn.prepareStatement(
+                     "SELECT key, size FROM ai_cache ORDER BY last_access LIMIT 64");
+             PreparedStatement del = conn.prepareStatement("DELETE FROM ai_cache WHERE key = ?")) {
+            while (freed < bytes) {
+                int deleted = 0;
+                try (ResultSet rs = sel.executeQuery()) {
+                    while (rs.next() && freed < bytes) {
+                        del.setString(1, rs.getString(1));
+                        del.addBatch();
+                        freed += rs.getLong(2);
+                        deleted++;
+                    }
+                }
+                if (deleted == 0) return;
+                del.executeBatch();
+            }
+        }
+    }
+}
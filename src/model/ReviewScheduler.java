@@ -0,0 +1,107 @@
+package model;
+
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.LongSupplier;
+
+/**
+ * SM-2 spaced-repetition scheduler over the flashcards table.
+ *
+ * Due cards are pulled from the (due, id) index in batches into an in-memory
+ * queue, already in due order, so {@link #nextDue()} is an O(1) poll and only
+ * touches the database once per batch. Review outcomes go through
+ * {@link #review(Flashcard, int)} and are written straight back.
+ *
+ * Thread-safe; intended to be shared by a view and its background worker.
+ */
+public class ReviewScheduler {
+    public static final int DEFAULT_BATCH_SIZE = 256;
+
+    private final FlashcardDAO dao;
+    private final int batchSize;
+    private final LongSupplier clock;
+
+    private final ArrayDeque<ScheduledCard> queue = new ArrayDeque<>();
+    private final Map<Long, ReviewState> outstanding = new HashMap<>();  // handed out this pass, not yet reviewed
+    private long cursorDue = Long.MIN_VALUE;
+    private long cursorId = Long.MIN_VALUE;
+
+    public ReviewScheduler(FlashcardDAO dao) {
+        this(dao, DEFAULT_BATCH_SIZE, System::currentTimeMillis);
+    }
+
+    public ReviewScheduler(FlashcardDAO dao, int batchSize, LongSupplier clock) {
+        this.dao = dao;
+        this.batchSize = batchSize;
+        this.clock = clock;
+    }
+
+    /** The most overdue card, or empty when nothing is due right now. */
+    public synchronized Optional<Flashcard> nextDue() throws SQLException {
+        if (queue.isEmpty()) refill();
+        ScheduledCard next = queue.poll();
+        if (next == null) return Optional.empty();
+        outstanding.put(next.getCard().getId(), next.getState());
+        return Optional.of(next.getCard());
+    }
+
+    /**
+     * Record how well the card was recalled and reschedule it.
+     * @param quality 0..5 as in SM-2; use {@link #quality(boolean)} for a plain right/wrong
+     * @return the new state that was saved
+     */
+    public ReviewState review(Flashcard card, int quality) throws SQLException {
+        ReviewState before;
+        synchronized (this) {
+            before = outstanding.remove(card.getId());
+        }
+        if (before == null) {
+            // Reviewed outside the queue, e.g. while browsing: continue from the stored history.
+            before = dao.state(card.getId()).orElseGet(ReviewState::initial);
+        }
+        ReviewState after = before.next(quality, clock.getAsLong());
+        dao.saveReview(card.getId(), after);
+        return after;
+    }
+
+    /** SM-2 quality for a right/wrong answer typed into the flashcard view. */
+    public static int quality(boolean correct) {
+        return correct ? 4 : 1;
+    }
+
+    /** Drop the queued cards so the next call reads fresh state from the database. */
+    public synchronized void reset() {
+        queue.clear();
+        outstanding.clear();
+        cursorDue = Long.MIN_VALUE;
+        cursorId = Long.MIN_VALUE;
+    }
+
+    private void refill() throws SQLException {
+        long now = clock.getAsLong();
+        boolean restarted = false;
+        while (queue.isEmpty()) {
+            List<ScheduledCard> batch = dao.due(now, cursorDue, cursorId, batchSize);
+            if (batch.isEmpty()) {
+                if (restarted || cursorId == Long.MIN_VALUE) return;
+                // Reached the end of the due range; start over to pick up cards that were
+                // skipped without a review or became due since the first pass. Skipped cards
+                // are forgotten so they are handed out again; review() reads the stored state
+                // of any that are still on screen.
+                outstanding.clear();
+                cursorDue = Long.MIN_VALUE;
+                cursorId = Long.MIN_VALUE;
+                restarted = true;
+                continue;
+            }
+            queue.addAll(batch);   // the cursor only moves forward, so a pass never repeats a card
+            ScheduledCard last = batch.get(batch.size() - 1);
+            cursorDue = last.getState().getDueAt();
+            cursorId = last.getCard().getId();
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package model;
+
+/**
+ * Spaced-repetition state of one flashcard (SM-2).
+ * New cards start with ease 2.5, no repetitions and are due immediately.
+ */
+public class ReviewState {
+    public static final double DEFAULT_EASE = 2.5;
+    public static final double MIN_EASE = 1.3;
+    private static final long DAY_MS = 24L * 60 * 60 * 1000;
+
+    private final double ease;
+    private final int intervalDays;
+    private final int repetitions;
+    private final long dueAt;        // epoch millis
+
+    public ReviewState(double ease, int intervalDays, int repetitions, long dueAt) {
+        this.ease = ease;
+        this.intervalDays = intervalDays;
+        this.repetitions = repetitions;
+        this.dueAt = dueAt;
+    }
+
+    public static ReviewState initial() {
+        return new ReviewState(DEFAULT_EASE, 0, 0, 0);
+    }
+
+    public double getEase()       { return ease; }
+    public int getIntervalDays()  { return intervalDays; }
+    public int getRepetitions()   { return repetitions; }
+    public long getDueAt()        { return dueAt; }
+
+    /**
+     * Apply one SM-2 review.
+     * @param quality 0 (blackout) .. 5 (perfect); below 3 counts as a lapse
+     * @param now     review time in epoch millis
+     */
+    public ReviewState next(int quality, long now) {
+        int q = Math.max(0, Math.min(5, quality));
+        int reps;
+        int interval;
+        if (q < 3) {
+            reps = 0;
+            interval = 1;
+        } else {
+            reps = repetitions + 1;
+            interval = switch (reps) {
+                case 1 -> 1;
+                case 2 -> 6;
+                default -> (int) Math.round(intervalDays * ease);
+            };
+        }
+        double newEase = Math.max(MIN_EASE, ease + 0.1 - (5 - q) * (0.08 + (5 - q) * 0.02));
+        return new ReviewState(newEase, interval, reps, now + interval * DAY_MS);
+    }
+}
@@ -0,0 +1,15 @@
+package model;
+
+/** A flashcard together with its spaced-repetition state. */
+public class ScheduledCard {
+    private final Flashcard card;
+    private final ReviewState state;
+
+    public ScheduledCard(Flashcard card, ReviewState state) {
+        this.card = card;
+        this.state = state;
+    }
+
+    public Flashcard getCard()    { return card; }
+    public ReviewState getState() { return state; }
+}
@@ -0,0 +1,32 @@
+package model;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+
+/**
+ * Opens a brand-new connection for every lease (the old DriverManager behaviour).
+ * Handy for one-off tools and as the baseline in benchmarks.
+ */
+public class SimpleConnectionProvider implements ConnectionProvider {
+    private final String jdbcUrl;
+
+    public SimpleConnectionProvider(String jdbcUrl) {
+        this.jdbcUrl = jdbcUrl;
+    }
+
+    @Override
+    public Connection reader() throws SQLException {
+        return DriverManager.getConnection(jdbcUrl);
+    }
+
+    @Override
+    public Connection writer() throws SQLException {
+        return DriverManager.getConnection(jdbcUrl);
+    }
+
+    @Override
+    public void close() {
+        // nothing is kept open
+    }
+}
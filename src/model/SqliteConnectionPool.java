@@ -0,0 +1,282 @@
+package model;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Long-lived SQLite connections shared by all DAOs.
+ *
+ * SQLite allows many readers but only one writer, so the pool keeps:
+ *  - one dedicated writer connection, handed out under a lock;
+ *  - up to {@code maxReaders} read connections, opened lazily and reused.
+ *
+ * Every connection runs in WAL mode so readers never block the writer, and
+ * keeps its own {@link StatementCache} so hot queries are compiled only once.
+ * In-memory databases cannot be shared between connections, so there all
+ * leases go to the writer.
+ *
+ * Wait and hold times of every lease are recorded in {@link Metrics} as
+ * {@code db.reader.wait}, {@code db.reader.hold}, {@code db.writer.wait} and
+ * {@code db.writer.hold}.
+ */
+public class SqliteConnectionPool implements ConnectionProvider {
+
+    public static final int DEFAULT_READERS = 4;
+    private static final long ACQUIRE_TIMEOUT_MS = 10_000;
+
+    private static final Metrics.Timer READER_WAIT = Metrics.timer("db.reader.wait");
+    private static final Metrics.Timer READER_HOLD = Metrics.timer("db.reader.hold");
+    private static final Metrics.Timer WRITER_WAIT = Metrics.timer("db.writer.wait");
+    private static final Metrics.Timer WRITER_HOLD = Metrics.timer("db.writer.hold");
+
+    private final String jdbcUrl;
+    private final int maxReaders;
+    private final int statementCacheSize;
+    private final Map<Connection, StatementCache> caches = new IdentityHashMap<>();
+    private final AtomicLong cacheHits = new AtomicLong();
+    private final AtomicLong cacheMisses = new AtomicLong();
+    private final BlockingQueue<Connection> idleReaders;
+    private final List<Connection> allReaders = new ArrayList<>();
+    private final ReentrantLock writerLock = new ReentrantLock(true);
+    private Connection writerConn;
+    private volatile boolean closed;
+
+    public SqliteConnectionPool(String jdbcUrl) {
+        this(jdbcUrl, DEFAULT_READERS);
+    }
+
+    public SqliteConnectionPool(String jdbcUrl, int maxReaders) {
+        this(jdbcUrl, maxReaders, StatementCache.DEFAULT_CAPACITY);
+    }
+
+    /** @param statementCacheSize prepared statements kept per connection; 0 disables caching */
+    public SqliteConnectionPool(String jdbcUrl, int maxReaders, int statementCacheSize) {
+        this.jdbcUrl = jdbcUrl;
+        this.maxReaders = isInMemory(jdbcUrl) ? 0 : Math.max(0, maxReaders);
+        this.statementCacheSize = statementCacheSize;
+        this.idleReaders = new ArrayBlockingQueue<>(Math.max(1, this.maxReaders));
+    }
+
+    public String getJdbcUrl() { return jdbcUrl; }
+
+    /** Prepared-statement cache hits across all connections. */
+    public long getStatementCacheHits() { return cacheHits.get(); }
+
+    /** Prepared-statement cache misses (statements compiled) across all connections. */
+    public long getStatementCacheMisses() { return cacheMisses.get(); }
+
+    @Override
+    public Connection reader() throws SQLException {
+        if (maxReaders == 0) return writer();
+        ensureOpen();
+
+        long start = System.nanoTime();
+        Connection c = idleReaders.poll();
+        if (c == null) c = openReaderIfRoom();
+        if (c == null) {
+            try {
+                c = idleReaders.poll(ACQUIRE_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new SQLException("Interrupted while waiting for a read connection", e);
+            }
+            if (c == null) throw new SQLException("Timed out waiting for a read connection");
+        }
+        READER_WAIT.recordSince(start);
+        return lease(c, false);
+    }
+
+    @Override
+    public Connection writer() throws SQLException {
+        ensureOpen();
+        long start = System.nanoTime();
+        try {
+            if (!writerLock.tryLock(ACQUIRE_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+                throw new SQLException("Timed out waiting for the write connection");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for the write connection", e);
+        }
+        WRITER_WAIT.recordSince(start);
+        try {
+            if (writerConn == null) writerConn = open(false);
+            return lease(writerConn, true);
+        } catch (SQLException | RuntimeException e) {
+            writerLock.unlock();
+            throw e;
+        }
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        synchronized (allReaders) {
+            for (Connection c : allReaders) discard(c);
+            allReaders.clear();
+        }
+        idleReaders.clear();
+        writerLock.lock();
+        try {
+            discard(writerConn);
+            writerConn = null;
+        } finally {
+            writerLock.unlock();
+        }
+    }
+
+    /* ---------- internals ---------- */
+
+    private Connection openReaderIfRoom() throws SQLException {
+        synchronized (allReaders) {
+            if (allReaders.size() >= maxReaders) return null;
+            Connection c = open(true);
+            allReaders.add(c);
+            return c;
+        }
+    }
+
+    private Connection open(boolean readOnly) throws SQLException {
+        Connection c = DriverManager.getConnection(jdbcUrl);
+        try (Statement st = c.createStatement()) {
+            st.execute("PRAGMA journal_mode=WAL");
+            st.execute("PRAGMA synchronous=NORMAL");   // safe with WAL, avoids an fsync per commit
+            st.execute("PRAGMA busy_timeout=5000");
+            st.execute("PRAGMA temp_store=MEMORY");
+            st.execute("PRAGMA cache_size=-8000");      // ~8 MB page cache per connection
+            st.execute("PRAGMA mmap_size=67108864");
+            if (readOnly) st.execute("PRAGMA query_only=ON");
+        } catch (SQLException e) {
+            closeQuietly(c);
+            throw e;
+        }
+        synchronized (caches) {
+            caches.put(c, new StatementCache(c, statementCacheSize, cacheHits, cacheMisses));
+        }
+        return c;
+    }
+
+    private void release(Connection c, boolean isWriter) {
+        if (isWriter) {
+            try {
+                // Only reset once the outermost lease on this thread is returned.
+                if (writerLock.getHoldCount() == 1) resetState(c);
+            } finally {
+                writerLock.unlock();
+            }
+        } else {
+            resetState(c);
+            if (closed || !idleReaders.offer(c)) discard(c);
+        }
+    }
+
+    private static void resetState(Connection c) {
+        try {
+            if (!c.getAutoCommit()) {
+                c.rollback();   // a lease returned mid-transaction must not leak it
+                c.setAutoCommit(true);
+            }
+        } catch (SQLException ignored) { }
+    }
+
+    private void ensureOpen() throws SQLException {
+        if (closed) throw new SQLException("Connection pool is closed");
+    }
+
+    private Connection lease(Connection target, boolean isWriter) {
+        return (Connection) Proxy.newProxyInstance(
+                Connection.class.getClassLoader(),
+                new Class<?>[]{Connection.class},
+                new Lease(target, isWriter));
+    }
+
+    private static boolean isInMemory(String url) {
+        return url.contains(":memory:") || url.contains("mode=memory") || url.equals("jdbc:sqlite:");
+    }
+
+    private StatementCache cacheFor(Connection c) {
+        synchronized (caches) {
+            return caches.get(c);
+        }
+    }
+
+    private void discard(Connection c) {
+        if (c == null) return;
+        StatementCache cache;
+        synchronized (caches) {
+            cache = caches.remove(c);
+        }
+        if (cache != null) cache.clear();
+        closeQuietly(c);
+    }
+
+    private static void closeQuietly(Connection c) {
+        if (c == null) return;
+        try { c.close(); } catch (SQLException ignored) { }
+    }
+
+    /**
+     * Wraps a pooled connection so close() returns it instead of closing it,
+     * and prepareStatement() goes through the connection's statement cache.
+     */
+    private final class Lease implements InvocationHandler {
+        private final Connection target;
+        private final boolean isWriter;
+        private final StatementCache cache;
+        private final long leasedAt = System.nanoTime();
+        private boolean released;
+
+        Lease(Connection target, boolean isWriter) {
+            this.target = target;
+            this.isWriter = isWriter;
+            this.cache = cacheFor(target);
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close" -> {
+                    if (!released) {
+                        released = true;
+                        (isWriter ? WRITER_HOLD : READER_HOLD).recordSince(leasedAt);
+                        release(target, isWriter);
+                    }
+                    return null;
+                }
+                case "isClosed" -> { return released || target.isClosed(); }
+                case "equals" -> { return proxy == args[0]; }
+                case "hashCode" -> { return System.identityHashCode(proxy); }
+                case "toString" -> { return "Lease[" + (isWriter ? "writer" : "reader") + "]"; }
+                default -> { }
+            }
+            if (released) throw new SQLException("Connection lease already returned");
+            if (cache != null && method.getName().equals("prepareStatement")) {
+                if (args.length == 1) return cache.prepare((String) args[0]);
+                if (args.length == 2 && args[1] instanceof Integer flag
+                        && flag == Statement.RETURN_GENERATED_KEYS) {
+                    return cache.prepare((String) args[0], true);
+                }
+            }
+            try {
+                return method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+}
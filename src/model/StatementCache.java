@@ -0,0 +1,128 @@
+package model;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * LRU cache of prepared statements for one pooled connection, keyed by SQL text.
+ *
+ * Statements handed out are wrappers: close() only clears the parameters so the
+ * compiled statement can be reused by the next caller. A statement that is
+ * already checked out (nested use of the same SQL) is never shared; the caller
+ * gets a plain, uncached statement instead.
+ *
+ * Not thread-safe on its own: the pool guarantees one lease per connection.
+ */
+public class StatementCache {
+    public static final int DEFAULT_CAPACITY = 64;
+
+    private final Connection conn;
+    private final int capacity;
+    private final Set<PreparedStatement> inUse = Collections.newSetFromMap(new IdentityHashMap<>());
+    private final LinkedHashMap<String, PreparedStatement> lru;
+    private final AtomicLong hits;
+    private final AtomicLong misses;
+
+    StatementCache(Connection conn, int capacity, AtomicLong hits, AtomicLong misses) {
+        this.conn = conn;
+        this.capacity = capacity;
+        this.hits = hits;
+        this.misses = misses;
+        this.lru = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, PreparedStatement> eldest) {
+                if (size() <= StatementCache.this.capacity || inUse.contains(eldest.getValue())) return false;
+                closeQuietly(eldest.getValue());
+                return true;
+            }
+        };
+    }
+
+    /** Equivalent of {@link Connection#prepareStatement(String)}. */
+    PreparedStatement prepare(String sql) throws SQLException {
+        return prepare(sql, false);
+    }
+
+    /** Equivalent of {@link Connection#prepareStatement(String, int)} with RETURN_GENERATED_KEYS. */
+    PreparedStatement prepare(String sql, boolean returnKeys) throws SQLException {
+        if (capacity <= 0) return raw(sql, returnKeys);
+
+        String key = returnKeys ? "#keys " + sql : sql;
+        PreparedStatement ps = lru.get(key);
+        if (ps != null && inUse.contains(ps)) {
+            misses.incrementAndGet();
+            return raw(sql, returnKeys);
+        }
+        if (ps == null || ps.isClosed()) {
+            misses.incrementAndGet();
+            ps = raw(sql, returnKeys);
+            lru.put(key, ps);
+        } else {
+            hits.incrementAndGet();
+        }
+        inUse.add(ps);
+        return wrap(ps);
+    }
+
+    public int size() { return lru.size(); }
+
+    /** Close every cached statement; called when the connection itself closes. */
+    void clear() {
+        for (PreparedStatement ps : lru.values()) closeQuietly(ps);
+        lru.clear();
+        inUse.clear();
+    }
+
+    private PreparedStatement raw(String sql, boolean returnKeys) throws SQLException {
+        return returnKeys
+                ? conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)
+                : conn.prepareStatement(sql);
+    }
+
+    private PreparedStatement wrap(PreparedStatement target) {
+        boolean[] returned = {false};
+        return (PreparedStatement) Proxy.newProxyInstance(
+                PreparedStatement.class.getClassLoader(),
+                new Class<?>[]{PreparedStatement.class},
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "close" -> {
+                            if (!returned[0]) {
+                                returned[0] = true;
+                                try {
+                                    target.clearParameters();
+                                    target.clearBatch();
+                                } finally {
+                                    inUse.remove(target);
+                                }
+                            }
+                            return null;
+                        }
+                        case "isClosed" -> { return returned[0] || target.isClosed(); }
+                        case "equals" -> { return proxy == args[0]; }
+                        case "hashCode" -> { return System.identityHashCode(proxy); }
+                        default -> { }
+                    }
+                    if (returned[0]) throw new SQLException("Statement already closed");
+                    try {
+                        return method.invoke(target, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                });
+    }
+
+    private static void closeQuietly(PreparedStatement ps) {
+        try { ps.close(); } catch (SQLException ignored) { }
+    }
+}
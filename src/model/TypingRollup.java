@@ -0,0 +1,60 @@
+package model;
+
+/**
+ * Pre-aggregated typing stats for one bucket: all time, a day, an ISO week or a
+ * passage. Kept up to date as sessions are inserted, so reading one is a single
+ * primary-key lookup however many sessions it covers.
+ */
+public class TypingRollup {
+    public static final String ALL = "all";
+    public static final String DAY = "day";     // bucket: yyyy-MM-dd (local time)
+    public static final String WEEK = "week";   // bucket: YYYY-Www (ISO week)
+    public static final String TEXT = "text";   // bucket: the session's text key
+
+    private final String kind;
+    private final String bucket;
+    private final int sessions;
+    private final long chars;
+    private final long errors;
+    private final long durationMs;
+    private final double sumWpm;
+    private final double sumAccuracy;
+    private final double bestWpm;
+    private final long lastAt;
+
+    public TypingRollup(String kind, String bucket, int sessions, long chars, long errors, long durationMs,
+                        double sumWpm, double sumAccuracy, double bestWpm, long lastAt) {
+        this.kind = kind;
+        this.bucket = bucket;
+        this.sessions = sessions;
+        this.chars = chars;
+        this.errors = errors;
+        this.durationMs = durationMs;
+        this.sumWpm = sumWpm;
+        this.sumAccuracy = sumAccuracy;
+        this.bestWpm = bestWpm;
+        this.lastAt = lastAt;
+    }
+
+    /** An empty bucket, for when nothing has been recorded yet. */
+    public static TypingRollup empty(String kind, String bucket) {
+        return new TypingRollup(kind, bucket, 0, 0, 0, 0, 0, 0, 0, 0);
+    }
+
+    public String getKind()        { return kind; }
+    public String getBucket()      { return bucket; }
+    public int getSessions()       { return sessions; }
+    public long getChars()         { return chars; }
+    public long getErrors()        { return errors; }
+    public long getDurationMs()    { return durationMs; }
+    public double getBestWpm()     { return bestWpm; }
+    public long getLastAt()        { return lastAt; }
+
+    public double getAverageWpm() {
+        return sessions == 0 ? 0 : sumWpm / sessions;
+    }
+
+    public double getAverageAccuracy() {
+        return sessions == 0 ? 0 : sumAccuracy / sessions;
+    }
+}
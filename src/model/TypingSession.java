@@ -0,0 +1,56 @@
+package model;
+
+/** Summary of one finished typing exercise, race or practice run. */
+public class TypingSession {
+    private final long id;            // 0 until stored
+    private final long userId;        // 0 when nobody is logged in
+    private final String mode;        // "exercise", "race" or "practice"
+    private final String textKey;     // identifies the passage, for per-text stats; may be null
+    private final long finishedAt;    // epoch millis
+    private final long durationMs;
+    private final int chars;
+    private final int errors;
+    private final double wpm;
+    private final double accuracy;    // 0-100
+    private final double p50Ms;       // inter-key latency percentiles
+    private final double p90Ms;
+    private final double p99Ms;
+    private final double consistency; // 0-100
+    private final String keysJson;    // per-key latency/errors and slowest bigrams
+
+    public TypingSession(long id, long userId, String mode, String textKey, long finishedAt, long durationMs,
+                         int chars, int errors, double wpm, double accuracy,
+                         double p50Ms, double p90Ms, double p99Ms, double consistency, String keysJson) {
+        this.id = id;
+        this.userId = userId;
+        this.mode = mode;
+        this.textKey = textKey;
+        this.finishedAt = finishedAt;
+        this.durationMs = durationMs;
+        this.chars = chars;
+        this.errors = errors;
+        this.wpm = wpm;
+        this.accuracy = accuracy;
+        this.p50Ms = p50Ms;
+        this.p90Ms = p90Ms;
+        this.p99Ms = p99Ms;
+        this.consistency = consistency;
+        this.keysJson = keysJson;
+    }
+
+    public long getId()             { return id; }
+    public long getUserId()         { return userId; }
+    public String getMode()         { return mode; }
+    public String getTextKey()      { return textKey; }
+    public long getFinishedAt()     { return finishedAt; }
+    public long getDurationMs()     { return durationMs; }
+    public int getChars()           { return chars; }
+    public int getErrors()          { return errors; }
+    public double getWpm()          { return wpm; }
+    public double getAccuracy()     { return accuracy; }
+    public double getP50Ms()        { return p50Ms; }
+    public double getP90Ms()        { return p90Ms; }
+    public double getP99Ms()        { return p99Ms; }
+    public double getConsistency()  { return consistency; }
+    public String getKeysJson()     { return keysJson; }
+}
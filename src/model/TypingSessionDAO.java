@@ -0,0 +1,276 @@
+package model;
+
+import java.sql.*;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.temporal.IsoFields;
+import java.util.*;
+
+/**
+ * Typing session history plus the {@code typing_rollups} table that keeps running
+ * totals per user for all time, each day, each ISO week and each passage.
+ * Rollups are updated in the same transaction as the inserts, so trend queries
+ * read a handful of rows instead of scanning the history.
+ */
+public class TypingSessionDAO {
+    private static final String INSERT_SQL = """
+        INSERT INTO typing_sessions(user_id, mode, text_key, finished_at, duration_ms, chars, errors, wpm,
+                                    accuracy, p50_ms, p90_ms, p99_ms, consistency, keys_json)
+        VALUES (?,?,?,?,?,?,?,?,?,?,?,?,?,?)
+    """;
+
+    private static final String ROLLUP_SQL = """
+        INSERT INTO typing_rollups(user_id, kind, bucket, sessions, chars, errors, duration_ms,
+                                   sum_wpm, sum_accuracy, best_wpm, last_at)
+        VALUES (?,?,?,1,?,?,?,?,?,?,?)
+        ON CONFLICT(user_id, kind, bucket) DO UPDATE SET
+            sessions = sessions + 1,
+            chars = chars + excluded.chars,
+            errors = errors + excluded.errors,
+            duration_ms = duration_ms + excluded.duration_ms,
+            sum_wpm = sum_wpm + excluded.sum_wpm,
+            sum_accuracy = sum_accuracy + excluded.sum_accuracy,
+            best_wpm = MAX(best_wpm, excluded.best_wpm),
+            last_at = MAX(last_at, excluded.last_at)
+    """;
+
+    private final ConnectionProvider db;
+    private final ZoneId zone;
+
+    public TypingSessionDAO(ConnectionProvider db) {
+        this(db, ZoneId.systemDefault());
+    }
+
+    /** @param zone time zone that decides which day and week a session falls in */
+    public TypingSessionDAO(ConnectionProvider db, ZoneId zone) {
+        this.db = db;
+        this.zone = zone;
+    }
+
+    /** Create the tables if they do not exist. */
+    public void init() throws SQLException {
+        try (Connection conn = db.writer(); Statement st = conn.createStatement()) {
+            st.executeUpdate("""
+                CREATE TABLE IF NOT EXISTS typing_sessions (
+                    id INTEGER PRIMARY KEY AUTOINCREMENT,
+                    user_id INTEGER NOT NULL DEFAULT 0,
+                    mode TEXT NOT NULL,
+                    text_key TEXT,
+                    finished_at INTEGER NOT NULL,
+                    duration_ms INTEGER NOT NULL,
+                    chars INTEGER NOT NULL,
+                    errors INTEGER NOT NULL,
+                    wpm REAL NOT NULL,
+                    accuracy REAL NOT NULL,
+                    p50_ms REAL NOT NULL,
+                    p90_ms REAL NOT NULL,
+                    p99_ms REAL NOT NULL,
+                    consistency REAL NOT NULL,
+                    keys_json TEXT
+                )
+            """);
+            addUserColumns(conn);
+            st.executeUpdate("CREATE INDEX IF NOT EXISTS idx_typing_sessions_finished ON typing_sessions(finished_at)");
+            st.executeUpdate("CREATE INDEX IF NOT EXISTS idx_typing_sessions_user ON typing_sessions(user_id, finished_at)");
+            st.executeUpdate("""
+                CREATE TABLE IF NOT EXISTS typing_rollups (
+                    user_id INTEGER NOT NULL,
+                    kind TEXT NOT NULL,
+                    bucket TEXT NOT NULL,
+                    sessions INTEGER NOT NULL,
+                    chars INTEGER NOT NULL,
+                    errors INTEGER NOT NULL,
+                    duration_ms INTEGER NOT NULL,
+                    sum_wpm REAL NOT NULL,
+                    sum_accuracy REAL NOT NULL,
+                    best_wpm REAL NOT NULL,
+                    last_at INTEGER NOT NULL,
+                    PRIMARY KEY (user_id, kind, bucket)
+                ) WITHOUT ROWID
+            """);
+            backfillRollups(conn);
+        }
+    }
+
+    /** Sessions saved before rollups existed are folded in once, the first time the table is empty. */
+    private void backfillRollups(Connection conn) throws SQLException {
+        try (Statement st = conn.createStatement();
+             ResultSet rs = st.executeQuery("SELECT EXISTS(SELECT 1 FROM typing_rollups), "
+                     + "EXISTS(SELECT 1 FROM typing_sessions)")) {
+            if (!rs.next() || rs.getBoolean(1) || !rs.getBoolean(2)) return;
+        }
+        conn.setAutoCommit(false);
+        try (Statement st = conn.createStatement();
+             ResultSet rs = st.executeQuery("SELECT * FROM typing_sessions");
+             PreparedStatement roll = conn.prepareStatement(ROLLUP_SQL)) {
+            while (rs.next()) {
+                addRollups(roll, new TypingSession(
+                        0, rs.getLong("user_id"), rs.getString("mode"), rs.getString("text_key"),
+                        rs.getLong("finished_at"), rs.getLong("duration_ms"), rs.getInt("chars"),
+                        rs.getInt("errors"), rs.getDouble("wpm"), rs.getDouble("accuracy"), 0, 0, 0, 0, null));
+            }
+            roll.executeBatch();
+            conn.commit();
+        } catch (SQLException e) {
+            conn.rollback();
+            throw e;
+        }
+    }
+
+    /** Databases created before sessions were per user lack these columns. */
+    private static void addUserColumns(Connection conn) throws SQLException {
+        Set<String> columns = new HashSet<>();
+        try (Statement st = conn.createStatement();
+             ResultSet rs = st.executeQuery("PRAGMA table_info(typing_sessions)")) {
+            while (rs.next()) columns.add(rs.getString("name"));
+        }
+        try (Statement st = conn.createStatement()) {
+            if (!columns.contains("user_id")) {
+                st.executeUpdate("ALTER TABLE typing_sessions ADD COLUMN user_id INTEGER NOT NULL DEFAULT 0");
+            }
+            if (!columns.contains("text_key")) {
+                st.executeUpdate("ALTER TABLE typing_sessions ADD COLUMN text_key TEXT");
+            }
+        }
+    }
+
+    public void insert(TypingSession s) throws SQLException {
+        insertAll(List.of(s));
+    }
+
+    /** Store sessions and fold them into their rollups, all in one transaction. */
+    public void insertAll(List<TypingSession> sessions) throws SQLException {
+        if (sessions.isEmpty()) return;
+        try (Connection conn = db.writer()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement ins = conn.prepareStatement(INSERT_SQL);
+                 PreparedStatement roll = conn.prepareStatement(ROLLUP_SQL)) {
+                for (TypingSession s : sessions) {
+                    ins.setLong(1, s.getUserId());
+                    ins.setString(2, s.getMode());
+                    ins.setString(3, s.getTextKey());
+                    ins.setLong(4, s.getFinishedAt());
+                    ins.setLong(5, s.getDurationMs());
+                    ins.setInt(6, s.getChars());
+                    ins.setInt(7, s.getErrors());
+                    ins.setDouble(8, s.getWpm());
+                    ins.setDouble(9, s.getAccuracy());
+                    ins.setDouble(10, s.getP50Ms());
+                    ins.setDouble(11, s.getP90Ms());
+                    ins.setDouble(12, s.getP99Ms());
+                    ins.setDouble(13, s.getConsistency());
+                    ins.setString(14, s.getKeysJson());
+                    ins.addBatch();
+                    addRollups(roll, s);
+                }
+                ins.executeBatch();
+                roll.executeBatch();
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        }
+    }
+
+    private void addRollups(PreparedStatement roll, TypingSession s) throws SQLException {
+        LocalDate day = Instant.ofEpochMilli(s.getFinishedAt()).atZone(zone).toLocalDate();
+        addRollup(roll, s, TypingRollup.ALL, "");
+        addRollup(roll, s, TypingRollup.DAY, dayBucket(day));
+        addRollup(roll, s, TypingRollup.WEEK, weekBucket(day));
+        if (s.getTextKey() != null) addRollup(roll, s, TypingRollup.TEXT, s.getTextKey());
+    }
+
+    private static void addRollup(PreparedStatement ps, TypingSession s, String kind, String bucket)
+            throws SQLException {
+        ps.setLong(1, s.getUserId());
+        ps.setString(2, kind);
+        ps.setString(3, bucket);
+        ps.setInt(4, s.getChars());
+        ps.setInt(5, s.getErrors());
+        ps.setLong(6, s.getDurationMs());
+        ps.setDouble(7, s.getWpm());
+        ps.setDouble(8, s.getAccuracy());
+        ps.setDouble(9, s.getWpm());
+        ps.setLong(10, s.getFinishedAt());
+        ps.addBatch();
+    }
+
+    public static String dayBucket(LocalDate day) {
+        return day.toString();
+    }
+
+    public static String weekBucket(LocalDate day) {
+        return String.format("%d-W%02d",
+                day.get(IsoFields.WEEK_BASED_YEAR), day.get(IsoFields.WEEK_OF_WEEK_BASED_YEAR));
+    }
+
+    /** One rollup row, or an empty one if nothing was recorded in that bucket. */
+    public TypingRollup rollup(long userId, String kind, String bucket) throws SQLException {
+        try (Connection conn = db.reader();
+             PreparedStatement ps = conn.prepareStatement(
+                     "SELECT * FROM typing_rollups WHERE user_id = ? AND kind = ? AND bucket = ?")) {
+            ps.setLong(1, userId);
+            ps.setString(2, kind);
+            ps.setString(3, bucket);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? mapRollup(rs) : TypingRollup.empty(kind, bucket);
+            }
+        }
+    }
+
+    /**
+     * Rollups of one kind for buckets in [{@code from}, {@code to}], newest first.
+     * A range read on the primary key: cost depends on the buckets returned only.
+     */
+    public List<TypingRollup> rollups(long userId, String kind, String from, String to) throws SQLException {
+        List<TypingRollup> list = new ArrayList<>();
+        try (Connection conn = db.reader();
+             PreparedStatement ps = conn.prepareStatement("""
+                 SELECT * FROM typing_rollups
+                 WHERE user_id = ? AND kind = ? AND bucket BETWEEN ? AND ?
+                 ORDER BY bucket DESC
+             """)) {
+            ps.setLong(1, userId);
+            ps.setString(2, kind);
+            ps.setString(3, from);
+            ps.setString(4, to);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) list.add(mapRollup(rs));
+            }
+        }
+        return list;
+    }
+
+    private static TypingRollup mapRollup(ResultSet rs) throws SQLException {
+        return new TypingRollup(
+                rs.getString("kind"), rs.getString("bucket"), rs.getInt("sessions"),
+                rs.getLong("chars"), rs.getLong("errors"), rs.getLong("duration_ms"),
+                rs.getDouble("sum_wpm"), rs.getDouble("sum_accuracy"), rs.getDouble("best_wpm"),
+                rs.getLong("last_at"));
+    }
+
+    /** The most recent sessions of a user, newest first. */
+    public List<TypingSession> recent(long userId, int limit) throws SQLException {
+        List<TypingSession> list = new ArrayList<>();
+        try (Connection conn = db.reader();
+             PreparedStatement ps = conn.prepareStatement(
+                     "SELECT * FROM typing_sessions WHERE user_id = ? ORDER BY finished_at DESC LIMIT ?")) {
+            ps.setLong(1, userId);
+            ps.setInt(2, limit);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    list.add(new TypingSession(
+                            rs.getLong("id"), rs.getLong("user_id"), rs.getString("mode"),
+                            rs.getString("text_key"), rs.getLong("finished_at"),
+                            rs.getLong("duration_ms"), rs.getInt("chars"), rs.getInt("errors"),
+                            rs.getDouble("wpm"), rs.getDouble("accuracy"),
+                            rs.getDouble("p50_ms"), rs.getDouble("p90_ms"), rs.getDouble("p99_ms"),
+                            rs.getDouble("consistency"), rs.getString("keys_json")));
+                }
+            }
+        }
+        return list;
+    }
+}
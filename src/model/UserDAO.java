@@ -8,17 +8,21 @@ import java.util.regex.Pattern;
 
 public class UserDAO {
 
-    private final String dbUrl;
+    private final ConnectionProvider db;
     private static final Pattern EMAIL_RE =
             Pattern.compile("^[A-Za-z0-9._%+-]+@[A-Za-z0-9.-]+\\.com$"); // xxx@xxx.com
 
-    public UserDAO(String dbUrl) {
-        this.dbUrl = dbUrl;
+    public UserDAO(ConnectionProvider db) {
+        this.db = db;
         ensureUsersTable();
     }
 
     private Connection getConn() throws SQLException {
-        return DriverManager.getConnection(dbUrl);
+        return db.reader();
+    }
+
+    private Connection getWriteConn() throws SQLException {
+        return db.writer();
     }
 
     private void ensureUsersTable() {
@@ -31,7 +35,7 @@ public class UserDAO {
               created_at TEXT NOT NULL
             );
             """;
-        try (Connection c = getConn(); Statement st = c.createStatement()) {
+        try (Connection c = getWriteConn(); Statement st = c.createStatement()) {
             st.execute(sql);
         } catch (SQLException e) {
             throw new RuntimeException("Failed to ensure users table", e);
@@ -75,7 +79,7 @@ public class UserDAO {
         String hash = sha256(rawPassword);
         String createdAt = LocalDateTime.now().toString();
 
-        try (Connection c = getConn(); PreparedStatement ps = c.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+        try (Connection c = getWriteConn(); PreparedStatement ps = c.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
             ps.setString(1, username == null ? "" : username.trim());
             ps.setString(2, email.trim());
             ps.setString(3, hash);
@@ -124,7 +128,7 @@ public class UserDAO {
 
     public void updateUsername(int userId, String newUsername) {
         String sql = "UPDATE users SET username = ? WHERE id = ?";
-        try (Connection c = getConn(); PreparedStatement ps = c.prepareStatement(sql)) {
+        try (Connection c = getWriteConn(); PreparedStatement ps = c.prepareStatement(sql)) {
             ps.setString(1, newUsername == null ? "" : newUsername.trim());
             ps.setInt(2, userId);
             ps.executeUpdate();
@@ -137,7 +141,7 @@ public class UserDAO {
         if (!isPasswordValid(newRawPassword))
             throw new IllegalArgumentException("Password must be at least 6 characters and contain letters and digits.");
         String sql = "UPDATE users SET password_hash = ? WHERE id = ?";
-        try (Connection c = getConn(); PreparedStatement ps = c.prepareStatement(sql)) {
+        try (Connection c = getWriteConn(); PreparedStatement ps = c.prepareStatement(sql)) {
             ps.setString(1, sha256(newRawPassword));
             ps.setInt(2, userId);
             ps.executeUpdate();
@@ -0,0 +1,145 @@
+package ui;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Chat history sent to Gemini as multi-turn {@code contents}.
+ *
+ * At most {@code maxExchanges} question/answer pairs are kept. Each request only
+ * carries the newest exchanges that fit the token budget; older ones are reduced
+ * to a short list of earlier topics in the system instruction, so the payload
+ * stays bounded however long the chat gets. Thread-safe.
+ */
+public class Conversation {
+    public static final int DEFAULT_MAX_EXCHANGES = 200;
+    public static final int DEFAULT_TOKEN_BUDGET = 6000;
+    private static final int MAX_TOPICS = 20;
+    private static final int TOPIC_CHARS = 80;
+
+    public enum Role {
+        USER("user"), MODEL("model");
+
+        public final String apiName;
+
+        Role(String apiName) {
+            this.apiName = apiName;
+        }
+    }
+
+    public record Turn(Role role, String text) {}
+
+    /** What to send for one request: system instruction plus turns, oldest first. */
+    public record Window(String systemInstruction, List<Turn> turns) {}
+
+    /** One user question and, once it arrives, the model's answer. */
+    public static final class Exchange {
+        private final String question;
+        private String answer;   // guarded by the conversation
+
+        private Exchange(String question) {
+            this.question = question;
+        }
+    }
+
+    private final String systemInstruction;
+    private final int maxExchanges;
+    private final int tokenBudget;
+    private final ArrayDeque<Exchange> history = new ArrayDeque<>();
+    private final ArrayDeque<String> evictedTopics = new ArrayDeque<>();
+
+    public Conversation(String systemInstruction) {
+        this(systemInstruction, DEFAULT_MAX_EXCHANGES, DEFAULT_TOKEN_BUDGET);
+    }
+
+    public Conversation(String systemInstruction, int maxExchanges, int tokenBudget) {
+        this.systemInstruction = systemInstruction;
+        this.maxExchanges = maxExchanges;
+        this.tokenBudget = tokenBudget;
+    }
+
+    /** Rough token count (about four characters per token), good enough for budgeting. */
+    public static int estimateTokens(String text) {
+        return (text.length() + 3) / 4;
+    }
+
+    /** Record a new question; pass the handle to {@link #window} and {@link #answer}. */
+    public synchronized Exchange ask(String question) {
+        Exchange e = new Exchange(question);
+        history.addLast(e);
+        while (history.size() > maxExchanges) {
+            Exchange old = history.removeFirst();
+            if (old.answer != null) addTopic(evictedTopics, topic(old.question));
+        }
+        return e;
+    }
+
+    /** Store the reply to {@code e} so later requests can refer back to it. */
+    public synchronized void answer(Exchange e, String text) {
+        e.answer = text;
+    }
+
+    /**
+     * The request for {@code current}: the newest answered exchanges before it
+     * that fit the budget, then its question. Unanswered (failed or still
+     * streaming) exchanges are left out.
+     */
+    public synchronized Window window(Exchange current) {
+        int budget = tokenBudget - estimateTokens(systemInstruction) - estimateTokens(current.question);
+        List<Exchange> kept = new ArrayList<>();
+        ArrayDeque<String> topics = new ArrayDeque<>(evictedTopics);
+        boolean full = false;
+        List<String> droppedTopics = new ArrayList<>();
+
+        Iterator<Exchange> it = history.descendingIterator();
+        while (it.hasNext()) {
+            Exchange e = it.next();
+            if (e == current || e.answer == null) continue;
+            int cost = estimateTokens(e.question) + estimateTokens(e.answer);
+            if (!full && cost <= budget) {
+                kept.add(e);
+                budget -= cost;
+            } else {
+                full = true;   // keep the window contiguous
+                droppedTopics.add(topic(e.question));
+                if (droppedTopics.size() >= MAX_TOPICS) break;
+            }
+        }
+        Collections.reverse(kept);
+        Collections.reverse(droppedTopics);
+        for (String t : droppedTopics) addTopic(topics, t);
+
+        List<Turn> turns = new ArrayList<>(kept.size() * 2 + 1);
+        for (Exchange e : kept) {
+            turns.add(new Turn(Role.USER, e.question));
+            turns.add(new Turn(Role.MODEL, e.answer));
+        }
+        turns.add(new Turn(Role.USER, current.question));
+        return new Window(systemWithTopics(topics), turns);
+    }
+
+    public synchronized int size() {
+        return history.size();
+    }
+
+    private String systemWithTopics(ArrayDeque<String> topics) {
+        if (topics.isEmpty()) return systemInstruction;
+        StringBuilder sb = new StringBuilder(systemInstruction)
+                .append("\n\nEarlier in this conversation the student asked about:");
+        for (String t : topics) sb.append("\n- ").append(t);
+        return sb.toString();
+    }
+
+    private static void addTopic(ArrayDeque<String> topics, String topic) {
+        topics.addLast(topic);
+        while (topics.size() > MAX_TOPICS) topics.removeFirst();
+    }
+
+    private static String topic(String question) {
+        String q = question.strip().replaceAll("\\s+", " ");
+        return q.length() <= TOPIC_CHARS ? q : q.substring(0, TOPIC_CHARS - 1) + "…";
+    }
+}
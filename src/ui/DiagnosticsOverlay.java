@@ -0,0 +1,90 @@
+package ui;
+
+import javafx.animation.KeyFrame;
+import javafx.animation.Timeline;
+import javafx.geometry.Insets;
+import javafx.geometry.Pos;
+import javafx.scene.Scene;
+import javafx.scene.control.Label;
+import javafx.scene.input.KeyCode;
+import javafx.scene.input.KeyEvent;
+import javafx.scene.layout.StackPane;
+import javafx.scene.text.Font;
+import javafx.util.Duration;
+import model.Metrics;
+
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Live {@link Metrics} readout drawn over the app; F12 shows and hides it.
+ *
+ * {@link #install(Scene)} also times every FX pulse into {@code fx.pulse}
+ * (CSS and layout, from the pre- to the post-layout listener), so the
+ * overlay costs nothing but those two listeners while hidden.
+ */
+public class DiagnosticsOverlay extends StackPane {
+    private static final Metrics.Timer PULSE = Metrics.timer("fx.pulse");
+    private static final Metrics.Counter PULSES = Metrics.counter("fx.pulses");
+
+    private final Label text = new Label();
+    private final Timeline refresh = new Timeline(new KeyFrame(Duration.millis(500), e -> refresh()));
+    private long pulseStart;
+
+    public DiagnosticsOverlay() {
+        text.setFont(Font.font("Monospaced", 11));
+        text.setStyle("-fx-text-fill: #e8e8e8; -fx-background-color: rgba(20,20,20,0.8); -fx-background-radius: 6;");
+        text.setPadding(new Insets(8));
+        getChildren().add(text);
+        StackPane.setAlignment(text, Pos.TOP_RIGHT);
+        setPadding(new Insets(8));
+        setMouseTransparent(true);
+        setPickOnBounds(false);
+        setVisible(false);
+        refresh.setCycleCount(Timeline.INDEFINITE);
+    }
+
+    /** Start timing pulses and bind F12; the overlay itself must already be in {@code scene}. */
+    public void install(Scene scene) {
+        scene.addPreLayoutPulseListener(() -> pulseStart = System.nanoTime());
+        scene.addPostLayoutPulseListener(() -> {
+            if (pulseStart == 0) return;
+            PULSE.recordSince(pulseStart);
+            PULSES.inc();
+            pulseStart = 0;
+        });
+        scene.addEventFilter(KeyEvent.KEY_PRESSED, e -> {
+            if (e.getCode() == KeyCode.F12) {
+                toggle();
+                e.consume();
+            }
+        });
+    }
+
+    public void toggle() {
+        setVisible(!isVisible());
+        if (isVisible()) {
+            refresh();
+            refresh.play();
+        } else {
+            refresh.stop();
+        }
+    }
+
+    private void refresh() {
+        StringBuilder sb = new StringBuilder(String.format(Locale.ROOT, "uptime %.0f s", Metrics.uptimeSeconds()));
+        for (Map.Entry<String, Metrics.Snapshot> e : Metrics.timers().entrySet()) {
+            Metrics.Snapshot s = e.getValue();
+            if (s.count() == 0) continue;
+            sb.append(String.format(Locale.ROOT, "%n%-18s n=%-7d p50 %s  p99 %s  max %s",
+                    e.getKey(), s.count(), ms(s.p50Micros()), ms(s.p99Micros()), ms(s.maxMicros())));
+        }
+        Metrics.counters().forEach((name, v) -> sb.append(String.format(Locale.ROOT, "%n%-18s %d", name, v)));
+        Metrics.gauges().forEach((name, v) -> sb.append(String.format(Locale.ROOT, "%n%-18s %.1f", name, v)));
+        text.setText(sb.toString());
+    }
+
+    private static String ms(long micros) {
+        return String.format(Locale.ROOT, "%7.2fms", micros / 1000.0);
+    }
+}
@@ -1,5 +1,6 @@
 package ui;
 
+import model.Database;
 import model.FlashcardDAO;
 import model.Flashcard;
 import javafx.geometry.Insets;
@@ -17,7 +18,7 @@ public class FlashcardsPanel extends VBox {
     private boolean showingAnswer = false;
 
     public FlashcardsPanel() {
-        this.dao = new FlashcardDAO("jdbc:sqlite:studymate.db");
+        this.dao = new FlashcardDAO(Database.pool("jdbc:sqlite:studymate.db"));
         initDb();
         initUI();
         loadNextCard();
@@ -0,0 +1,61 @@
+package ui;
+
+import javafx.animation.AnimationTimer;
+
+import java.util.function.Consumer;
+
+/**
+ * Collects text appended from any thread (e.g. streamed AI tokens) and renders
+ * it on the FX thread at most once per frame, however fast chunks arrive.
+ *
+ * {@link #start()} and {@link #stop()} must be called on the FX thread.
+ */
+public class FrameCoalescer {
+    private final StringBuilder text = new StringBuilder();
+    private final Consumer<String> render;
+    private boolean dirty;   // guarded by text
+    private final AnimationTimer timer = new AnimationTimer() {
+        @Override
+        public void handle(long now) {
+            flush();
+        }
+    };
+
+    /** @param render receives the whole text so far, on the FX thread */
+    public FrameCoalescer(Consumer<String> render) {
+        this.render = render;
+    }
+
+    public void start() {
+        timer.start();
+    }
+
+    /** Thread-safe; the text shows up on the next frame. */
+    public void append(String chunk) {
+        synchronized (text) {
+            text.append(chunk);
+            dirty = true;
+        }
+    }
+
+    /** Render any remaining text and stop listening to frames. */
+    public void stop() {
+        timer.stop();
+        flush();
+    }
+
+    /** Stop without rendering anything still pending (the output is being discarded). */
+    public void cancel() {
+        timer.stop();
+    }
+
+    private void flush() {
+        String snapshot;
+        synchronized (text) {
+            if (!dirty) return;
+            dirty = false;
+            snapshot = text.toString();
+        }
+        render.accept(snapshot);
+    }
+}
@@ -2,63 +2,300 @@ package ui;
 
 import okhttp3.*;
 import com.google.gson.*;
+import model.Metrics;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 
 public class GeminiClient {
     private static final String MODEL = "gemini-2.0-flash-001";
-    private final OkHttpClient client = new OkHttpClient();
+    private static final String DEFAULT_BASE_URL = "https://generativelanguage.googleapis.com/v1beta/models/";
+    private static final MediaType JSON = MediaType.parse("application/json");
+
+    private static final Metrics.Counter REQUESTS = Metrics.counter("gemini.requests");
+    private static final Metrics.Counter ERRORS = Metrics.counter("gemini.errors");
+    private static final Metrics.Timer REQUEST_TIME = Metrics.timer("gemini.request");
+    private static final Metrics.Timer FIRST_CHUNK = Metrics.timer("gemini.first_chunk");
+
+    /** At most this many Gemini calls are in flight; further calls queue in OkHttp's dispatcher. */
+    public static final int MAX_CONCURRENT_REQUESTS = 4;
+    public static final Duration DEFAULT_TIMEOUT = Duration.ofSeconds(60);
+
+    private final OkHttpClient client;
     private final String apiKey;
+    private final String baseUrl;
+    private final ResponseCache cache;   // null: every call goes to the network
 
     public GeminiClient(String apiKey) {
+        this(apiKey, DEFAULT_BASE_URL, null);
+    }
+
+    /** @param cache answers repeated prompts without a network call; may be null */
+    public GeminiClient(String apiKey, ResponseCache cache) {
+        this(apiKey, DEFAULT_BASE_URL, cache);
+    }
+
+    /** @param baseUrl models endpoint, e.g. a local mock server; must end with '/' */
+    public GeminiClient(String apiKey, String baseUrl) {
+        this(apiKey, baseUrl, null);
+    }
+
+    public GeminiClient(String apiKey, String baseUrl, ResponseCache cache) {
         if (apiKey == null || apiKey.isEmpty()) {
             throw new IllegalStateException("GOOGLE_API_KEY is missing");
         }
         this.apiKey = apiKey;
+        this.baseUrl = baseUrl;
+        this.cache = cache;
+
+        Dispatcher dispatcher = new Dispatcher();
+        dispatcher.setMaxRequests(MAX_CONCURRENT_REQUESTS);
+        dispatcher.setMaxRequestsPerHost(MAX_CONCURRENT_REQUESTS);
+        this.client = new OkHttpClient.Builder()
+                .dispatcher(dispatcher)
+                .connectTimeout(10, TimeUnit.SECONDS)
+                .readTimeout(DEFAULT_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS)
+                .build();
     }
 
     public String askGemini(String prompt) {
-        try {
-            // Build JSON body
-            JsonObject textPart = new JsonObject();
-            textPart.addProperty("text", prompt);
-
-            JsonObject content = new JsonObject();
-            content.add("parts", new JsonArray());
-            content.getAsJsonArray("parts").add(textPart);
-
-            JsonObject body = new JsonObject();
-            body.add("contents", new JsonArray());
-            body.getAsJsonArray("contents").add(content);
-
-            RequestBody requestBody = RequestBody.create(
-                    body.toString(), MediaType.parse("application/json"));
-
-            // Build HTTP request
-            Request request = new Request.Builder()
-                    .url("https://generativelanguage.googleapis.com/v1beta/models/"
-                            + MODEL + ":generateContent?key=" + apiKey)
-                    .post(requestBody)
-                    .build();
-
-            // Send request
-            try (Response response = client.newCall(request).execute()) {
-                if (!response.isSuccessful()) {
-                    return "[Error: " + response.code() + " " + response.message() + "]";
-                }
-
-                // Parse response JSON
-                assert response.body() != null;
-                String resp = response.body().string();
-                JsonObject json = JsonParser.parseString(resp).getAsJsonObject();
-
-                return json.getAsJsonArray("candidates")
-                        .get(0).getAsJsonObject()
-                        .getAsJsonObject("content")
-                        .getAsJsonArray("parts")
-                        .get(0).getAsJsonObject()
-                        .get("text").getAsString();
+        String key = cache == null ? null : ResponseCache.key(MODEL, prompt);
+        if (key != null) {
+            java.util.Optional<String> hit = cache.get(key);
+            if (hit.isPresent()) return hit.get();
+        }
+        REQUESTS.inc();
+        long start = System.nanoTime();
+        try (Response response = client.newCall(buildRequest(body(prompt), false)).execute()) {
+            if (!response.isSuccessful()) {
+                ERRORS.inc();
+                return "[Error: " + response.code() + " " + response.message() + "]";
             }
+            assert response.body() != null;
+            String text = parseText(response.body().string());
+            if (key != null) cache.put(key, MODEL, text);
+            return text;
         } catch (Exception e) {
+            ERRORS.inc();
             return "[Error: " + e.getMessage() + "]";
+        } finally {
+            REQUEST_TIME.recordSince(start);
+        }
+    }
+
+    /** Non-blocking {@link #askGemini} with the default timeout. */
+    public CompletableFuture<String> askAsync(String prompt) {
+        return askAsync(prompt, DEFAULT_TIMEOUT);
+    }
+
+    /**
+     * Send the prompt on OkHttp's dispatcher thread pool, unless the cache already has a reply.
+     *
+     * The future completes with the reply text, or exceptionally with an IOException
+     * for network/HTTP errors and timeouts. Cancelling the future cancels the HTTP call.
+     * Callbacks run on an OkHttp thread; hop to the FX thread before touching the UI.
+     *
+     * @param timeout deadline for the whole HTTP exchange (time queued behind other calls is not counted)
+     */
+    public CompletableFuture<String> askAsync(String prompt, Duration timeout) {
+        return cached(prompt, text -> {}, () -> fetchAsync(buildRequest(body(prompt), false), timeout));
+    }
+
+    private CompletableFuture<String> fetchAsync(Request request, Duration timeout) {
+        CompletableFuture<String> future = measured(new CompletableFuture<>());
+        Call call = client.newCall(request);
+        call.timeout().timeout(timeout.toMillis(), TimeUnit.MILLISECONDS);
+        call.enqueue(new Callback() {
+            @Override
+            public void onFailure(Call c, IOException e) {
+                future.completeExceptionally(e);
+            }
+
+            @Override
+            public void onResponse(Call c, Response response) {
+                try (response) {
+                    if (!response.isSuccessful()) {
+                        throw new IOException("HTTP " + response.code() + " " + response.message());
+                    }
+                    future.complete(parseText(response.body().string()));
+                } catch (Exception e) {
+                    future.completeExceptionally(e);
+                }
+            }
+        });
+        future.whenComplete((text, err) -> {
+            if (future.isCancelled()) call.cancel();
+        });
+        return future;
+    }
+
+    /**
+     * Like {@link #askAsync(String, Duration)} but uses the streaming endpoint:
+     * {@code onChunk} receives each piece of new text as soon as it arrives
+     * (on an OkHttp thread), and the future completes with the full reply.
+     * A cached reply arrives as a single chunk.
+     */
+    public CompletableFuture<String> streamAsync(String prompt, Duration timeout, Consumer<String> onChunk) {
+        return cached(prompt, onChunk, () -> fetchStream(buildRequest(body(prompt), true), timeout, onChunk));
+    }
+
+    /**
+     * Stream a reply to a multi-turn conversation; see {@link Conversation#window}.
+     * Otherwise behaves like {@link #streamAsync(String, Duration, Consumer)}.
+     */
+    public CompletableFuture<String> streamAsync(Conversation.Window window, Duration timeout,
+                                                 Consumer<String> onChunk) {
+        JsonObject body = body(window);
+        return cached(body.toString(), onChunk, () -> fetchStream(buildRequest(body, true), timeout, onChunk));
+    }
+
+    /** {@link #streamAsync(Conversation.Window, Duration, Consumer)} with the default timeout. */
+    public CompletableFuture<String> streamAsync(Conversation.Window window, Consumer<String> onChunk) {
+        return streamAsync(window, DEFAULT_TIMEOUT, onChunk);
+    }
+
+    private CompletableFuture<String> fetchStream(Request request, Duration timeout, Consumer<String> onChunk) {
+        long start = System.nanoTime();
+        CompletableFuture<String> future = measured(new CompletableFuture<>());
+        Call call = client.newCall(request);
+        call.timeout().timeout(timeout.toMillis(), TimeUnit.MILLISECONDS);
+        call.enqueue(new Callback() {
+            @Override
+            public void onFailure(Call c, IOException e) {
+                future.completeExceptionally(e);
+            }
+
+            @Override
+            public void onResponse(Call c, Response response) {
+                try (response) {
+                    if (!response.isSuccessful()) {
+                        throw new IOException("HTTP " + response.code() + " " + response.message());
+                    }
+                    okio.BufferedSource source = response.body().source();
+                    GeminiStreamParser parser = new GeminiStreamParser();
+                    StringBuilder full = new StringBuilder();
+                    String line;
+                    while (!future.isDone() && (line = source.readUtf8Line()) != null) {
+                        boolean first = full.isEmpty();
+                        emit(parser.feed(line), full, onChunk);
+                        if (first && !full.isEmpty()) FIRST_CHUNK.recordSince(start);
+                    }
+                    emit(parser.flush(), full, onChunk);
+                    future.complete(full.toString());
+                } catch (Exception e) {
+                    future.completeExceptionally(e);
+                }
+            }
+        });
+        future.whenComplete((text, err) -> {
+            if (future.isCancelled()) call.cancel();
+        });
+        return future;
+    }
+
+    /** {@link #streamAsync(String, Duration, Consumer)} with the default timeout. */
+    public CompletableFuture<String> streamAsync(String prompt, Consumer<String> onChunk) {
+        return streamAsync(prompt, DEFAULT_TIMEOUT, onChunk);
+    }
+
+    /**
+     * Answer from the cache if possible, otherwise run {@code fetch} and cache its reply.
+     * Cancelling the returned future cancels the fetch.
+     *
+     * @param request the prompt, or the request body for multi-turn calls; used as the cache key
+     */
+    private CompletableFuture<String> cached(String request, Consumer<String> onHit,
+                                             java.util.function.Supplier<CompletableFuture<String>> fetch) {
+        if (cache == null) return fetch.get();
+        String key = ResponseCache.key(MODEL, request);
+        CompletableFuture<String> result = new CompletableFuture<>();
+        cache.lookup(key).whenComplete((hit, lookupErr) -> {
+            if (result.isDone()) return;   // cancelled while looking up
+            if (hit != null && hit.isPresent()) {
+                onHit.accept(hit.get());
+                result.complete(hit.get());
+                return;
+            }
+            CompletableFuture<String> call = fetch.get();
+            result.whenComplete((text, err) -> {
+                if (result.isCancelled()) call.cancel(true);
+            });
+            call.whenComplete((text, err) -> {
+                if (err != null) {
+                    result.completeExceptionally(err);
+                } else {
+                    cache.put(key, MODEL, text);
+                    result.complete(text);
+                }
+            });
+        });
+        return result;
+    }
+
+    /** Count the call and record its duration and outcome when {@code future} completes. */
+    private static CompletableFuture<String> measured(CompletableFuture<String> future) {
+        REQUESTS.inc();
+        long start = System.nanoTime();
+        future.whenComplete((text, err) -> {
+            REQUEST_TIME.recordSince(start);
+            if (err != null && !future.isCancelled()) ERRORS.inc();
+        });
+        return future;
+    }
+
+    private static void emit(String chunk, StringBuilder full, Consumer<String> onChunk) {
+        if (chunk == null || chunk.isEmpty()) return;
+        full.append(chunk);
+        onChunk.accept(chunk);
+    }
+
+    static JsonObject body(String prompt) {
+        JsonObject body = new JsonObject();
+        body.add("contents", new JsonArray());
+        body.getAsJsonArray("contents").add(content(null, prompt));
+        return body;
+    }
+
+    static JsonObject body(Conversation.Window window) {
+        JsonObject body = new JsonObject();
+        body.add("systemInstruction", content(null, window.systemInstruction()));
+        JsonArray contents = new JsonArray();
+        for (Conversation.Turn turn : window.turns()) {
+            contents.add(content(turn.role().apiName, turn.text()));
         }
+        body.add("contents", contents);
+        return body;
+    }
+
+    private static JsonObject content(String role, String text) {
+        JsonObject textPart = new JsonObject();
+        textPart.addProperty("text", text);
+
+        JsonObject content = new JsonObject();
+        if (role != null) content.addProperty("role", role);
+        content.add("parts", new JsonArray());
+        content.getAsJsonArray("parts").add(textPart);
+        return content;
+    }
+
+    private Request buildRequest(JsonObject body, boolean stream) {
+        return new Request.Builder()
+                .url(baseUrl + MODEL + (stream ? ":streamGenerateContent?alt=sse&key=" : ":generateContent?key=") + apiKey)
+                .post(RequestBody.create(body.toString(), JSON))
+                .build();
+    }
+
+    /** Pull the first candidate's text out of a generateContent response. */
+    static String parseText(String resp) {
+        JsonObject json = JsonParser.parseString(resp).getAsJsonObject();
+        return json.getAsJsonArray("candidates")
+                .get(0).getAsJsonObject()
+                .getAsJsonObject("content")
+                .getAsJsonArray("parts")
+                .get(0).getAsJsonObject()
+                .get("text").getAsString();
     }
 }
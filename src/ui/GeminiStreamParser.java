@@ -0,0 +1,54 @@
+package ui;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+/**
+ * Incremental parser for the server-sent events of {@code streamGenerateContent?alt=sse}.
+ *
+ * Feed it one line at a time; whenever an event is complete (blank line) the text
+ * parts of its JSON payload are returned. Each event carries only the new text,
+ * so the caller appends what it gets.
+ */
+class GeminiStreamParser {
+    private final StringBuilder data = new StringBuilder();
+
+    /** @return new text completed by this line, or null if the event is not finished yet */
+    String feed(String line) {
+        if (line.isEmpty()) return flush();
+        if (line.startsWith("data:")) {
+            if (!data.isEmpty()) data.append('\n');
+            data.append(line, line.startsWith("data: ") ? 6 : 5, line.length());
+        }
+        // other SSE fields (event:, id:, comments) carry nothing we need
+        return null;
+    }
+
+    /** Parse whatever is buffered; call once more at end of stream. */
+    String flush() {
+        if (data.isEmpty()) return null;
+        String payload = data.toString();
+        data.setLength(0);
+        return textOf(payload);
+    }
+
+    static String textOf(String payload) {
+        JsonObject json = JsonParser.parseString(payload).getAsJsonObject();
+        if (json.has("error")) {
+            JsonObject err = json.getAsJsonObject("error");
+            throw new IllegalStateException(err.has("message") ? err.get("message").getAsString() : err.toString());
+        }
+        JsonArray candidates = json.getAsJsonArray("candidates");
+        if (candidates == null || candidates.isEmpty()) return "";
+        JsonObject content = candidates.get(0).getAsJsonObject().getAsJsonObject("content");
+        if (content == null || !content.has("parts")) return "";
+        StringBuilder sb = new StringBuilder();
+        for (JsonElement part : content.getAsJsonArray("parts")) {
+            JsonElement text = part.getAsJsonObject().get("text");
+            if (text != null) sb.append(text.getAsString());
+        }
+        return sb.toString();
+    }
+}
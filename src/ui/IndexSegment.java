@@ -0,0 +1,307 @@
+package ui;
+
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * An immutable piece of the {@link TextIndex}: some documents, their passages,
+ * and a sorted term dictionary pointing into one postings array.
+ *
+ * Postings are (passage, term frequency) pairs with passage numbers
+ * delta-encoded, all as varints, so a common term costs about two bytes per
+ * passage. The file is the same layout preceded by a header; it is read back
+ * in one go.
+ */
+final class IndexSegment {
+    private static final int MAGIC = 0x534D4958;   // "SMIX"
+    private static final int VERSION = 1;
+
+    final String[] docs;          // file paths
+    final int[] passageDoc;
+    final int[] passageStart;     // char offsets into the document
+    final int[] passageEnd;
+    final int[] passageTerms;     // passage length in terms, for BM25
+    final String[] terms;         // sorted
+    final int[] docFreq;          // passages containing the term
+    final int[] postingsAt;       // offset of each term's postings; one extra entry marks the end
+    final byte[] postings;
+
+    private IndexSegment(String[] docs, int[] passageDoc, int[] passageStart, int[] passageEnd, int[] passageTerms,
+                         String[] terms, int[] docFreq, int[] postingsAt, byte[] postings) {
+        this.docs = docs;
+        this.passageDoc = passageDoc;
+        this.passageStart = passageStart;
+        this.passageEnd = passageEnd;
+        this.passageTerms = passageTerms;
+        this.terms = terms;
+        this.docFreq = docFreq;
+        this.postingsAt = postingsAt;
+        this.postings = postings;
+    }
+
+    int passageCount() {
+        return passageDoc.length;
+    }
+
+    long totalTerms() {
+        long sum = 0;
+        for (int n : passageTerms) sum += n;
+        return sum;
+    }
+
+    /** Dictionary slot of {@code term}, or -1. */
+    int find(String term) {
+        int i = Arrays.binarySearch(terms, term);
+        return i < 0 ? -1 : i;
+    }
+
+    /** Walks one term's postings. */
+    final class Postings {
+        private int at;
+        private final int end;
+        int passage = -1;
+        int freq;
+
+        Postings(int slot) {
+            at = postingsAt[slot];
+            end = postingsAt[slot + 1];
+        }
+
+        boolean next() {
+            if (at >= end) return false;
+            passage += readVarint() + (passage < 0 ? 1 : 0);
+            freq = readVarint();
+            return true;
+        }
+
+        private int readVarint() {
+            int v = 0;
+            for (int shift = 0; ; shift += 7) {
+                byte b = postings[at++];
+                v |= (b & 0x7F) << shift;
+                if (b >= 0) return v;
+            }
+        }
+    }
+
+    // ===== Building =====
+
+    /** Collects documents in memory and turns them into a segment. */
+    static final class Builder {
+        private final List<String> docs = new ArrayList<>();
+        private final IntList passageDoc = new IntList();
+        private final IntList passageStart = new IntList();
+        private final IntList passageEnd = new IntList();
+        private final IntList passageTerms = new IntList();
+        private final TreeMap<String, IntList> postings = new TreeMap<>();   // passage, freq, passage, freq...
+
+        void add(String path, String text) {
+            addPassages(startDocument(path), text, 0);
+        }
+
+        /** Register a document whose text is then fed in pieces with {@link #addPassages}. */
+        int startDocument(String path) {
+            docs.add(path);
+            return docs.size() - 1;
+        }
+
+        /** Index the passages of {@code text}, a piece of document {@code doc} starting at char {@code base}. */
+        void addPassages(int doc, String text, int base) {
+            Map<String, int[]> counts = new HashMap<>();
+            for (int[] p : TextTokenizer.passages(text)) {
+                int passage = passageDoc.size;
+                counts.clear();
+                int[] length = new int[1];
+                TextTokenizer.tokenize(text, p[0], p[1], t -> {
+                    counts.computeIfAbsent(t, k -> new int[1])[0]++;
+                    length[0]++;
+                });
+                if (length[0] == 0) continue;
+                passageDoc.add(doc);
+                passageStart.add(base + p[0]);
+                passageEnd.add(base + p[1]);
+                passageTerms.add(length[0]);
+                for (Map.Entry<String, int[]> e : counts.entrySet()) {
+                    IntList list = postings.computeIfAbsent(e.getKey(), k -> new IntList());
+                    list.add(passage);
+                    list.add(e.getValue()[0]);
+                }
+            }
+        }
+
+        /** Append every document of {@code s}, keeping its passages and postings. */
+        void add(IndexSegment s) {
+            add(s, Set.of());
+        }
+
+        /** Append the documents of {@code s} except those named in {@code dropped}. */
+        void add(IndexSegment s, Set<String> dropped) {
+            int[] docMap = new int[s.docs.length];
+            for (int d = 0; d < s.docs.length; d++) {
+                docMap[d] = dropped.contains(s.docs[d]) ? -1 : startDocument(s.docs[d]);
+            }
+            int[] passageMap = new int[s.passageCount()];
+            for (int i = 0; i < s.passageCount(); i++) {
+                int doc = docMap[s.passageDoc[i]];
+                if (doc < 0) {
+                    passageMap[i] = -1;
+                    continue;
+                }
+                passageMap[i] = passageDoc.size;
+                passageDoc.add(doc);
+                passageStart.add(s.passageStart[i]);
+                passageEnd.add(s.passageEnd[i]);
+                passageTerms.add(s.passageTerms[i]);
+            }
+            for (int t = 0; t < s.terms.length; t++) {
+                IntList list = null;
+                Postings p = s.new Postings(t);
+                while (p.next()) {
+                    int passage = passageMap[p.passage];
+                    if (passage < 0) continue;
+                    if (list == null) list = postings.computeIfAbsent(s.terms[t], k -> new IntList());
+                    list.add(passage);
+                    list.add(p.freq);
+                }
+            }
+        }
+
+        boolean isEmpty() {
+            return docs.isEmpty();
+        }
+
+        IndexSegment build() {
+            String[] terms = postings.keySet().toArray(new String[0]);
+            int[] docFreq = new int[terms.length];
+            int[] at = new int[terms.length + 1];
+            VarintOut out = new VarintOut();
+            int t = 0;
+            for (IntList list : postings.values()) {
+                at[t] = out.size;
+                docFreq[t] = list.size / 2;
+                int prev = -1;
+                for (int i = 0; i < list.size; i += 2) {
+                    out.write(list.data[i] - prev - (prev < 0 ? 1 : 0));
+                    out.write(list.data[i + 1]);
+                    prev = list.data[i];
+                }
+                t++;
+            }
+            at[terms.length] = out.size;
+            return new IndexSegment(docs.toArray(new String[0]), passageDoc.toArray(), passageStart.toArray(),
+                    passageEnd.toArray(), passageTerms.toArray(), terms, docFreq, at,
+                    Arrays.copyOf(out.bytes, out.size));
+        }
+    }
+
+    // ===== Storage =====
+
+    void write(Path file) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(docs.length);
+            for (String d : docs) out.writeUTF(d);
+            VarintOut v = new VarintOut();
+            int prevDoc = 0;
+            for (int i = 0; i < passageCount(); i++) {
+                v.write(passageDoc[i] - prevDoc);
+                v.write(passageStart[i]);
+                v.write(passageEnd[i] - passageStart[i]);
+                v.write(passageTerms[i]);
+                prevDoc = passageDoc[i];
+            }
+            out.writeInt(passageCount());
+            out.writeInt(v.size);
+            out.write(v.bytes, 0, v.size);
+            out.writeInt(terms.length);
+            for (int t = 0; t < terms.length; t++) {
+                out.writeUTF(terms[t]);
+                out.writeInt(docFreq[t]);
+                out.writeInt(postingsAt[t + 1] - postingsAt[t]);
+            }
+            out.writeInt(postings.length);
+            out.write(postings);
+        }
+    }
+
+    static IndexSegment read(Path file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(Files.readAllBytes(file)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) throw new IOException("Not an index segment: " + file);
+            String[] docs = new String[in.readInt()];
+            for (int i = 0; i < docs.length; i++) docs[i] = in.readUTF();
+            int passages = in.readInt();
+            byte[] table = new byte[in.readInt()];
+            in.readFully(table);
+            int[] doc = new int[passages], start = new int[passages], end = new int[passages], len = new int[passages];
+            int[] pos = {0};
+            int prevDoc = 0;
+            for (int i = 0; i < passages; i++) {
+                doc[i] = prevDoc += varint(table, pos);
+                start[i] = varint(table, pos);
+                end[i] = start[i] + varint(table, pos);
+                len[i] = varint(table, pos);
+            }
+            String[] terms = new String[in.readInt()];
+            int[] docFreq = new int[terms.length];
+            int[] at = new int[terms.length + 1];
+            for (int t = 0; t < terms.length; t++) {
+                terms[t] = in.readUTF();
+                docFreq[t] = in.readInt();
+                at[t + 1] = at[t] + in.readInt();
+            }
+            byte[] postings = new byte[in.readInt()];
+            in.readFully(postings);
+            return new IndexSegment(docs, doc, start, end, len, terms, docFreq, at, postings);
+        }
+    }
+
+    private static int varint(byte[] b, int[] pos) {
+        int v = 0;
+        for (int shift = 0; ; shift += 7) {
+            byte x = b[pos[0]++];
+            v |= (x & 0x7F) << shift;
+            if (x >= 0) return v;
+        }
+    }
+
+    private static final class VarintOut {
+        byte[] bytes = new byte[1024];
+        int size;
+
+        void write(int v) {
+            if (size + 5 > bytes.length) bytes = Arrays.copyOf(bytes, bytes.length * 2);
+            while ((v & ~0x7F) != 0) {
+                bytes[size++] = (byte) ((v & 0x7F) | 0x80);
+                v >>>= 7;
+            }
+            bytes[size++] = (byte) v;
+        }
+    }
+
+    private static final class IntList {
+        int[] data = new int[8];
+        int size;
+
+        void add(int v) {
+            if (size == data.length) data = Arrays.copyOf(data, size * 2);
+            data[size++] = v;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(data, size);
+        }
+    }
+}
@@ -0,0 +1,252 @@
+package ui;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import javafx.scene.control.TextFormatter;
+import javafx.scene.control.TextInputControl;
+import model.TypingSession;
+
+/**
+ * Log of what was typed against a target passage, with running WPM and accuracy.
+ *
+ * Each typed or deleted character becomes one record (time, position, char,
+ * flags) in a pair of primitive arrays used as a ring buffer: it grows up to
+ * {@link #MAX_RECORDS} and then overwrites the oldest records. The counters are
+ * updated per edit, so stats never rescan the typed text.
+ *
+ * {@link #attach} installs a formatter that reports where each edit happened;
+ * {@link #record} then only looks at the changed characters. Without it the edit
+ * is found by comparing old and new text. Single-character inserts are also fed
+ * to a {@link TypingAnalytics} for latency and per-key stats. Call from the FX thread.
+ */
+public final class KeystrokeRecorder {
+    public static final int MAX_RECORDS = 1 << 16;
+    private static final int INITIAL_RECORDS = 1 << 10;
+
+    private static final int CORRECT = 1;
+    private static final int DELETE = 2;
+
+    private final TypingAnalytics analytics = new TypingAnalytics();
+    private long[] times = new long[INITIAL_RECORDS];
+    private long[] codes = new long[INITIAL_RECORDS];   // position << 32 | flags << 16 | char
+    private int head;   // index of the oldest record
+    private int size;
+
+    private String target = "";
+    private int typedLength;
+    private int keystrokes;
+    private int correctKeystrokes;
+    private int deletions;
+    private long firstNanos;
+    private long lastNanos;
+
+    // range of the edit in flight, set by the formatter; -1 = unknown
+    private int editStart = -1;
+    private int editRemoved;
+    private int editInserted;
+
+    /** Report every edit of {@code input} to this recorder (replaces its text formatter). */
+    public void attach(TextInputControl input) {
+        input.setTextFormatter(new TextFormatter<String>(change -> {
+            if (change.isContentChange()) {
+                edit(change.getRangeStart(), change.getRangeEnd() - change.getRangeStart(), change.getText().length());
+            }
+            return change;
+        }));
+    }
+
+    /** Announce the range of the next {@link #record}ed edit; {@link #attach} does this for a control. */
+    public void edit(int start, int removed, int inserted) {
+        editStart = start;
+        editRemoved = removed;
+        editInserted = inserted;
+    }
+
+    /** Clear the log and counters for a new passage. */
+    public void reset(String target) {
+        this.target = target == null ? "" : target;
+        head = 0;
+        size = 0;
+        typedLength = 0;
+        keystrokes = 0;
+        correctKeystrokes = 0;
+        deletions = 0;
+        firstNanos = 0;
+        lastNanos = 0;
+        editStart = -1;
+        analytics.reset();
+    }
+
+    /**
+     * Log the edit that turned {@code oldText} into {@code newText}; call from the
+     * text property listener.
+     *
+     * @return the position where the edit started
+     */
+    public int record(String oldText, String newText, long nanos) {
+        int start = editStart;
+        int removed = editRemoved;
+        int inserted = editInserted;
+        editStart = -1;
+        if (start < 0 || oldText.length() - removed + inserted != newText.length()) {
+            // no formatter attached (or out of sync): find the changed range by comparison
+            int max = Math.min(oldText.length(), newText.length());
+            start = 0;
+            while (start < max && oldText.charAt(start) == newText.charAt(start)) start++;
+            int tail = 0;
+            while (tail < max - start
+                    && oldText.charAt(oldText.length() - 1 - tail) == newText.charAt(newText.length() - 1 - tail)) {
+                tail++;
+            }
+            removed = oldText.length() - start - tail;
+            inserted = newText.length() - start - tail;
+        }
+
+        if (removed == 0 && inserted == 0) return start;
+        if (firstNanos == 0) firstNanos = nanos;
+        lastNanos = nanos;
+
+        for (int i = removed - 1; i >= 0; i--) {     // backspace order: last char first
+            append(nanos, start + i, oldText.charAt(start + i), DELETE);
+        }
+        deletions += removed;
+        for (int i = 0; i < inserted; i++) {
+            int pos = start + i;
+            char c = newText.charAt(pos);
+            char expected = pos < target.length() ? target.charAt(pos) : 0;
+            boolean ok = expected == c;
+            append(nanos, pos, c, ok ? CORRECT : 0);
+            if (ok) correctKeystrokes++;
+            if (removed == 0 && inserted == 1) analytics.key(c, expected, ok, nanos);
+        }
+        if (removed != 0 || inserted != 1) analytics.breakRun(nanos);   // deletions and pastes aren't timed
+        keystrokes += inserted;
+        typedLength = newText.length();
+        return start;
+    }
+
+    private void append(long nanos, int position, char c, int flags) {
+        if (size == times.length && times.length < MAX_RECORDS) grow();
+        int i;
+        if (size < times.length) {
+            i = (head + size) % times.length;
+            size++;
+        } else {
+            i = head;                       // full: overwrite the oldest
+            head = (head + 1) % times.length;
+        }
+        times[i] = nanos;
+        codes[i] = (long) position << 32 | (long) flags << 16 | c;
+    }
+
+    private void grow() {
+        long[] t = new long[times.length * 2];
+        long[] c = new long[codes.length * 2];
+        for (int k = 0; k < size; k++) {
+            int i = (head + k) % times.length;
+            t[k] = times[i];
+            c[k] = codes[i];
+        }
+        times = t;
+        codes = c;
+        head = 0;
+    }
+
+    /** Records currently held, oldest first at index 0. */
+    public int size() {
+        return size;
+    }
+
+    public long timeAt(int index) {
+        return times[slot(index)];
+    }
+
+    public int positionAt(int index) {
+        return (int) (codes[slot(index)] >>> 32);
+    }
+
+    public char charAt(int index) {
+        return (char) codes[slot(index)];
+    }
+
+    /** True for a typed character that matched the target at its position. */
+    public boolean isCorrect(int index) {
+        return (codes[slot(index)] >>> 16 & CORRECT) != 0;
+    }
+
+    /** True for a deleted character. */
+    public boolean isDeletion(int index) {
+        return (codes[slot(index)] >>> 16 & DELETE) != 0;
+    }
+
+    private int slot(int index) {
+        if (index < 0 || index >= size) throw new IndexOutOfBoundsException(index);
+        return (head + index) % times.length;
+    }
+
+    /** Characters typed (not counting deletions) since the last reset. */
+    public int keystrokes() {
+        return keystrokes;
+    }
+
+    public int correctKeystrokes() {
+        return correctKeystrokes;
+    }
+
+    public int deletions() {
+        return deletions;
+    }
+
+    /** Share of typed characters that were right when typed, 0-100; 0 before the first key. */
+    public double accuracy() {
+        return keystrokes == 0 ? 0.0 : 100.0 * correctKeystrokes / keystrokes;
+    }
+
+    /** Gross words per minute (5 chars = 1 word) from the first key to {@code nowNanos}. */
+    public double wpm(long nowNanos) {
+        if (firstNanos == 0) return 0.0;
+        double minutes = Math.max(1.0 / 60.0, (nowNanos - firstNanos) / 60e9);   // min 1 second
+        return (typedLength / 5.0) / minutes;
+    }
+
+    /** Latency and per-key stats of the single-character keystrokes since the last reset. */
+    public TypingAnalytics analytics() {
+        return analytics;
+    }
+
+    /**
+     * Summary of the session so far, for {@link model.TypingSessionDAO}. Allocates;
+     * call once when the session ends, not per key.
+     */
+    public TypingSession summarize(String mode, long nowNanos) {
+        LatencyHistogram h = analytics.latency();
+        JsonObject keys = new JsonObject();
+        for (char c = ' '; c <= '~'; c++) {
+            if (analytics.keyCount(c) == 0 && analytics.keyErrors(c) == 0) continue;
+            JsonArray k = new JsonArray();
+            k.add(analytics.keyCount(c));
+            k.add(Math.round(analytics.keyLatencyMs(c) * 10) / 10.0);
+            k.add(analytics.keyErrors(c));
+            keys.add(String.valueOf(c), k);
+        }
+        JsonObject bigrams = new JsonObject();
+        for (String b : analytics.slowestBigrams(10, 3)) {
+            bigrams.addProperty(b, Math.round(analytics.bigramLatencyMs(b.charAt(0), b.charAt(1)) * 10) / 10.0);
+        }
+        JsonObject json = new JsonObject();
+        json.add("keys", keys);                // char -> [count, mean ms, errors]
+        json.add("slowBigrams", bigrams);      // bigram -> mean ms
+
+        long userId = Session.isLoggedIn() ? Session.getCurrentUser().getId() : 0;
+        return new TypingSession(0, userId, mode, TypingSessionLog.textKey(target), System.currentTimeMillis(),
+                firstNanos == 0 ? 0 : (lastNanos - firstNanos) / 1_000_000,
+                keystrokes, keystrokes - correctKeystrokes, wpm(nowNanos), accuracy(),
+                h.percentile(50) / 1000.0, h.percentile(90) / 1000.0, h.percentile(99) / 1000.0,
+                analytics.consistency(), json.toString());
+    }
+
+    /** Time of the latest edit, 0 if none. */
+    public long lastNanos() {
+        return lastNanos;
+    }
+}
@@ -0,0 +1,102 @@
+package ui;
+
+import java.util.Arrays;
+
+/**
+ * Fixed-size log-linear histogram of durations in microseconds, in the style of
+ * HdrHistogram: exact below 64 us, then 32 buckets per power of two (about 3%
+ * relative precision) up to roughly 19 hours.
+ *
+ * Recording is a few shifts and an array increment; nothing is allocated after
+ * construction. Not thread-safe.
+ */
+public final class LatencyHistogram {
+    private static final int SUB_BUCKETS = 64;
+    private static final int HALF = SUB_BUCKETS / 2;
+    private static final int MAX_SHIFT = 31;
+
+    private final long[] counts = new long[SUB_BUCKETS + MAX_SHIFT * HALF];
+    private long total;
+    private long sum;
+    private double sumSquares;
+    private long min = Long.MAX_VALUE;
+    private long max;
+
+    public void record(long micros) {
+        if (micros < 0) micros = 0;
+        counts[indexOf(micros)]++;
+        total++;
+        sum += micros;
+        sumSquares += (double) micros * micros;
+        if (micros < min) min = micros;
+        if (micros > max) max = micros;
+    }
+
+    public void reset() {
+        Arrays.fill(counts, 0);
+        total = 0;
+        sum = 0;
+        sumSquares = 0;
+        min = Long.MAX_VALUE;
+        max = 0;
+    }
+
+    /** Fold another histogram's samples into this one. */
+    public void add(LatencyHistogram other) {
+        for (int i = 0; i < counts.length; i++) counts[i] += other.counts[i];
+        total += other.total;
+        sum += other.sum;
+        sumSquares += other.sumSquares;
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+    }
+
+    public long count() {
+        return total;
+    }
+
+    public double mean() {
+        return total == 0 ? 0 : (double) sum / total;
+    }
+
+    public double stdDev() {
+        if (total == 0) return 0;
+        double m = mean();
+        return Math.sqrt(Math.max(0, sumSquares / total - m * m));
+    }
+
+    public long min() {
+        return total == 0 ? 0 : min;
+    }
+
+    public long max() {
+        return max;
+    }
+
+    /** Value at the given percentile (0-100), to the histogram's precision. */
+    public long percentile(double p) {
+        if (total == 0) return 0;
+        long rank = Math.max(1, (long) Math.ceil(p / 100.0 * total));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) return Math.min(max, highestValueAt(i));
+        }
+        return max;
+    }
+
+    static int indexOf(long v) {
+        if (v < SUB_BUCKETS) return (int) v;
+        int shift = 63 - Long.numberOfLeadingZeros(v) - 5;     // keeps the top 6 bits
+        if (shift > MAX_SHIFT) return SUB_BUCKETS + MAX_SHIFT * HALF - 1;
+        int mantissa = (int) (v >>> shift);                    // 32..63
+        return SUB_BUCKETS + (shift - 1) * HALF + (mantissa - HALF);
+    }
+
+    static long highestValueAt(int index) {
+        if (index < SUB_BUCKETS) return index;
+        int shift = (index - SUB_BUCKETS) / HALF + 1;
+        long mantissa = (index - SUB_BUCKETS) % HALF + HALF;
+        return ((mantissa + 1) << shift) - 1;
+    }
+}
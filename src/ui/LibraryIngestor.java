@@ -0,0 +1,407 @@
+package ui;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Consumer;
+
+/**
+ * Background pipeline that brings files into the {@link TextLibrary}:
+ * copy and hash, dedupe by content, extract text, index, ready.
+ *
+ * Callers only enqueue. A dispatcher thread feeds a small copy/hash pool, and
+ * that pool feeds a single indexing thread. Both have bounded queues whose
+ * submitters block when the queue is full, so a flood of files backs up in the
+ * cheap intake queue and never on the FX thread. A {@link WatchService} on the
+ * library directory picks up files dropped into it directly, once they have
+ * stopped changing, and re-hashes known files when they are edited in place.
+ *
+ * Content hashes live in {@code library.tsv} ({@code sha256 <tab> file name}),
+ * so a file whose content is already in the library is not stored twice. A
+ * duplicate dropped into the folder by hand stays on disk but is not listed;
+ * it is recorded with a third {@code duplicate} column so later scans skip it,
+ * until the file it copies is deleted.
+ */
+final class LibraryIngestor implements AutoCloseable {
+    private static final Logger LOG = LoggerFactory.getLogger(LibraryIngestor.class);
+    private static final String MANIFEST = "library.tsv";
+    private static final String TEMP_PREFIX = ".ingest-";
+    private static final String DUPLICATE = "duplicate";
+    private static final int COPY_THREADS = 2;
+    private static final int STAGE_QUEUE = 16;
+    private static final long SETTLE_MS = 500;     // a dropped file must be quiet this long before it is read
+
+    private record Job(Path source, boolean inPlace, CompletableFuture<TextLibrary.Ingested> done) {}
+
+    private final Path baseDir;
+    private final TextIndex index;
+    private final Path manifestFile;
+    private final Map<String, Path> byHash = new HashMap<>();       // guarded by this
+    private final Map<Path, String> byPath = new HashMap<>();       // guarded by this
+    private final Map<Path, String> duplicates = new HashMap<>();   // ignored copies in the folder; guarded by this
+    private final List<Path> files = new CopyOnWriteArrayList<>();
+    private final List<Consumer<TextLibrary.Ingested>> listeners = new CopyOnWriteArrayList<>();
+
+    private final BlockingQueue<Job> intake = new LinkedBlockingQueue<>();
+    private final ExecutorService copyStage = boundedPool("library-copy", COPY_THREADS);
+    private final ExecutorService indexStage = boundedPool("library-index", 1);
+    private final ScheduledExecutorService settle = Executors.newSingleThreadScheduledExecutor(r -> daemon(r, "library-watch-settle"));
+    private final Map<Path, ScheduledFuture<?>> settling = new ConcurrentHashMap<>();
+    private final WatchService watcher;
+    private final Thread dispatcher;
+    private final Set<CompletableFuture<TextLibrary.Ingested>> pending = ConcurrentHashMap.newKeySet();
+    private volatile boolean closed;
+
+    LibraryIngestor(Path baseDir, TextIndex index, Path manifestDir) throws IOException {
+        this.baseDir = baseDir;
+        this.index = index;
+        this.manifestFile = manifestDir.resolve(MANIFEST);
+        loadManifest();
+        dispatcher = daemon(this::dispatch, "library-intake");
+        dispatcher.start();
+
+        WatchService ws = null;
+        try {
+            ws = baseDir.getFileSystem().newWatchService();
+            baseDir.register(ws, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+            WatchService w = ws;
+            daemon(() -> watch(w), "library-watch").start();
+        } catch (IOException | UnsupportedOperationException e) {
+            LOG.warn("Library folder will not be watched: {}", e.getMessage());
+        }
+        watcher = ws;
+        daemon(this::scan, "library-scan").start();
+    }
+
+    List<Path> files() {
+        return Collections.unmodifiableList(files);
+    }
+
+    void addListener(Consumer<TextLibrary.Ingested> listener) {
+        listeners.add(listener);
+    }
+
+    /** Queue a file from outside the library; never blocks. Fails with an IOException once closed. */
+    CompletableFuture<TextLibrary.Ingested> submit(Path source) {
+        CompletableFuture<TextLibrary.Ingested> done = new CompletableFuture<>();
+        pending.add(done);
+        done.whenComplete((r, e) -> pending.remove(done));
+        intake.add(new Job(source, false, done));
+        if (closed) done.completeExceptionally(closedError());   // raced with close()
+        return done;
+    }
+
+    /** Stop every stage; submissions still queued or in flight fail instead of hanging. */
+    @Override
+    public void close() {
+        closed = true;
+        dispatcher.interrupt();
+        try {
+            if (watcher != null) watcher.close();
+        } catch (IOException ignored) {
+        }
+        settle.shutdownNow();
+        copyStage.shutdownNow();
+        indexStage.shutdownNow();
+        intake.clear();
+        for (CompletableFuture<TextLibrary.Ingested> f : pending) f.completeExceptionally(closedError());
+    }
+
+    private static IOException closedError() {
+        return new IOException("Library is closed");
+    }
+
+    // ===== Stages =====
+
+    private void dispatch() {
+        try {
+            while (!closed) {
+                Job job = intake.take();
+                copyStage.execute(() -> store(job));          // blocks while the copy stage is full
+            }
+        } catch (InterruptedException | RejectedExecutionException e) {
+            // shutting down
+        }
+    }
+
+    /** Copy (or read in place) while hashing, then keep the file only if its content is new. */
+    private void store(Job job) {
+        Path temp = null;
+        try {
+            MessageDigest sha = MessageDigest.getInstance("SHA-256");
+            if (job.inPlace()) {
+                try (InputStream in = new DigestInputStream(Files.newInputStream(job.source()), sha)) {
+                    in.transferTo(OutputStream.nullOutputStream());
+                }
+            } else {
+                temp = Files.createTempFile(baseDir, TEMP_PREFIX, ".tmp");
+                try (InputStream in = new DigestInputStream(Files.newInputStream(job.source()), sha);
+                     OutputStream out = Files.newOutputStream(temp)) {
+                    in.transferTo(out);
+                }
+            }
+            String hash = HexFormat.of().formatHex(sha.digest());
+            if (job.inPlace() && unchanged(job.source(), hash)) {
+                job.done().complete(new TextLibrary.Ingested(job.source(), hash, hashOf(job.source()) == null,
+                        index.contains(job.source())));
+                return;
+            }
+            if (job.inPlace() && hashOf(job.source()) != null) {
+                // A stored file edited in place: its old postings point at text that is gone.
+                contentChanged(job.source(), hash);
+                index.remove(job.source());
+                indexStage.execute(() -> extractAndIndex(job, job.source(), hash));
+                return;
+            }
+
+            Path target = job.inPlace() ? job.source()
+                    : baseDir.resolve(hash.substring(0, 12) + "_" + sanitize(job.source().getFileName().toString()));
+            Path existing = claim(hash, target);
+            if (existing != null) {
+                if (temp != null) {
+                    Files.deleteIfExists(temp);
+                } else if (!existing.equals(job.source())) {
+                    // Dropped in by the user: never delete it, just keep it out of the library's list.
+                    recordDuplicate(job.source(), hash);
+                    LOG.info("{} has the same content as {}; not added to the library",
+                            job.source().getFileName(), existing.getFileName());
+                }
+                finish(job, new TextLibrary.Ingested(existing, hash, true, index.contains(existing)));
+                return;
+            }
+            if (temp != null) Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            files.add(target);
+            indexStage.execute(() -> extractAndIndex(job, target, hash));   // blocks while indexing is behind
+        } catch (IOException | NoSuchAlgorithmException | RuntimeException e) {
+            try {
+                if (temp != null) Files.deleteIfExists(temp);
+            } catch (IOException ignored) {
+            }
+            job.done().completeExceptionally(e);
+        }
+    }
+
+    private void extractAndIndex(Job job, Path file, String hash) {
+        boolean indexed = false;
+        if (TextLibrary.isText(file)) {
+            try (PagedText text = PagedText.open(file)) {
+                index.add(file, text);
+                indexed = true;
+            } catch (IOException e) {
+                // Stored but not searchable; the next start tries again.
+                LOG.warn("Could not index {}: {}", file.getFileName(), e.getMessage());
+            }
+        }
+        finish(job, new TextLibrary.Ingested(file, hash, false, indexed));
+    }
+
+    private void finish(Job job, TextLibrary.Ingested result) {
+        job.done().complete(result);
+        if (result.duplicate()) return;
+        for (Consumer<TextLibrary.Ingested> l : listeners) {
+            try {
+                l.accept(result);
+            } catch (RuntimeException e) {
+                LOG.error("Library listener failed", e);
+            }
+        }
+    }
+
+    // ===== Content hashes =====
+
+    /** Record {@code hash} for {@code file}; returns the file already holding that content, if any. */
+    private synchronized Path claim(String hash, Path file) throws IOException {
+        Path existing = byHash.get(hash);
+        if (existing != null && (existing.equals(file) || Files.exists(existing))) return existing;
+        if (existing != null) byPath.remove(existing);    // its file was deleted; this copy takes over
+        byHash.put(hash, file);
+        byPath.put(file, hash);
+        duplicates.remove(file);
+        appendManifest(hash + "\t" + file.getFileName() + "\n");
+        return null;
+    }
+
+    /** True if {@code file} is known and still has the content recorded for it. */
+    private synchronized boolean unchanged(Path file, String hash) {
+        return hash.equals(byPath.get(file)) || hash.equals(duplicates.get(file));
+    }
+
+    /** A stored file now holds {@code hash}: move its entry over and rewrite the manifest. */
+    private synchronized void contentChanged(Path file, String hash) throws IOException {
+        String old = byPath.put(file, hash);
+        if (file.equals(byHash.get(old))) byHash.remove(old);
+        byHash.putIfAbsent(hash, file);
+        rewriteManifest();
+    }
+
+    /** Remember a hand-dropped copy of stored content, so it is not hashed again on every start. */
+    private synchronized void recordDuplicate(Path file, String hash) throws IOException {
+        if (hash.equals(duplicates.put(file, hash))) return;
+        appendManifest(hash + "\t" + file.getFileName() + "\t" + DUPLICATE + "\n");
+    }
+
+    private void appendManifest(String line) throws IOException {
+        Files.writeString(manifestFile, line, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+
+    /**
+     * Drop entries (and index postings) whose files are gone, rewriting the manifest
+     * if any were. Duplicates of a deleted file are returned, to be ingested again.
+     */
+    private synchronized List<Path> forgetMissing(Set<Path> onDisk) throws IOException {
+        List<Path> gone = new ArrayList<>();
+        for (Path p : byPath.keySet()) if (!onDisk.contains(p) && !Files.exists(p)) gone.add(p);
+        boolean copiesGone = duplicates.keySet().removeIf(p -> !onDisk.contains(p) && !Files.exists(p));
+        if (gone.isEmpty() && !copiesGone) return List.of();
+        Set<String> goneHashes = new HashSet<>();
+        for (Path p : gone) {
+            String hash = byPath.remove(p);
+            byHash.remove(hash);
+            goneHashes.add(hash);
+            index.remove(p);
+        }
+        files.removeAll(gone);
+        List<Path> orphaned = new ArrayList<>();
+        for (Map.Entry<Path, String> e : duplicates.entrySet()) {
+            if (goneHashes.contains(e.getValue())) orphaned.add(e.getKey());
+        }
+        orphaned.forEach(duplicates::remove);
+        rewriteManifest();
+        return orphaned;
+    }
+
+    private synchronized void rewriteManifest() throws IOException {
+        StringBuilder sb = new StringBuilder();
+        byPath.forEach((p, hash) -> sb.append(hash).append('\t').append(p.getFileName()).append('\n'));
+        duplicates.forEach((p, hash) -> sb.append(hash).append('\t').append(p.getFileName())
+                .append('\t').append(DUPLICATE).append('\n'));
+        Path tmp = manifestFile.resolveSibling(MANIFEST + ".tmp");
+        Files.writeString(tmp, sb, StandardCharsets.UTF_8);
+        Files.move(tmp, manifestFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /** True for stored files and for recorded duplicates. */
+    private synchronized boolean known(Path file) {
+        return byPath.containsKey(file) || duplicates.containsKey(file);
+    }
+
+    /** Content hash of a stored file; null for unknown files and duplicates. */
+    private synchronized String hashOf(Path file) {
+        return byPath.get(file);
+    }
+
+    private synchronized void loadManifest() throws IOException {
+        if (!Files.exists(manifestFile)) return;
+        for (String line : Files.readAllLines(manifestFile, StandardCharsets.UTF_8)) {
+            String[] cols = line.split("\t");
+            if (cols.length < 2 || cols[0].isEmpty()) continue;
+            Path file = baseDir.resolve(cols[1]);
+            if (cols.length > 2 && cols[2].equals(DUPLICATE)) {
+                duplicates.put(file, cols[0]);
+            } else {
+                byHash.put(cols[0], file);
+                byPath.put(file, cols[0]);
+                duplicates.remove(file);
+            }
+        }
+        duplicates.keySet().removeAll(byPath.keySet());
+        files.addAll(byPath.keySet());
+    }
+
+    /**
+     * Startup pass, off the caller's thread. Forget files deleted from disk, ingest
+     * ones that appeared while the app was closed, and index anything missing
+     * from the index.
+     */
+    private void scan() {
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(baseDir)) {
+            Set<Path> onDisk = new HashSet<>();
+            for (Path p : stream) {
+                if (!Files.isRegularFile(p) || ignored(p)) continue;
+                onDisk.add(p);
+                if (!known(p)) {
+                    intake.add(new Job(p, true, new CompletableFuture<>()));
+                    continue;
+                }
+                String hash = hashOf(p);
+                if (hash != null && TextLibrary.isText(p) && !index.contains(p)) {
+                    indexStage.execute(() -> extractAndIndex(new Job(p, true, new CompletableFuture<>()), p, hash));
+                }
+            }
+            for (Path p : forgetMissing(onDisk)) intake.add(new Job(p, true, new CompletableFuture<>()));
+        } catch (IOException | RejectedExecutionException e) {
+            if (!closed) LOG.warn("Library scan failed: {}", e.getMessage());
+        }
+    }
+
+    // ===== Watching =====
+
+    private void watch(WatchService ws) {
+        try {
+            while (!closed) {
+                WatchKey key = ws.take();
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (!(event.context() instanceof Path name)) continue;    // OVERFLOW: the next start's scan catches up
+                    Path file = baseDir.resolve(name);
+                    if (ignored(file)) continue;
+                    // Wait for the file to go quiet; every new event restarts the wait.
+                    settling.compute(file, (f, pending) -> {
+                        if (pending != null) pending.cancel(false);
+                        return settle.schedule(() -> settled(f), SETTLE_MS, TimeUnit.MILLISECONDS);
+                    });
+                }
+                if (!key.reset()) break;
+            }
+        } catch (InterruptedException | ClosedWatchServiceException | RejectedExecutionException e) {
+            // shutting down
+        }
+    }
+
+    /** New files are ingested; known ones are re-hashed, and re-indexed if their content changed. */
+    private void settled(Path file) {
+        settling.remove(file);
+        if (Files.isRegularFile(file)) intake.add(new Job(file, true, new CompletableFuture<>()));
+    }
+
+    private static boolean ignored(Path file) {
+        String name = file.getFileName().toString();
+        return name.startsWith(".") || name.endsWith(".tmp");
+    }
+
+    static String sanitize(String name) {
+        // Replace illegal filename characters on Windows/macOS/Linux
+        return name.replaceAll("[\\\\/:*?\"<>|]", "_");
+    }
+
+    private static ExecutorService boundedPool(String name, int threads) {
+        return new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(STAGE_QUEUE), r -> daemon(r, name),
+                (task, pool) -> {
+                    // Backpressure: wait for room instead of rejecting or running on the submitter.
+                    if (pool.isShutdown()) throw new RejectedExecutionException("library pipeline closed");
+                    try {
+                        pool.getQueue().put(task);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new RejectedExecutionException(e);
+                    }
+                });
+    }
+
+    private static Thread daemon(Runnable r, String name) {
+        Thread t = new Thread(r, name);
+        t.setDaemon(true);
+        return t;
+    }
+}
@@ -0,0 +1,224 @@
+package ui;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Read-only view of a UTF-8 text file that is memory-mapped and decoded one
+ * page at a time, so a multi-hundred-MB transcript costs a few pages of heap
+ * instead of a whole String.
+ *
+ * Pages are {@link #PAGE_BYTES} of the file, moved forward to the next character
+ * boundary. Decoded pages stay in a small LRU cache. Char offsets (as in
+ * {@link String#charAt}) are worked out lazily, up to the furthest page asked
+ * for, by counting well-formed UTF-8 without decoding it. A page that is not
+ * valid UTF-8 (say a cp1252 file) is decoded instead, so its count matches the
+ * U+FFFD replacements in {@link #page}. Not thread-safe.
+ */
+public final class PagedText implements Closeable {
+    public static final int PAGE_BYTES = 64 * 1024;
+    private static final long REGION_BYTES = 256L * 1024 * 1024;   // mapped lazily, a page never spans two
+    private static final int CACHED_PAGES = 16;
+    private static final long HIGH_BITS = 0x8080808080808080L;
+
+    private final FileChannel channel;
+    private final long size;
+    private final MappedByteBuffer[] regions;
+    private final int pageCount;
+    private long[] charStart;        // charStart[i] for i < counted; charStart[pageCount] is the total
+    private int counted;
+    private final CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    private final CharBuffer decoded = CharBuffer.allocate(PAGE_BYTES + 4);   // a page never has more chars than bytes
+    private final Map<Integer, String> cache = new LinkedHashMap<>(CACHED_PAGES, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, String> eldest) {
+            return size() > CACHED_PAGES;
+        }
+    };
+
+    private PagedText(FileChannel channel) throws IOException {
+        this.channel = channel;
+        this.size = channel.size();
+        this.regions = new MappedByteBuffer[(int) ((size + REGION_BYTES - 1) / REGION_BYTES)];
+        this.pageCount = (int) Math.max(1, (size + PAGE_BYTES - 1) / PAGE_BYTES);
+        this.charStart = new long[Math.min(pageCount + 1, 1024)];
+        this.counted = 1;          // page 0 starts at char 0
+    }
+
+    public static PagedText open(Path file) throws IOException {
+        return new PagedText(FileChannel.open(file, StandardOpenOption.READ));
+    }
+
+    public long byteLength() {
+        return size;
+    }
+
+    public int pageCount() {
+        return pageCount;
+    }
+
+    /** Decoded text of page {@code i}. */
+    public String page(int i) throws IOException {
+        String text = cache.get(i);
+        if (text == null) {
+            long from = pageStartByte(i);
+            long to = pageStartByte(i + 1);
+            ByteBuffer bytes = slice(from, (int) (to - from));
+            decoded.clear();
+            decoder.reset().decode(bytes, decoded, true);
+            decoder.flush(decoded);
+            text = decoded.flip().toString();
+            cache.put(i, text);
+        }
+        return text;
+    }
+
+    /** Char offset at which page {@code i} starts; page {@code pageCount()} gives the length. */
+    public long charOffset(int i) throws IOException {
+        countUpTo(i);
+        return charStart[i];
+    }
+
+    /** Length in chars. Counts the whole file the first time, without decoding it. */
+    public long charLength() throws IOException {
+        return charOffset(pageCount);
+    }
+
+    /** Page holding char {@code offset}. */
+    public int pageOf(long offset) throws IOException {
+        while (counted <= pageCount && charStart[counted - 1] <= offset) countUpTo(counted);
+        int i = Arrays.binarySearch(charStart, 0, counted, offset);
+        int page = i >= 0 ? i : -i - 2;
+        return Math.min(page, pageCount - 1);
+    }
+
+    /** Chars {@code [start, end)}, clipped to the text; decodes only the pages involved. */
+    public String text(long start, long end) throws IOException {
+        start = Math.max(0, start);
+        if (end <= start) return "";
+        StringBuilder sb = new StringBuilder((int) Math.min(end - start, 1 << 20));
+        for (int p = pageOf(start); p < pageCount && charOffset(p) < end; p++) {
+            String page = page(p);
+            long base = charOffset(p);
+            int from = (int) Math.max(0, start - base);
+            int to = (int) Math.min(page.length(), end - base);
+            if (from < to) sb.append(page, from, to);
+        }
+        return sb.toString();
+    }
+
+    @Override
+    public void close() throws IOException {
+        cache.clear();
+        Arrays.fill(regions, null);      // unmapped once collected
+        channel.close();
+    }
+
+    private void countUpTo(int page) throws IOException {
+        if (page > pageCount) throw new IndexOutOfBoundsException("page " + page);
+        while (counted <= page) {
+            if (counted == charStart.length) charStart = Arrays.copyOf(charStart, Math.min(pageCount + 1, counted * 2));
+            int prev = counted - 1;
+            charStart[counted] = charStart[prev] + countChars(prev);
+            counted++;
+        }
+    }
+
+    /** Chars in page {@code i}: counted if it is well-formed UTF-8, otherwise decoded. */
+    private long countChars(int i) throws IOException {
+        long from = pageStartByte(i);
+        long chars = countWellFormed(slice(from, (int) (pageStartByte(i + 1) - from)));
+        return chars >= 0 ? chars : page(i).length();
+    }
+
+    /**
+     * UTF-16 units encoded in {@code b}, or -1 at the first malformed sequence
+     * (the decoder's replacements are not worth mirroring). ASCII goes eight
+     * bytes at a time; other sequences are checked against the well-formed
+     * ranges of the Unicode standard (no overlongs, surrogates or values past
+     * U+10FFFF), and a 4-byte one counts as a surrogate pair.
+     */
+    private static long countWellFormed(ByteBuffer b) {
+        int n = b.remaining();
+        long chars = 0;
+        int i = 0;
+        while (i < n) {
+            if (i + 8 <= n && (b.getLong(i) & HIGH_BITS) == 0) {
+                chars += 8;
+                i += 8;
+                continue;
+            }
+            int x = b.get(i) & 0xFF;
+            if (x < 0x80) {
+                chars++;
+                i++;
+                continue;
+            }
+            int len;
+            int min = 0x80, max = 0xBF;          // allowed range of the second byte
+            if (x >= 0xC2 && x <= 0xDF) {
+                len = 2;
+            } else if (x >= 0xE0 && x <= 0xEF) {
+                len = 3;
+                if (x == 0xE0) min = 0xA0;
+                else if (x == 0xED) max = 0x9F;
+            } else if (x >= 0xF0 && x <= 0xF4) {
+                len = 4;
+                if (x == 0xF0) min = 0x90;
+                else if (x == 0xF4) max = 0x8F;
+            } else {
+                return -1;                       // stray continuation byte or invalid lead
+            }
+            if (i + len > n) return -1;
+            int second = b.get(i + 1) & 0xFF;
+            if (second < min || second > max) return -1;
+            for (int k = 2; k < len; k++) {
+                if ((b.get(i + k) & 0xC0) != 0x80) return -1;
+            }
+            chars += len == 4 ? 2 : 1;
+            i += len;
+        }
+        return chars;
+    }
+
+    /** Byte at which page {@code i} starts: i * PAGE_BYTES, moved past any continuation bytes. */
+    private long pageStartByte(int i) throws IOException {
+        if (i >= pageCount) return size;
+        long pos = (long) i * PAGE_BYTES;
+        for (int k = 0; k < 3 && pos < size && (byteAt(pos) & 0xC0) == 0x80; k++) pos++;
+        return pos;
+    }
+
+    private byte byteAt(long pos) throws IOException {
+        return region(pos).get((int) (pos % REGION_BYTES));
+    }
+
+    private ByteBuffer slice(long from, int length) throws IOException {
+        if (length == 0) return ByteBuffer.allocate(0);
+        return region(from).slice((int) (from % REGION_BYTES), length);
+    }
+
+    /** The region holding {@code pos}, mapped with 4 spare bytes so a page ending in the next one still fits. */
+    private MappedByteBuffer region(long pos) throws IOException {
+        int r = (int) (pos / REGION_BYTES);
+        if (regions[r] == null) {
+            long start = r * REGION_BYTES;
+            regions[r] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(size - start, REGION_BYTES + 4));
+        }
+        return regions[r];
+    }
+}
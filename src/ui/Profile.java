@@ -1,5 +1,12 @@
 package ui;
 
+import model.TypingRollup;
+
+/**
+ * A user's typing averages. The typing screens save each session through
+ * {@link TypingSessionLog}; these totals start from the stored all-time rollup
+ * and are kept current locally, so nothing is lost between runs.
+ */
 public class Profile {
     private final String username;
     private int totalSessions;
@@ -7,7 +14,15 @@ public class Profile {
     private double totalAccuracy;
 
     public Profile(String username) {
+        this(username, TypingRollup.empty(TypingRollup.ALL, ""));
+    }
+
+    /** @param totals the user's all-time rollup, e.g. from {@code TypingSessionDAO.rollup} */
+    public Profile(String username, TypingRollup totals) {
         this.username = username;
+        this.totalSessions = totals.getSessions();
+        this.totalWpm = totals.getAverageWpm() * totals.getSessions();
+        this.totalAccuracy = totals.getAverageAccuracy() * totals.getSessions();
     }
 
     // Updated method name to match TypingExercisePanel call
@@ -17,11 +32,8 @@ public class Profile {
         totalAccuracy += accuracy;
     }
 
-    // Optional: keep the old method for doubles if you want
-    public void recordSession(double wpm, double accuracy) {
-        totalSessions++;
-        totalWpm += wpm;
-        totalAccuracy += accuracy;
+    public int getTotalSessions() {
+        return totalSessions;
     }
 
     public double getAverageWpm() {
@@ -35,4 +47,4 @@ public class Profile {
     public String getUsername() {
         return username;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,155 @@
+package ui;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Joins a {@link RaceServer}. Frames are read on a virtual thread and handed to
+ * a {@link Listener} there, so UI code must hop to the FX thread itself.
+ *
+ * {@link #sendProgress} never blocks: it keeps only the newest value, and a
+ * virtual thread sends it when the previous one has gone out.
+ */
+public final class RaceClient implements AutoCloseable {
+    private static final int NO_PROGRESS = -1;
+
+    /** Callbacks, all on the client's reader thread. */
+    public interface Listener {
+        default void welcome(int id) {}
+        default void joined(int id, String name) {}
+        default void left(int id) {}
+        default void started(String text) {}
+
+        /**
+         * Racers whose progress changed. The arrays are reused for the next tick,
+         * so copy what you keep. {@code serverNanos} is the server's clock when it
+         * built the tick.
+         */
+        default void tick(long serverNanos, int count, int[] ids, int[] correct, int[] typed) {}
+
+        default void finished(int id, int place, long millis) {}
+
+        /** The connection ended; {@code cause} is null after {@link #close()}. */
+        default void closed(IOException cause) {}
+    }
+
+    private final Socket socket;
+    private final OutputStream out;
+    private final Listener listener;
+    private final AtomicInteger pending = new AtomicInteger(NO_PROGRESS);
+    private final AtomicBoolean sending = new AtomicBoolean();
+    private volatile boolean closed;
+
+    private final int[] ids = new int[RaceServer.MAX_RACERS];
+    private final int[] correct = new int[RaceServer.MAX_RACERS];
+    private final int[] typed = new int[RaceServer.MAX_RACERS];
+
+    private RaceClient(Socket socket, Listener listener) throws IOException {
+        this.socket = socket;
+        this.out = new BufferedOutputStream(socket.getOutputStream(), 512);
+        this.listener = listener;
+    }
+
+    public static RaceClient connect(String host, int port, String name, Listener listener) throws IOException {
+        Socket socket = new Socket();
+        try {
+            socket.connect(new InetSocketAddress(host, port), 5_000);
+            socket.setTcpNoDelay(true);
+            RaceClient client = new RaceClient(socket, listener);
+            client.out.write(RaceProtocol.hello(name));
+            client.out.flush();
+            Thread.ofVirtual().name("race-client").start(client::readLoop);
+            return client;
+        } catch (IOException e) {
+            socket.close();
+            throw e;
+        }
+    }
+
+    /** Report how far this racer has got; only the latest value is sent. */
+    public void sendProgress(int correct, int typed) {
+        pending.set(Math.min(correct, 0xFFFF) << 16 | Math.min(typed, 0xFFFF));
+        if (sending.compareAndSet(false, true)) Thread.ofVirtual().start(this::drain);
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        try {
+            socket.close();
+        } catch (IOException ignored) {
+        }
+    }
+
+    private void drain() {
+        do {
+            int p = pending.getAndSet(NO_PROGRESS);
+            try {
+                if (p != NO_PROGRESS && !closed) {
+                    out.write(RaceProtocol.progress(p >>> 16, p & 0xFFFF));
+                    out.flush();
+                }
+            } catch (IOException e) {
+                close();                               // the reader reports it
+            }
+            sending.set(false);
+        } while (pending.get() != NO_PROGRESS && !closed && sending.compareAndSet(false, true));
+    }
+
+    private void readLoop() {
+        IOException cause = null;
+        try {
+            DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            ByteBuffer f = RaceProtocol.frameBuffer();
+            while (true) {
+                switch (RaceProtocol.read(in, f)) {
+                    case RaceProtocol.WELCOME -> listener.welcome(f.getShort() & 0xFFFF);
+                    case RaceProtocol.JOINED -> listener.joined(f.getShort() & 0xFFFF, RaceProtocol.readName(f));
+                    case RaceProtocol.LEFT -> listener.left(f.getShort() & 0xFFFF);
+                    case RaceProtocol.START -> listener.started(readText(in, f, f.getInt()));
+                    case RaceProtocol.TICK -> readTick(f);
+                    case RaceProtocol.FINISHED -> listener.finished(
+                            f.getShort() & 0xFFFF, f.getShort() & 0xFFFF, f.getInt() & 0xFFFFFFFFL);
+                    default -> { }                     // newer server; skip frames we don't know
+                }
+            }
+        } catch (IOException e) {
+            if (!closed) cause = e;
+        } finally {
+            close();
+            listener.closed(cause);
+        }
+    }
+
+    private static String readText(DataInputStream in, ByteBuffer f, int length) throws IOException {
+        byte[] text = new byte[length];
+        for (int off = 0; off < length; ) {
+            if (RaceProtocol.read(in, f) != RaceProtocol.CHUNK) throw new IOException("expected passage text");
+            int len = f.remaining();
+            f.get(text, off, len);
+            off += len;
+        }
+        return new String(text, StandardCharsets.UTF_8);
+    }
+
+    private void readTick(ByteBuffer f) {
+        f.getInt();                                    // sequence
+        long serverNanos = f.getLong();
+        int count = f.getShort() & 0xFFFF;
+        for (int i = 0; i < count; i++) {
+            ids[i] = f.getShort() & 0xFFFF;
+            correct[i] = f.getShort() & 0xFFFF;
+            typed[i] = correct[i] + (f.get() & 0xFF);
+        }
+        listener.tick(serverNanos, count, ids, correct, typed);
+    }
+}
@@ -0,0 +1,103 @@
+package ui;
+
+import javafx.animation.AnimationTimer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
+
+/**
+ * Runs {@link RaceOpponent}s against the clock, once per frame.
+ *
+ * Each frame advances every opponent to the current elapsed time and redraws
+ * only the lanes whose progress changed, through their {@link TypingHighlighter}.
+ * Work per frame is proportional to the opponents that moved, not to the
+ * passage length. Call from the FX thread.
+ */
+public final class RaceEngine {
+    private record Lane(RaceOpponent opponent, TypingHighlighter highlighter) {}
+
+    private final List<Lane> lanes = new ArrayList<>();
+    private LongConsumer onFrame = elapsed -> { };
+    private Consumer<RaceOpponent> onFinish = o -> { };
+    private long startNanos = -1;
+    private long elapsedNanos;
+    private int finished;
+
+    private final AnimationTimer timer = new AnimationTimer() {
+        @Override
+        public void handle(long now) {
+            if (startNanos < 0) startNanos = now;
+            frame(now - startNanos);
+        }
+    };
+
+    public void add(RaceOpponent opponent, TypingHighlighter highlighter) {
+        lanes.add(new Lane(opponent, highlighter));
+    }
+
+    public void clear() {
+        stop();
+        lanes.clear();
+    }
+
+    /** Called on every frame with the nanos since the start. */
+    public void setOnFrame(LongConsumer onFrame) {
+        this.onFrame = onFrame;
+    }
+
+    /** Called once per opponent when it completes the passage. */
+    public void setOnFinish(Consumer<RaceOpponent> onFinish) {
+        this.onFinish = onFinish;
+    }
+
+    /**
+     * Put every lane back at the start of {@code target}. Opponent seeds come from
+     * {@code seed}, so the same seed and passage give the same race.
+     */
+    public void reset(String target, long seed) {
+        stop();
+        SplittableRandom seeds = new SplittableRandom(seed);
+        for (Lane lane : lanes) {
+            lane.opponent().reset(target.length(), seeds.nextLong());
+            lane.highlighter().setTarget(target);
+        }
+        elapsedNanos = 0;
+        finished = 0;
+    }
+
+    /** Start the clock on the next frame. */
+    public void start() {
+        startNanos = -1;
+        timer.start();
+    }
+
+    public void stop() {
+        timer.stop();
+    }
+
+    public long elapsedNanos() {
+        return elapsedNanos;
+    }
+
+    /** How many opponents have finished so far. */
+    public int finishedCount() {
+        return finished;
+    }
+
+    private void frame(long elapsed) {
+        elapsedNanos = elapsed;
+        for (Lane lane : lanes) {
+            RaceOpponent o = lane.opponent();
+            if (o.isFinished() || !o.advance(elapsed)) continue;
+            lane.highlighter().render(o.correct(), o.typed());
+            if (o.isFinished()) {
+                finished++;
+                onFinish.accept(o);
+            }
+        }
+        onFrame.accept(elapsed);
+    }
+}
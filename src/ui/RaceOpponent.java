@@ -0,0 +1,98 @@
+package ui;
+
+import java.util.SplittableRandom;
+
+/**
+ * A simulated typist for races. Its progress is a pure function of the seed and
+ * the elapsed time, so a race replays exactly whatever the frame rate was.
+ *
+ * Keys come at the average speed of {@code wpm} with some jitter. With
+ * {@code burstiness} above 0 the typist sometimes rattles off a few characters
+ * quickly and then pauses. A mistake shows on the newest character until it is
+ * fixed, which takes two keystrokes' worth of time.
+ */
+public final class RaceOpponent {
+    private static final double BURST_SPEEDUP = 0.6;   // burst keys take 60% of the usual time
+
+    private final String name;
+    private final double wpm;
+    private final double accuracy;     // 0-100
+    private final double burstiness;   // 0-1: how often bursts start and how long the pauses after them are
+
+    private SplittableRandom rng;
+    private int length;
+    private int typed;
+    private boolean mistake;           // the last typed character is wrong
+    private int burstLeft;
+    private long nextAt;               // nanos since the start when the next key lands
+    private long finishedAt = -1;
+
+    public RaceOpponent(String name, double wpm, double accuracy, double burstiness) {
+        if (wpm <= 0) throw new IllegalArgumentException("wpm must be positive");
+        this.name = name;
+        this.wpm = wpm;
+        this.accuracy = Math.max(0, Math.min(100, accuracy));
+        this.burstiness = Math.max(0, Math.min(1, burstiness));
+        reset(0, 0);
+    }
+
+    /** Start over on a passage of {@code length} characters. */
+    public void reset(int length, long seed) {
+        this.rng = new SplittableRandom(seed);
+        this.length = length;
+        typed = 0;
+        mistake = false;
+        burstLeft = 0;
+        finishedAt = length == 0 ? 0 : -1;
+        nextAt = keyInterval();
+    }
+
+    /**
+     * Type every key due by {@code elapsedNanos}.
+     * @return whether anything visible changed
+     */
+    public boolean advance(long elapsedNanos) {
+        boolean changed = false;
+        while (finishedAt < 0 && nextAt <= elapsedNanos) {
+            long at = nextAt;
+            if (mistake) {
+                mistake = false;                       // backspace and retype
+                nextAt += keyInterval();
+            } else {
+                typed++;
+                mistake = rng.nextDouble() * 100 >= accuracy;
+                nextAt += mistake ? 2 * keyInterval() : keyInterval();
+            }
+            if (typed == length && !mistake) finishedAt = at;
+            changed = true;
+        }
+        return changed;
+    }
+
+    private long keyInterval() {
+        double base = 60e9 / (wpm * 5);
+        if (burstLeft > 0) {
+            burstLeft--;
+            if (burstLeft == 0) return (long) (base * (1 + 4 * burstiness * rng.nextDouble()));   // catch breath
+            return (long) (base * BURST_SPEEDUP);
+        }
+        if (rng.nextDouble() < burstiness * 0.1) burstLeft = 3 + rng.nextInt(8);
+        return (long) (base * (0.75 + 0.5 * rng.nextDouble()));
+    }
+
+    public String getName()        { return name; }
+    public double getWpm()         { return wpm; }
+    public double getAccuracy()    { return accuracy; }
+    public double getBurstiness()  { return burstiness; }
+
+    /** Characters typed, including a wrong last one. */
+    public int typed()             { return typed; }
+
+    /** Length of the correct prefix. */
+    public int correct()           { return mistake ? typed - 1 : typed; }
+
+    public boolean isFinished()    { return finishedAt >= 0; }
+
+    /** Nanos from the start to the last key, or -1 while still typing. */
+    public long finishedAt()       { return finishedAt; }
+}
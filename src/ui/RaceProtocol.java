@@ -0,0 +1,136 @@
+package ui;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Wire format shared by {@link RaceServer} and {@link RaceClient}.
+ *
+ * Every frame is {@code [u16 length][u8 type][payload]}, big-endian, where the
+ * length counts the type byte and the payload. START is the only frame that can
+ * get large, so it carries its text in follow-up CHUNK frames.
+ *
+ * <pre>
+ * client -> server
+ *   HELLO     u8 version, u16 nameLength, name (UTF-8)
+ *   PROGRESS  u16 correct, u16 typed
+ * server -> client
+ *   WELCOME   u16 id
+ *   JOINED    u16 id, u16 nameLength, name
+ *   LEFT      u16 id
+ *   START     i32 textLength; the text follows in CHUNK frames
+ *   CHUNK     up to MAX_PAYLOAD bytes of UTF-8 text
+ *   TICK      u32 sequence, i64 serverNanos, u16 count, count x (u16 id, u16 correct, u8 wrong)
+ *   FINISHED  u16 id, u16 place, i32 millis
+ * </pre>
+ *
+ * A TICK lists only racers whose progress changed since the previous one. The
+ * values are absolute, so a client that misses ticks catches up on a later one.
+ */
+final class RaceProtocol {
+    static final int VERSION = 1;
+    static final int MAX_PAYLOAD = 0xFFFF - 1;
+    static final int TICK_HEADER = 1 + 4 + 8 + 2;
+    static final int TICK_ENTRY = 5;
+
+    static final byte HELLO = 1;
+    static final byte PROGRESS = 2;
+
+    static final byte WELCOME = 10;
+    static final byte JOINED = 11;
+    static final byte LEFT = 12;
+    static final byte START = 13;
+    static final byte CHUNK = 14;
+    static final byte TICK = 15;
+    static final byte FINISHED = 16;
+
+    private RaceProtocol() {}
+
+    static byte[] hello(String name) {
+        byte[] n = utf8(name);
+        return ByteBuffer.allocate(2 + 1 + 1 + 2 + n.length)
+                .putShort((short) (1 + 1 + 2 + n.length)).put(HELLO)
+                .put((byte) VERSION).putShort((short) n.length).put(n).array();
+    }
+
+    static byte[] progress(int correct, int typed) {
+        return ByteBuffer.allocate(2 + 1 + 4)
+                .putShort((short) 5).put(PROGRESS)
+                .putShort((short) correct).putShort((short) typed).array();
+    }
+
+    static byte[] welcome(int id) {
+        return ByteBuffer.allocate(5).putShort((short) 3).put(WELCOME).putShort((short) id).array();
+    }
+
+    static byte[] joined(int id, String name) {
+        byte[] n = utf8(name);
+        return ByteBuffer.allocate(2 + 1 + 2 + 2 + n.length)
+                .putShort((short) (1 + 2 + 2 + n.length)).put(JOINED)
+                .putShort((short) id).putShort((short) n.length).put(n).array();
+    }
+
+    static byte[] left(int id) {
+        return ByteBuffer.allocate(5).putShort((short) 3).put(LEFT).putShort((short) id).array();
+    }
+
+    /** START followed by as many CHUNK frames as the text needs, as one buffer. */
+    static byte[] start(String text) {
+        byte[] t = text.getBytes(StandardCharsets.UTF_8);
+        int chunks = (t.length + MAX_PAYLOAD - 1) / MAX_PAYLOAD;
+        ByteBuffer b = ByteBuffer.allocate(7 + chunks * 3 + t.length);
+        b.putShort((short) 5).put(START).putInt(t.length);
+        for (int off = 0; off < t.length; off += MAX_PAYLOAD) {
+            int len = Math.min(MAX_PAYLOAD, t.length - off);
+            b.putShort((short) (1 + len)).put(CHUNK).put(t, off, len);
+        }
+        return b.array();
+    }
+
+    static byte[] finished(int id, int place, int millis) {
+        return ByteBuffer.allocate(2 + 1 + 8)
+                .putShort((short) 9).put(FINISHED)
+                .putShort((short) id).putShort((short) place).putInt(millis).array();
+    }
+
+    /** Frame header of a TICK with {@code count} entries; the caller appends them with {@link #tickEntry}. */
+    static ByteBuffer tick(int sequence, long serverNanos, int count) {
+        ByteBuffer b = ByteBuffer.allocate(2 + TICK_HEADER + count * TICK_ENTRY);
+        b.putShort((short) (TICK_HEADER + count * TICK_ENTRY)).put(TICK)
+                .putInt(sequence).putLong(serverNanos).putShort((short) count);
+        return b;
+    }
+
+    static void tickEntry(ByteBuffer b, int id, int correct, int typed) {
+        b.putShort((short) id).putShort((short) correct).put((byte) Math.min(255, typed - correct));
+    }
+
+    /** Read one frame into {@code buf}; returns its type. */
+    static int read(DataInputStream in, ByteBuffer buf) throws IOException {
+        int length = in.readUnsignedShort();
+        if (length == 0) throw new IOException("empty frame");
+        in.readFully(buf.array(), 0, length);
+        buf.limit(length).position(1);
+        return buf.get(0);
+    }
+
+    static ByteBuffer frameBuffer() {
+        return ByteBuffer.allocate(0xFFFF);
+    }
+
+    static String readName(ByteBuffer b) {
+        int len = b.getShort() & 0xFFFF;
+        String s = new String(b.array(), b.position(), len, StandardCharsets.UTF_8);
+        b.position(b.position() + len);
+        return s;
+    }
+
+    private static byte[] utf8(String s) {
+        byte[] b = (s == null ? "" : s).getBytes(StandardCharsets.UTF_8);
+        if (b.length > 256) b = Arrays.copyOf(b, 256);   // names are for display only
+        return b;
+    }
+}
@@ -0,0 +1,294 @@
+package ui;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Hosts a typing race on the LAN. See {@link RaceProtocol} for the frames.
+ *
+ * Every connection gets a virtual thread that reads its frames. Racer progress
+ * goes into a lock-free array. A ticker thread runs at {@link #TICK_HZ} and
+ * broadcasts one TICK holding whatever changed since the last tick. Each racer
+ * has its own outbox drained by a virtual thread. A racer that falls behind
+ * skips ticks and then gets a full snapshot, so one slow laptop cannot stall
+ * the rest of the room.
+ */
+public final class RaceServer implements AutoCloseable {
+    private static final Logger LOG = LoggerFactory.getLogger(RaceServer.class);
+    public static final int DEFAULT_PORT = 5599;
+    public static final int MAX_RACERS = 1024;
+    public static final int TICK_HZ = 20;
+    private static final int MAX_BACKLOG = 8;     // frames queued before a racer skips ticks
+
+    private final ServerSocket server;
+    private final ExecutorService threads = Executors.newVirtualThreadPerTaskExecutor();
+    private final ScheduledExecutorService ticker = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "race-ticker");
+        t.setDaemon(true);
+        return t;
+    });
+
+    // Race state, written by the connection threads and read by the ticker.
+    private final AtomicReferenceArray<Racer> racers = new AtomicReferenceArray<>(MAX_RACERS);
+    private final AtomicIntegerArray progress = new AtomicIntegerArray(MAX_RACERS);   // correct << 16 | typed
+    private final AtomicInteger places = new AtomicInteger();
+    private volatile String text;
+    private volatile int textLength;
+    private volatile long startNanos;
+
+    // Ticker thread only.
+    private final int[] sent = new int[MAX_RACERS];
+    private final int[] values = new int[MAX_RACERS];
+    private final int[] present = new int[MAX_RACERS];
+    private int sequence;
+
+    /** Listen on {@code port} (0 picks a free one) and start ticking. */
+    public RaceServer(int port) throws IOException {
+        server = new ServerSocket();
+        server.bind(new InetSocketAddress(port));
+        threads.execute(this::acceptLoop);
+        long period = 1_000_000_000L / TICK_HZ;
+        ticker.scheduleAtFixedRate(this::tick, period, period, TimeUnit.NANOSECONDS);
+    }
+
+    public int port() {
+        return server.getLocalPort();
+    }
+
+    public int racerCount() {
+        int n = 0;
+        for (int i = 0; i < MAX_RACERS; i++) if (racers.get(i) != null) n++;
+        return n;
+    }
+
+    /** Everyone starts typing {@code text} now; progress and places are reset. */
+    public void startRace(String text) {
+        if (text.length() > 0xFFFF) throw new IllegalArgumentException("Passage too long for a race");
+        for (int i = 0; i < MAX_RACERS; i++) {
+            progress.set(i, 0);
+            Racer r = racers.get(i);
+            if (r != null) r.finished.set(false);
+        }
+        places.set(0);
+        this.text = text;
+        this.textLength = text.length();
+        this.startNanos = System.nanoTime();
+        broadcast(RaceProtocol.start(text));
+    }
+
+    @Override
+    public void close() {
+        ticker.shutdownNow();
+        try {
+            server.close();
+        } catch (IOException ignored) {
+        }
+        for (int i = 0; i < MAX_RACERS; i++) {
+            Racer r = racers.get(i);
+            if (r != null) r.close();
+        }
+        threads.shutdownNow();
+    }
+
+    private void acceptLoop() {
+        while (!server.isClosed()) {
+            try {
+                Socket s = server.accept();
+                s.setTcpNoDelay(true);
+                threads.execute(() -> serve(s));
+            } catch (IOException e) {
+                if (!server.isClosed()) LOG.warn("Race server accept failed: {}", e.getMessage());
+            }
+        }
+    }
+
+    private void serve(Socket socket) {
+        Racer racer = null;
+        try (socket) {
+            DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            ByteBuffer frame = RaceProtocol.frameBuffer();
+            if (RaceProtocol.read(in, frame) != RaceProtocol.HELLO || (frame.get() & 0xFF) != RaceProtocol.VERSION) {
+                return;
+            }
+            racer = new Racer(socket.getOutputStream(), RaceProtocol.readName(frame));
+            if (!register(racer)) return;
+            while (true) {
+                if (RaceProtocol.read(in, frame) != RaceProtocol.PROGRESS) continue;   // ignore what we don't know
+                update(racer, frame.getShort() & 0xFFFF, frame.getShort() & 0xFFFF);
+            }
+        } catch (SocketException | java.io.EOFException e) {
+            // racer went away
+        } catch (IOException e) {
+            LOG.warn("Race connection failed: {}", e.getMessage());
+        } finally {
+            if (racer != null && racer.id >= 0) unregister(racer);
+        }
+    }
+
+    /** Claim a free slot and introduce the racer to the room. */
+    private boolean register(Racer racer) {
+        int id = -1;
+        for (int i = 0; i < MAX_RACERS && id < 0; i++) {
+            if (racers.compareAndSet(i, null, racer)) id = i;
+        }
+        if (id < 0) return false;
+        racer.id = id;
+        racer.send(RaceProtocol.welcome(id));
+        for (int i = 0; i < MAX_RACERS; i++) {
+            Racer other = racers.get(i);
+            if (other != null && other != racer) racer.send(RaceProtocol.joined(i, other.name));
+        }
+        broadcast(RaceProtocol.joined(id, racer.name));
+        String current = text;
+        if (current != null) racer.send(RaceProtocol.start(current));
+        racer.needsSnapshot = true;
+        return true;
+    }
+
+    private void unregister(Racer racer) {
+        progress.set(racer.id, 0);
+        racers.compareAndSet(racer.id, racer, null);
+        racer.close();
+        broadcast(RaceProtocol.left(racer.id));
+    }
+
+    private void update(Racer racer, int correct, int typed) {
+        if (text == null) return;
+        int length = textLength;
+        correct = Math.min(correct, length);
+        typed = Math.max(correct, Math.min(typed, length));
+        progress.set(racer.id, correct << 16 | typed);
+        if (correct == length && racer.finished.compareAndSet(false, true)) {
+            int millis = (int) ((System.nanoTime() - startNanos) / 1_000_000);
+            broadcast(RaceProtocol.finished(racer.id, places.incrementAndGet(), millis));
+        }
+    }
+
+    private void broadcast(byte[] frame) {
+        for (int i = 0; i < MAX_RACERS; i++) {
+            Racer r = racers.get(i);
+            if (r != null) r.send(frame);
+        }
+    }
+
+    /** Send what changed since the last tick; racers that are behind get a full snapshot once they catch up. */
+    private void tick() {
+        try {
+            int changed = 0;
+            int count = 0;
+            for (int i = 0; i < MAX_RACERS; i++) {
+                boolean here = racers.get(i) != null;
+                values[i] = here ? progress.get(i) : 0;
+                if (here) present[count++] = i;
+                if (values[i] != sent[i]) changed++;
+            }
+            long now = System.nanoTime();
+            byte[] delta = null;
+            if (changed > 0) {
+                ByteBuffer b = RaceProtocol.tick(sequence, now, changed);
+                for (int i = 0; i < MAX_RACERS; i++) {
+                    if (values[i] != sent[i]) RaceProtocol.tickEntry(b, i, values[i] >>> 16, values[i] & 0xFFFF);
+                }
+                delta = b.array();
+            }
+            System.arraycopy(values, 0, sent, 0, MAX_RACERS);
+
+            byte[] snapshot = null;
+            for (int i = 0; i < MAX_RACERS; i++) {
+                Racer r = racers.get(i);
+                if (r == null) continue;
+                if (r.backlog.get() >= MAX_BACKLOG) {
+                    r.needsSnapshot = true;           // skip this one; a snapshot replaces it later
+                } else if (r.needsSnapshot) {
+                    if (snapshot == null) snapshot = snapshot(now, count);
+                    r.needsSnapshot = false;
+                    r.send(snapshot);
+                } else if (delta != null) {
+                    r.send(delta);
+                }
+            }
+            if (delta != null || snapshot != null) sequence++;
+        } catch (RuntimeException e) {
+            LOG.error("Race tick failed", e);        // keep the ticker alive
+        }
+    }
+
+    /** Every racer present at this tick, for clients that skipped ticks or just joined. */
+    private byte[] snapshot(long now, int count) {
+        ByteBuffer b = RaceProtocol.tick(sequence, now, count);
+        for (int k = 0; k < count; k++) {
+            int id = present[k];
+            RaceProtocol.tickEntry(b, id, sent[id] >>> 16, sent[id] & 0xFFFF);
+        }
+        return b.array();
+    }
+
+    /** One connected racer and its outgoing queue. */
+    private final class Racer {
+        final String name;
+        final OutputStream out;
+        final ConcurrentLinkedQueue<byte[]> outbox = new ConcurrentLinkedQueue<>();
+        final AtomicInteger backlog = new AtomicInteger();
+        final AtomicBoolean draining = new AtomicBoolean();
+        final AtomicBoolean finished = new AtomicBoolean();
+        volatile int id = -1;
+        volatile boolean needsSnapshot;
+        volatile boolean closed;
+
+        Racer(OutputStream out, String name) {
+            this.out = new BufferedOutputStream(out, 8192);
+            this.name = name;
+        }
+
+        void send(byte[] frame) {
+            if (closed) return;
+            outbox.add(frame);
+            backlog.incrementAndGet();
+            if (draining.compareAndSet(false, true)) threads.execute(this::drain);
+        }
+
+        private void drain() {
+            do {
+                try {
+                    for (byte[] f; (f = outbox.poll()) != null; ) {
+                        backlog.decrementAndGet();
+                        out.write(f);
+                    }
+                    out.flush();
+                } catch (IOException e) {
+                    close();                           // the reader notices and unregisters
+                    outbox.clear();
+                }
+                draining.set(false);
+            } while (!outbox.isEmpty() && !closed && draining.compareAndSet(false, true));
+        }
+
+        void close() {
+            closed = true;
+            try {
+                out.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+}
@@ -0,0 +1,200 @@
+package ui;
+
+import model.ConnectionProvider;
+import model.Database;
+import model.Metrics;
+import model.ResponseCacheDAO;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Two-tier cache of AI replies keyed by a SHA-256 of the model and the full prompt
+ * (instruction prefix + user text): a small in-memory LRU in front of a SQLite table.
+ *
+ * A repeated prompt is answered without touching the network, so it also works
+ * offline. Entries expire after the TTL; the disk tier is capped in size and evicts
+ * least recently used replies. Disk reads and writes for the async paths run on a
+ * single background thread.
+ */
+public class ResponseCache {
+    private static final Logger LOG = LoggerFactory.getLogger(ResponseCache.class);
+    public static final Duration DEFAULT_TTL = Duration.ofDays(7);
+    public static final int DEFAULT_MEMORY_ENTRIES = 128;
+    public static final long DEFAULT_MAX_DISK_BYTES = 16L * 1024 * 1024;
+
+    private static final ExecutorService DISK = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "ai-cache");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private final ResponseCacheDAO dao;   // null: memory only (the disk tier failed to open)
+    private final long ttlMillis;
+    private final long maxDiskBytes;
+    private final Map<String, Entry> memory;   // guarded by itself
+
+    private final AtomicLong memoryHits = new AtomicLong();
+    private final AtomicLong diskHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    private static final Metrics.Counter MEMORY_HITS = Metrics.counter("ai_cache.memory_hits");
+    private static final Metrics.Counter DISK_HITS = Metrics.counter("ai_cache.disk_hits");
+    private static final Metrics.Counter MISSES = Metrics.counter("ai_cache.misses");
+
+    private record Entry(String text, long createdAt) {}
+
+    /** Cache backed by ~/StudyMate/ai_cache.db with the default limits. */
+    public static ResponseCache open() {
+        return new ResponseCache(Database.pool(Database.url("ai_cache.db")),
+                DEFAULT_TTL, DEFAULT_MEMORY_ENTRIES, DEFAULT_MAX_DISK_BYTES);
+    }
+
+    public ResponseCache(ConnectionProvider db, Duration ttl, int memoryEntries, long maxDiskBytes) {
+        this.ttlMillis = ttl.toMillis();
+        this.maxDiskBytes = maxDiskBytes;
+        this.memory = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > memoryEntries;
+            }
+        };
+        ResponseCacheDAO d = new ResponseCacheDAO(db);
+        try {
+            d.init();
+        } catch (SQLException e) {
+            LOG.warn("AI cache: disk tier disabled: {}", e.getMessage());
+            d = null;
+        }
+        this.dao = d;
+    }
+
+    /** Content address of a prompt sent to {@code model}. */
+    public static String key(String model, String prompt) {
+        try {
+            MessageDigest md = MessageDigest.getInstance("SHA-256");
+            md.update(model.getBytes(StandardCharsets.UTF_8));
+            md.update((byte) 0);
+            md.update(prompt.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(md.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /** Blocking lookup: memory first, then disk. */
+    public Optional<String> get(String key) {
+        long now = System.currentTimeMillis();
+        Optional<String> hit = fromMemory(key, now);
+        if (hit.isPresent()) {
+            memoryHits.incrementAndGet();
+            MEMORY_HITS.inc();
+            return hit;
+        }
+        hit = fromDisk(key, now);
+        if (hit.isPresent()) {
+            diskHits.incrementAndGet();
+            DISK_HITS.inc();
+        } else {
+            misses.incrementAndGet();
+            MISSES.inc();
+        }
+        return hit;
+    }
+
+    /** Like {@link #get}, but a disk lookup runs on the cache thread. */
+    public CompletableFuture<Optional<String>> lookup(String key) {
+        Optional<String> hit = fromMemory(key, System.currentTimeMillis());
+        if (hit.isPresent()) {
+            memoryHits.incrementAndGet();
+            MEMORY_HITS.inc();
+            return CompletableFuture.completedFuture(hit);
+        }
+        return CompletableFuture.supplyAsync(() -> {
+            Optional<String> found = fromDisk(key, System.currentTimeMillis());
+            if (found.isPresent()) {
+                diskHits.incrementAndGet();
+                DISK_HITS.inc();
+            } else {
+                misses.incrementAndGet();
+                MISSES.inc();
+            }
+            return found;
+        }, DISK);
+    }
+
+    /** Remember a reply; it is written to disk in the background. */
+    public void put(String key, String model, String text) {
+        long now = System.currentTimeMillis();
+        synchronized (memory) {
+            memory.put(key, new Entry(text, now));
+        }
+        if (dao == null) return;
+        DISK.execute(() -> {
+            try {
+                dao.put(key, model, text, now, now - ttlMillis, maxDiskBytes);
+            } catch (SQLException e) {
+                LOG.warn("AI cache: write failed: {}", e.getMessage());
+            }
+        });
+    }
+
+    public long getMemoryHits() { return memoryHits.get(); }
+    public long getDiskHits() { return diskHits.get(); }
+    public long getMisses() { return misses.get(); }
+
+    /** Fraction of lookups answered from either tier, 0 before the first lookup. */
+    public double hitRate() {
+        long hits = memoryHits.get() + diskHits.get();
+        long total = hits + misses.get();
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("ResponseCache[memory=%d, disk=%d, miss=%d, hitRate=%.2f]",
+                getMemoryHits(), getDiskHits(), getMisses(), hitRate());
+    }
+
+    private Optional<String> fromMemory(String key, long now) {
+        synchronized (memory) {
+            Entry e = memory.get(key);
+            if (e == null) return Optional.empty();
+            if (e.createdAt() < now - ttlMillis) {
+                memory.remove(key);
+                return Optional.empty();
+            }
+            return Optional.of(e.text());
+        }
+    }
+
+    private Optional<String> fromDisk(String key, long now) {
+        if (dao == null) return Optional.empty();
+        try {
+            Optional<ResponseCacheDAO.Cached> hit = dao.get(key, now - ttlMillis, now);
+            // promote, keeping the original age so the TTL still applies
+            hit.ifPresent(c -> {
+                synchronized (memory) {
+                    memory.put(key, new Entry(c.response(), c.createdAt()));
+                }
+            });
+            return hit.map(ResponseCacheDAO.Cached::response);
+        } catch (SQLException e) {
+            LOG.warn("AI cache: read failed: {}", e.getMessage());
+            return Optional.empty();
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package ui;
+
+import javafx.application.Platform;
+import javafx.scene.Scene;
+import model.Database;
+import model.FlashcardDAO;
+import model.Metrics;
+import model.UserDAO;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Brings up the app's slow subsystems in parallel on background threads, so
+ * the window can show before any of them is ready:
+ *  - {@link #gemini()}: the one GeminiClient, with the AI response cache; null without GOOGLE_API_KEY;
+ *  - {@link #users()}: UserDAO with the users table created;
+ *  - {@link #flashcards()}: FlashcardDAO with its schema created, once per run.
+ *
+ * Views wait on these futures the first time they need them. Each task's
+ * duration is recorded as {@code startup.<name>} in {@link Metrics}, and
+ * {@link #reportFirstFrame} records the time to the first frame.
+ */
+public final class Startup {
+    private static final Logger LOG = LoggerFactory.getLogger(Startup.class);
+    private static Startup shared;
+
+    private final long began = System.nanoTime();
+    private final CompletableFuture<GeminiClient> gemini;
+    private final CompletableFuture<UserDAO> users;
+    private final CompletableFuture<FlashcardDAO> flashcards;
+
+    private Startup() {
+        AtomicInteger n = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(3, r -> {
+            Thread t = new Thread(r, "startup-" + n.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        gemini = timed("gemini", Startup::openGemini, pool);
+        users = timed("users", () -> new UserDAO(Database.shared()), pool);
+        flashcards = timed("flashcards", Startup::openFlashcards, pool);
+        pool.shutdown();   // queued tasks still run; the threads exit afterwards
+
+        CompletableFuture.allOf(gemini, users, flashcards).whenComplete((v, err) ->
+                LOG.info("Subsystems ready after {} ms", (System.nanoTime() - began) / 1_000_000));
+    }
+
+    /** The running app's subsystems, started on first call. */
+    public static synchronized Startup shared() {
+        if (shared == null) shared = new Startup();
+        return shared;
+    }
+
+    public CompletableFuture<GeminiClient> gemini() { return gemini; }
+
+    public CompletableFuture<UserDAO> users() { return users; }
+
+    public CompletableFuture<FlashcardDAO> flashcards() { return flashcards; }
+
+    /**
+     * Record time to first frame, from startup and from JVM launch, once
+     * {@code scene} has been laid out for the first time. Call before showing the stage.
+     */
+    public void reportFirstFrame(Scene scene) {
+        boolean[] done = {false};
+        Runnable listener = new Runnable() {
+            @Override
+            public void run() {
+                if (done[0]) return;
+                done[0] = true;
+                long sinceStartup = (System.nanoTime() - began) / 1_000_000;
+                long sinceLaunch = ManagementFactory.getRuntimeMXBean().getUptime();
+                Metrics.gauge("startup.first_frame_ms", () -> sinceStartup);
+                Metrics.gauge("startup.launch_to_first_frame_ms", () -> sinceLaunch);
+                LOG.info("First frame after {} ms ({} ms since JVM launch)", sinceStartup, sinceLaunch);
+                // Not from inside the pulse: the scene is iterating its listeners.
+                Platform.runLater(() -> scene.removePostLayoutPulseListener(this));
+            }
+        };
+        scene.addPostLayoutPulseListener(listener);
+    }
+
+    private static <T> CompletableFuture<T> timed(String name, Supplier<T> task, ExecutorService pool) {
+        Metrics.Timer timer = Metrics.timer("startup." + name);
+        return CompletableFuture.supplyAsync(() -> {
+            long start = System.nanoTime();
+            try {
+                return task.get();
+            } finally {
+                timer.recordSince(start);
+            }
+        }, pool).whenComplete((v, err) -> {
+            if (err != null) LOG.error("Startup of {} failed", name, err);
+        });
+    }
+
+    private static GeminiClient openGemini() {
+        String apiKey = System.getenv("GOOGLE_API_KEY");
+        if (apiKey == null || apiKey.isEmpty()) {
+            LOG.info("GOOGLE_API_KEY not found - AI features will be disabled");
+            return null;
+        }
+        try {
+            GeminiClient client = new GeminiClient(apiKey, ResponseCache.open());
+            LOG.info("Gemini AI initialized");
+            return client;
+        } catch (Exception e) {
+            LOG.error("Failed to initialize Gemini: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    private static FlashcardDAO openFlashcards() {
+        FlashcardDAO dao = new FlashcardDAO(Database.shared());
+        try {
+            dao.init();
+        } catch (java.sql.SQLException e) {
+            throw new RuntimeException("Failed to initialise flashcards DB: " + e.getMessage(), e);
+        }
+        return dao;
+    }
+}
@@ -11,21 +11,33 @@ import javafx.scene.layout.HBox;
 import javafx.scene.layout.StackPane;
 import javafx.scene.layout.VBox;
 import javafx.stage.Stage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 // === Account imports (ADDED) ===
+import model.AsyncLog;
+import model.Database;
+import model.Metrics;
 import model.User;
 import model.UserDAO;
 import ui.views.AuthDialog;
 import ui.views.ProfileView;
 
 public class StudyMateApp extends Application {
+    static {
+        // Must run before the first logger is created: route SLF4J through the async pipeline.
+        if (System.getProperty("slf4j.provider") == null) {
+            System.setProperty("slf4j.provider", "model.AsyncLogProvider");
+        }
+    }
+
+    private static final Logger LOG = LoggerFactory.getLogger(StudyMateApp.class);
     private BorderPane root;
     private SidebarFX sidebar;
-    private GeminiClient geminiClient;
+    private Startup startup;
 
     // === Account fields (ADDED) ===
-    private UserDAO userDAO;
-    private ProfileView profileView;
+    private ProfileView profileView;   // built on first visit
 
     public static void main(String[] args) {
         launch(args);
@@ -33,24 +45,9 @@ public class StudyMateApp extends Application {
 
     @Override
     public void start(Stage stage) {
-        // Initialize Gemini client
-        String apiKey = System.getenv("GOOGLE_API_KEY");
-        if (apiKey != null && !apiKey.isEmpty()) {
-            try {
-                geminiClient = new GeminiClient(apiKey);
-                System.out.println("Gemini AI initialized successfully");
-            } catch (Exception e) {
-                System.err.println("Failed to initialize Gemini: " + e.getMessage());
-            }
-        } else {
-            System.out.println("GOOGLE_API_KEY not found - AI features will be disabled");
-        }
-
-        // === Account init (ADDED) ===
-        String userDbUrl = buildUserDbUrl();  // use same db folder as flashcards: ~/StudyMate/studymate.db
-        userDAO = new UserDAO(userDbUrl);
-        profileView = new ProfileView();
-        profileView.setUserDAO(userDAO);
+        // Gemini, the users table and the flashcards schema come up in the background;
+        // the window shows right away and views wait for what they need.
+        startup = Startup.shared();
 
         root = new BorderPane();
 
@@ -68,7 +65,7 @@ public class StudyMateApp extends Application {
         sidebar.setOnNavigate(target -> {
             switch (target) {
                 case CHAT -> showAISummary();
-                case PROJECTS -> System.out.println("Projects clicked - not implemented yet");
+                case PROJECTS -> LOG.info("Projects clicked - not implemented yet");
 
                 // === open login/profile (ADDED) ===
                 case OTHERS -> openAccount();
@@ -77,24 +74,73 @@ public class StudyMateApp extends Application {
                 case LOGOUT -> {
                     Session.logout();
                     try { sidebar.refreshAccountLabel(); } catch (Throwable ignored) {}
-                    System.out.println("Logged out.");
+                    LOG.info("Logged out");
                     showHome();
                 }
 
-                default -> System.out.println("Navigation: " + target);
+                default -> LOG.debug("Navigation: {}", target);
             }
         });
         root.setLeft(sidebar);
 
-        Scene scene = new Scene(root, 1000, 700);
+        // Diagnostics: F12 toggles the live overlay; metrics.json/.prom land in ~/StudyMate
+        Metrics.installJvmMetrics();
+        Metrics.startDumping(metricsDir(), java.time.Duration.ofMinutes(1));
+        DiagnosticsOverlay diagnostics = new DiagnosticsOverlay();
+        Scene scene = new Scene(new StackPane(root, diagnostics), 1000, 700);
+        diagnostics.install(scene);
+        startup.reportFirstFrame(scene);
         stage.setTitle("StudyMate");
         stage.setScene(scene);
         stage.show();
         showHome();
     }
 
+    @Override
+    public void stop() {
+        FlashcardsView.cancelImport();
+        TypingSessionLog.flush();
+        try {
+            Metrics.dump(metricsDir());
+        } catch (java.io.IOException e) {
+            LOG.warn("Could not write metrics: {}", e.getMessage());
+        }
+        // Release the pooled SQLite connections (flushes the WAL on last close).
+        Database.closeAll();
+        AsyncLog.flush(java.time.Duration.ofSeconds(1));
+    }
+
+    private static java.nio.file.Path metricsDir() {
+        return java.nio.file.Paths.get(System.getProperty("user.home"), "StudyMate");
+    }
+
+    /** Run {@code then} on the FX thread once {@code service} is up; tell the user if it failed. */
+    private <T> void whenReady(java.util.concurrent.CompletableFuture<T> service, java.util.function.Consumer<T> then) {
+        if (service.isDone() && !service.isCompletedExceptionally()) {
+            then.accept(service.join());
+            return;
+        }
+        service.whenCompleteAsync((value, err) -> {
+            if (err == null) {
+                then.accept(value);
+                return;
+            }
+            Throwable cause = err.getCause() != null ? err.getCause() : err;
+            new javafx.scene.control.Alert(javafx.scene.control.Alert.AlertType.ERROR,
+                    cause.getMessage()).showAndWait();
+        }, javafx.application.Platform::runLater);
+    }
+
     // === Account: open login/profile (ADDED) ===
     private void openAccount() {
+        whenReady(startup.users(), this::openAccount);
+    }
+
+    private void openAccount(UserDAO userDAO) {
+        if (profileView == null) {
+            profileView = new ProfileView();
+            profileView.setUserDAO(userDAO);
+        }
         if (!Session.isLoggedIn()) {
             AuthDialog dialog = new AuthDialog(userDAO);
             dialog.onSuccess((User u) -> {
@@ -151,14 +197,16 @@ public class StudyMateApp extends Application {
     }
 
     private void showAISummaryWithPrompt(String prompt) {
-        if (geminiClient == null) {
-            javafx.scene.control.Alert alert = new javafx.scene.control.Alert(
-                    javafx.scene.control.Alert.AlertType.WARNING,
-                    "AI features are not available. Please set GOOGLE_API_KEY environment variable.");
-            alert.showAndWait();
-            return;
-        }
-        root.setCenter(new AISummaryView(geminiClient, this::showTypingWithText, prompt));
+        whenReady(startup.gemini(), geminiClient -> {
+            if (geminiClient == null) {
+                javafx.scene.control.Alert alert = new javafx.scene.control.Alert(
+                        javafx.scene.control.Alert.AlertType.WARNING,
+                        "AI features are not available. Please set GOOGLE_API_KEY environment variable.");
+                alert.showAndWait();
+                return;
+            }
+            root.setCenter(new AISummaryView(geminiClient, this::showTypingWithText, prompt));
+        });
     }
 
     private void showTypingHome() {
@@ -170,25 +218,32 @@ public class StudyMateApp extends Application {
     }
 
     private void showFlashcards() {
-        root.setCenter(new FlashcardsView());
+        whenReady(startup.flashcards(), dao -> root.setCenter(new FlashcardsView(dao)));
     }
 
     private void showAISummary() {
-        if (geminiClient == null) {
-            javafx.scene.control.Alert alert = new javafx.scene.control.Alert(
-                    javafx.scene.control.Alert.AlertType.WARNING,
-                    "AI features are not available. Please set GOOGLE_API_KEY environment variable.");
-            alert.showAndWait();
-            return;
-        }
-        root.setCenter(new AISummaryView(geminiClient, this::showTypingWithText, null));
+        showAISummaryWithPrompt(null);
     }
 
     // ===== FLASHCARDS VIEW =====
-    private static final class FlashcardsView extends VBox {
-        private final model.FlashcardDAO dao = new model.FlashcardDAO(buildDbUrl());
-        private java.util.List<model.Flashcard> cards = java.util.Collections.emptyList();
-        private int idx = 0;
+    static final class FlashcardsView extends VBox {
+        private static final java.util.concurrent.ExecutorService IMPORTS =
+                java.util.concurrent.Executors.newSingleThreadExecutor(r -> {
+                    Thread t = new Thread(r, "flashcard-import");
+                    t.setDaemon(true);
+                    return t;
+                });
+        // The running (or last) import; stop() cancels it so exiting does not wait on a large file.
+        private static volatile java.util.concurrent.CompletableFuture<Long> importing =
+                java.util.concurrent.CompletableFuture.completedFuture(0L);
+
+        private final model.FlashcardDAO dao;
+        // Pages cards in from the DB in the background; only a bounded window is kept in memory.
+        private final model.FlashcardWindow cards;
+        // Spaced repetition: answers are fed back here, and "Review Due" pulls from its queue.
+        private final model.ReviewScheduler scheduler;
+        private model.Flashcard shown;        // card on screen (from the window or the due queue)
+        private boolean answered;             // only the first check of a card counts as a review
 
         private final javafx.scene.control.Label counter = new javafx.scene.control.Label("0/0");
         private final javafx.scene.control.TextArea questionArea = new javafx.scene.control.TextArea();
@@ -197,6 +252,9 @@ public class StudyMateApp extends Application {
         private final javafx.scene.control.Button nextBtn = new javafx.scene.control.Button("Next ▶");
         private final javafx.scene.control.Button prevBtn = new javafx.scene.control.Button("◀ Prev");
         private final javafx.scene.control.Button addBtn  = new javafx.scene.control.Button("Add");
+        private final javafx.scene.control.Button importBtn = new javafx.scene.control.Button("Import…");
+        private final javafx.scene.control.Button dueBtn = new javafx.scene.control.Button("Review Due");
+        private final javafx.scene.control.Button shuffleBtn = new javafx.scene.control.Button("Shuffle");
         private final javafx.scene.control.Label verdict = new javafx.scene.control.Label(" ");
         private final javafx.scene.control.TextArea revealArea = new javafx.scene.control.TextArea();
 
@@ -209,22 +267,19 @@ public class StudyMateApp extends Application {
             return "jdbc:sqlite:" + dir.resolve("studymate.db").toAbsolutePath();
         }
 
-        FlashcardsView() {
+        /** @param dao with its schema already created (see {@link Startup#flashcards()}) */
+        FlashcardsView(model.FlashcardDAO dao) {
             super(10);
+            this.dao = dao;
+            this.cards = new model.FlashcardWindow(dao, javafx.application.Platform::runLater);
+            this.scheduler = new model.ReviewScheduler(dao);
             setPadding(new Insets(16));
             setAlignment(Pos.TOP_CENTER);
 
-            try {
-                dao.init();
-            } catch (java.sql.SQLException ex) {
-                new javafx.scene.control.Alert(javafx.scene.control.Alert.AlertType.ERROR,
-                        "Failed to initialise flashcards DB:\n" + ex.getMessage()).showAndWait();
-            }
-
             javafx.scene.control.Label dbPath = new javafx.scene.control.Label("DB: " + buildDbUrl());
             dbPath.setStyle("-fx-font-size: 11px; -fx-text-fill: #777;");
 
-            HBox top = new HBox(10, new javafx.scene.control.Label("Flashcards"), counter, prevBtn, nextBtn, addBtn);
+            HBox top = new HBox(10, new javafx.scene.control.Label("Flashcards"), counter, prevBtn, nextBtn, shuffleBtn, dueBtn, addBtn, importBtn);
             top.setAlignment(Pos.CENTER_LEFT);
 
             questionArea.setEditable(false);
@@ -246,69 +301,121 @@ public class StudyMateApp extends Application {
 
             getChildren().addAll(dbPath, top, questionArea, inputRow, verdict, revealArea);
 
-            prevBtn.setOnAction(e -> { if (idx > 0) { idx--; showCard(); } });
-            nextBtn.setOnAction(e -> { if (idx < cards.size() - 1) { idx++; showCard(); } });
+            prevBtn.setOnAction(e -> { if (cards.hasPrev()) { cards.prev(); showCard(); } });
+            nextBtn.setOnAction(e -> { if (cards.hasNext()) { cards.next(); showCard(); } });
+            cards.setOnChange(this::onCardsChanged);
             checkBtn.setOnAction(e -> checkAnswer());
             addBtn.setOnAction(e -> addCardDialog());
+            importBtn.setOnAction(e -> importCards());
+            dueBtn.setOnAction(e -> showNextDue());
+            shuffleBtn.setOnAction(e -> { showLoading(); cards.shuffle(); });
             yourAnswer.setOnAction(e -> checkAnswer());
 
             refresh();
         }
 
         private void refresh() {
-            try {
-                cards = dao.getAll();
-                if (!cards.isEmpty()) {
-                    java.util.List<model.Flashcard> shuffled = new java.util.ArrayList<>(cards);
-                    java.util.Collections.shuffle(shuffled);
-                    cards = shuffled;
-                }
-                idx = 0;
-            } catch (java.sql.SQLException ex) {
-                cards = java.util.Collections.emptyList();
-                questionArea.setText("DB error: " + ex.getMessage());
-            }
+            showLoading();
+            cards.start();
+        }
 
-            try {
-                int n = dao.count();
-                counter.setText(n + (n == 1 ? " card" : " cards"));
-            } catch (java.sql.SQLException ignore) {
+        private void showLoading() {
+            counter.setText("…");
+            questionArea.setText("Loading flashcards…");
+            setInputsDisabled(true);
+            verdict.setText(" ");
+            revealArea.setVisible(false);
+        }
+
+        /** Called on the FX thread when a page arrives from the background loader. */
+        private void onCardsChanged() {
+            if (cards.lastError() != null && cards.current() == null) {
+                questionArea.setText("DB error: " + cards.lastError().getMessage());
                 counter.setText("0 cards");
+                return;
             }
-
             if (cards.isEmpty()) {
                 questionArea.setText("No flashcards yet.\nClick 'Add' to create one.");
-                yourAnswer.setDisable(true);
-                checkBtn.setDisable(true);
-                prevBtn.setDisable(true);
-                nextBtn.setDisable(true);
+                counter.setText("0 cards");
+                setInputsDisabled(true);
                 verdict.setText(" ");
                 revealArea.setVisible(false);
-            } else {
+                return;
+            }
+            if (cards.isLoading()) return;
+
+            boolean firstCard = yourAnswer.isDisable();
+            if (firstCard) {
                 yourAnswer.setDisable(false);
                 checkBtn.setDisable(false);
-                prevBtn.setDisable(false);
-                nextBtn.setDisable(false);
                 showCard();
+            } else {
+                updateNav();   // more cards arrived; keep the current card and answer as they are
             }
         }
 
+        private void setInputsDisabled(boolean disabled) {
+            yourAnswer.setDisable(disabled);
+            checkBtn.setDisable(disabled);
+            prevBtn.setDisable(disabled);
+            nextBtn.setDisable(disabled);
+        }
+
         private void showCard() {
-            model.Flashcard c = cards.get(idx);
+            model.Flashcard c = cards.current();
+            if (c == null) return;
+            display(c);
+            updateNav();
+        }
+
+        private void display(model.Flashcard c) {
+            shown = c;
+            answered = false;
             questionArea.setText("Q: " + c.getQuestion());
-            counter.setText((idx+1) + "/" + cards.size());
             verdict.setText(" ");
             verdict.setTextFill(javafx.scene.paint.Color.web("#1e8221"));
             revealArea.setVisible(false);
             yourAnswer.clear();
             yourAnswer.requestFocus();
-            prevBtn.setDisable(idx == 0);
-            nextBtn.setDisable(idx >= cards.size()-1);
+        }
+
+        /** Show the most overdue card from the scheduler (queried off the FX thread). */
+        private void showNextDue() {
+            dueBtn.setDisable(true);
+            java.util.concurrent.CompletableFuture
+                    .supplyAsync(() -> {
+                        try {
+                            return scheduler.nextDue();
+                        } catch (java.sql.SQLException ex) {
+                            throw new java.util.concurrent.CompletionException(ex);
+                        }
+                    })
+                    .whenComplete((next, err) -> javafx.application.Platform.runLater(() -> {
+                        dueBtn.setDisable(false);
+                        if (err != null) {
+                            verdict.setText("DB error: " + err.getCause().getMessage());
+                        } else if (next.isEmpty()) {
+                            verdict.setTextFill(javafx.scene.paint.Color.web("#1e8221"));
+                            verdict.setText("Nothing due right now. 🎉");
+                        } else {
+                            yourAnswer.setDisable(false);
+                            checkBtn.setDisable(false);
+                            display(next.get());
+                            counter.setText("Due review");
+                        }
+                    }));
+        }
+
+        private void updateNav() {
+            int total = cards.total();
+            counter.setText((cards.position() + 1) + "/" + (total < 0 ? "…" : total));
+            prevBtn.setDisable(!cards.hasPrev());
+            nextBtn.setDisable(!cards.hasNext());
         }
 
         private void checkAnswer() {
-            if (cards.isEmpty()) return;
-            model.Flashcard c = cards.get(idx);
+            model.Flashcard c = shown;
+            if (c == null) return;
             String typed = normalize(yourAnswer.getText());
             String correct = normalize(c.getAnswer());
             boolean ok = !typed.isEmpty() && typed.equalsIgnoreCase(correct);
@@ -316,6 +423,18 @@ public class StudyMateApp extends Application {
             verdict.setTextFill(ok ? javafx.scene.paint.Color.web("#1e8221") : javafx.scene.paint.Color.web("#aa2222"));
             revealArea.setText("Answer: " + c.getAnswer());
             revealArea.setVisible(true);
+
+            if (!answered && c.getId() > 0) {
+                answered = true;
+                int quality = model.ReviewScheduler.quality(ok);
+                java.util.concurrent.CompletableFuture.runAsync(() -> {
+                    try {
+                        scheduler.review(c, quality);
+                    } catch (java.sql.SQLException ex) {
+                        LOG.warn("Failed to save review: {}", ex.getMessage());
+                    }
+                });
+            }
         }
 
         private void addCardDialog() {
@@ -345,6 +464,50 @@ public class StudyMateApp extends Application {
             }
         }
 
+        private void importCards() {
+            javafx.stage.FileChooser chooser = new javafx.stage.FileChooser();
+            chooser.setTitle("Import Flashcards");
+            chooser.getExtensionFilters().add(new javafx.stage.FileChooser.ExtensionFilter(
+                    "Flashcards (CSV, TSV, JSON)", "*.csv", "*.tsv", "*.json"));
+            java.io.File file = chooser.showOpenDialog(getScene() == null ? null : getScene().getWindow());
+            if (file == null) return;
+
+            importBtn.setDisable(true);
+            importing = java.util.concurrent.CompletableFuture
+                    .supplyAsync(() -> {
+                        try {
+                            return new model.FlashcardImporter(dao)
+                                    .onProgress(done -> {
+                                        // throwing rolls the whole import back
+                                        if (importing.isCancelled()) throw new java.util.concurrent.CancellationException();
+                                        javafx.application.Platform.runLater(() -> counter.setText("Importing… " + done));
+                                    })
+                                    .importFile(file.toPath());
+                        } catch (java.io.IOException | java.sql.SQLException ex) {
+                            throw new java.util.concurrent.CompletionException(ex);
+                        }
+                    }, IMPORTS);
+            importing.whenComplete((n, err) -> {
+                if (err instanceof java.util.concurrent.CancellationException) return;
+                String msg;
+                if (err == null) {
+                    msg = "Imported " + n + (n == 1 ? " card." : " cards.");
+                } else {
+                    msg = "Import failed:\n" + (err.getCause() != null ? err.getCause() : err).getMessage();
+                }
+                javafx.application.Platform.runLater(() -> {
+                    importBtn.setDisable(false);
+                    refresh();
+                    new javafx.scene.control.Alert(javafx.scene.control.Alert.AlertType.INFORMATION, msg).show();
+                });
+            });
+        }
+
+        /** Abandon a running import; its transaction is rolled back after the current batch. */
+        static void cancelImport() {
+            importing.cancel(false);
+        }
+
         private static String normalize(String s) {
             return s == null ? "" : s.trim().replaceAll("\\s+", " ");
         }
@@ -358,7 +521,9 @@ public class StudyMateApp extends Application {
         private final javafx.scene.control.Label stats = new javafx.scene.control.Label("Start typing to begin…");
         private final javafx.scene.control.Button resetBtn = new javafx.scene.control.Button("Reset");
         private final javafx.scene.control.ProgressBar progressBar = new javafx.scene.control.ProgressBar(0);
-        private long startTs = 0L;
+        private final KeystrokeRecorder recorder = new KeystrokeRecorder();
+        private final TypingDiff diff = new TypingDiff();
+        private boolean saved;   // this run's session has been logged
 
         TypingPracticeView(String customText) {
             super(24);
@@ -370,9 +535,7 @@ public class StudyMateApp extends Application {
                     ? customText.trim()
                     : "The quick brown fox jumps over the lazy dog. Practice makes perfect!";
 
-            System.out.println("=== TYPING PRACTICE ===");
-            System.out.println("Sample text: " + sample);
-            System.out.println("Sample length: " + sample.length());
+            LOG.debug("Typing practice, sample of {} chars", sample.length());
 
             javafx.scene.control.Label title = new javafx.scene.control.Label("Typing Practice");
             title.setStyle("-fx-font-size: 32px; -fx-font-weight: bold; -fx-text-fill: #1a1f36;");
@@ -464,10 +627,17 @@ public class StudyMateApp extends Application {
             card.getChildren().addAll(instructions, ghostBox, spacer, inputBox, progressBar, statsBox);
             getChildren().addAll(topBar, card);
 
+            recorder.reset(sample);
+            diff.reset(sample);
+            recorder.attach(input);
             input.textProperty().addListener((obs, oldV, newV) -> {
-                if (startTs == 0L && !newV.isBlank()) startTs = System.currentTimeMillis();
+                diff.edit(recorder.record(oldV, newV, System.nanoTime()), newV);
                 updateDisplay(newV);
                 updateStats(newV);
+                if (!saved && newV.length() >= sample.length()) {
+                    saved = true;
+                    TypingSessionLog.save(recorder.summarize("practice", System.nanoTime()));
+                }
             });
 
             resetBtn.setOnAction(e -> reset());
@@ -501,19 +671,13 @@ public class StudyMateApp extends Application {
             if (sample == null || sample.isEmpty()) return;
 
             int len = typed.length();
-            int correct = 0;
-            for (int i = 0; i < Math.min(len, sample.length()); i++) {
-                if (typed.charAt(i) == sample.charAt(i)) correct++;
-            }
-
-            double acc = (len == 0) ? 100.0 : (100.0 * correct / len);
-            double mins = Math.max((System.currentTimeMillis() - startTs) / 60000.0, 1e-6);
-            int wpm = (int)Math.round((len / 5.0) / mins);
+            double acc = recorder.keystrokes() == 0 ? 100.0 : recorder.accuracy();
+            int wpm = (int) Math.round(recorder.wpm(System.nanoTime()));
             double prog = Math.min(1.0, (double) len / sample.length());
             progressBar.setProgress(prog);
 
             if (len >= sample.length()) {
-                if (typed.equals(sample)) {
+                if (diff.isComplete()) {
                     stats.setText(String.format("🎉 PERFECT! • WPM: %d • Accuracy: %.1f%%", wpm, acc));
                     stats.setStyle("-fx-font-size: 16px; -fx-font-weight: 700; -fx-text-fill: #059669;");
                 } else {
@@ -529,7 +693,9 @@ public class StudyMateApp extends Application {
 
         private void reset() {
             input.clear();
-            startTs = 0L;
+            recorder.reset(sample);
+            diff.reset(sample);
+            saved = false;
             ghostLabel.setText(sample);
             ghostLabel.setVisible(true);
             ghostLabel.setOpacity(1.0);
@@ -552,7 +718,7 @@ public class StudyMateApp extends Application {
     }
 
     // ===== AI SUMMARY VIEW =====
-    private static final class AISummaryView extends VBox {
+    static final class AISummaryView extends VBox {
         private final GeminiClient gemini;
         private final java.util.function.Consumer<String> onSendToTyping;
         private final javafx.scene.control.TextArea inputArea = new javafx.scene.control.TextArea();
@@ -563,6 +729,8 @@ public class StudyMateApp extends Application {
         private final javafx.scene.control.Button sendBtn = new javafx.scene.control.Button("Send");
         private final javafx.scene.control.Button sendToTypingBtn = new javafx.scene.control.Button("⌨️ Send to Typing Practice");
         private final javafx.scene.control.ProgressIndicator progressIndicator = new javafx.scene.control.ProgressIndicator();
+        private java.util.concurrent.CompletableFuture<String> pending;  // in-flight Gemini call, FX thread only
+        private FrameCoalescer pendingOutput;                              // renders pending's streamed text
 
         AISummaryView(GeminiClient gemini, java.util.function.Consumer<String> onSendToTyping, String initialPrompt) {
             super(20);
@@ -649,6 +817,11 @@ public class StudyMateApp extends Application {
                 }
             });
 
+            // Navigating away aborts the in-flight request.
+            sceneProperty().addListener((obs, oldScene, newScene) -> {
+                if (newScene == null) cancelPending();
+            });
+
             if (initialPrompt != null && !initialPrompt.trim().isEmpty()) {
                 inputArea.setText(initialPrompt);
                 processWithAI("");
@@ -669,6 +842,13 @@ public class StudyMateApp extends Application {
             return shadow;
         }
 
+        private void cancelPending() {
+            if (pending != null) pending.cancel(true);
+            if (pendingOutput != null) pendingOutput.cancel();
+            pending = null;
+            pendingOutput = null;
+        }
+
         private void processWithAI(String promptPrefix) {
             String userText = inputArea.getText();
             if (userText == null || userText.trim().isEmpty()) {
@@ -684,34 +864,40 @@ public class StudyMateApp extends Application {
             progressIndicator.setVisible(true);
             outputArea.setText("Thinking...");
 
-            new Thread(() -> {
-                try {
-                    String prompt = promptPrefix.isEmpty()
-                            ? "You are a helpful study assistant. Answer the following question or respond to the following request concisely and clearly:\n\n" + userText
-                            : promptPrefix + userText;
-
-                    String response = gemini.askGemini(prompt);
-
-                    javafx.application.Platform.runLater(() -> {
+            String prompt = promptPrefix.isEmpty()
+                    ? "You are a helpful study assistant. Answer the following question or respond to the following request concisely and clearly:\n\n" + userText
+                    : promptPrefix + userText;
+
+            cancelPending();
+            // Tokens are streamed into the output area, redrawn at most once per frame.
+            FrameCoalescer partial = new FrameCoalescer(outputArea::setText);
+            partial.start();
+            pendingOutput = partial;
+            java.util.concurrent.CompletableFuture<String> call = gemini.streamAsync(prompt, partial::append);
+            pending = call;
+            call.whenComplete((response, err) -> {
+                if (call.isCancelled()) return;  // superseded or view closed; cancelPending() cleaned up
+                javafx.application.Platform.runLater(() -> {
+                    partial.stop();
+                    if (pending == call) {
+                        pending = null;
+                        pendingOutput = null;
+                    }
+                    if (err == null) {
                         outputArea.setText(response);
-                        summarizeBtn.setDisable(false);
-                        keyPointsBtn.setDisable(false);
-                        flashcardsBtn.setDisable(false);
-                        sendBtn.setDisable(false);
                         sendToTypingBtn.setDisable(false);
-                        progressIndicator.setVisible(false);
-                    });
-                } catch (Exception ex) {
-                    javafx.application.Platform.runLater(() -> {
-                        outputArea.setText("Error: " + ex.getMessage());
-                        summarizeBtn.setDisable(false);
-                        keyPointsBtn.setDisable(false);
-                        flashcardsBtn.setDisable(false);
-                        sendBtn.setDisable(false);
-                        progressIndicator.setVisible(false);
-                    });
-                }
-            }).start();
+                    } else {
+                        Throwable cause = err instanceof java.util.concurrent.CompletionException && err.getCause() != null
+                                ? err.getCause() : err;
+                        outputArea.setText("Error: " + cause.getMessage());
+                    }
+                    summarizeBtn.setDisable(false);
+                    keyPointsBtn.setDisable(false);
+                    flashcardsBtn.setDisable(false);
+                    sendBtn.setDisable(false);
+                    progressIndicator.setVisible(false);
+                });
+            });
         }
     }
 
@@ -794,12 +980,4 @@ public class StudyMateApp extends Application {
             return b;
         }
     }
-
-    // === helper: build user db url (ADDED) ===
-    private String buildUserDbUrl() {
-        String home = System.getProperty("user.home");
-        java.nio.file.Path dir = java.nio.file.Paths.get(home, "StudyMate");
-        try { java.nio.file.Files.createDirectories(dir); } catch (java.io.IOException ignored) {}
-        return "jdbc:sqlite:" + dir.resolve("studymate.db").toAbsolutePath();
-    }
 }
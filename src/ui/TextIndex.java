@@ -0,0 +1,298 @@
+package ui;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+/**
+ * Inverted index over the passages of library documents, ranked with BM25.
+ *
+ * The index is a stack of immutable {@link IndexSegment} files. Adding a
+ * document writes a small new segment. Whenever the newest segment is at least
+ * half the size of the one below it, the two are merged, so the stack stays
+ * logarithmic in the number of documents and each document is rewritten only
+ * O(log n) times. {@code segments.lst} names the live segments and is replaced
+ * atomically, so a crash mid-merge leaves the previous state.
+ *
+ * {@link #remove} does not rewrite segments. It records the document against
+ * the segments holding it in {@code removed.lst}; searches skip its passages,
+ * and the next merge of those segments leaves it out. Until then its passages
+ * still count towards the BM25 collection statistics.
+ *
+ * Searches read an immutable snapshot of the stack and never wait for adds.
+ */
+public final class TextIndex {
+    private static final Logger LOG = LoggerFactory.getLogger(TextIndex.class);
+    private static final String MANIFEST = "segments.lst";
+    private static final String REMOVED = "removed.lst";
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+    private static final int CHUNK_CHARS = 1 << 20;
+
+    /** A matching passage of {@code file}, as char offsets into its text. */
+    public record Hit(Path file, int start, int end, double score) {}
+
+    /** Live segments, their file names, and the documents removed from each (by segment name). */
+    private record State(List<IndexSegment> segments, List<String> names, Map<String, Set<String>> removed) {
+        Set<String> removedFrom(String name) {
+            return removed.getOrDefault(name, Set.of());
+        }
+    }
+
+    private final Path dir;
+    private volatile State state = new State(List.of(), List.of(), Map.of());
+    private final Set<String> indexed = new HashSet<>();   // guarded by this
+    private int generation;                                // guarded by this
+
+    public TextIndex(Path dir) throws IOException {
+        this.dir = dir;
+        Files.createDirectories(dir);
+        Path manifest = dir.resolve(MANIFEST);
+        List<String> live = Files.exists(manifest) ? Files.readAllLines(manifest, StandardCharsets.UTF_8) : List.of();
+        List<IndexSegment> loaded = new ArrayList<>();
+        List<String> kept = new ArrayList<>();
+        for (String name : live) {
+            if (name.isBlank()) continue;
+            try {
+                loaded.add(IndexSegment.read(dir.resolve(name)));
+                kept.add(name);
+            } catch (IOException e) {
+                LOG.warn("Skipping unreadable index segment {}: {}", name, e.getMessage());
+            }
+            generation = Math.max(generation, generationOf(name) + 1);
+        }
+        Map<String, Set<String>> removed = readRemoved(kept);
+        for (int i = 0; i < loaded.size(); i++) {
+            Set<String> gone = removed.getOrDefault(kept.get(i), Set.of());
+            for (String d : loaded.get(i).docs) if (!gone.contains(d)) indexed.add(d);
+        }
+        state = new State(List.copyOf(loaded), List.copyOf(kept), removed);
+        deleteUnlisted();
+    }
+
+    public synchronized boolean contains(Path file) {
+        return indexed.contains(file.toString());
+    }
+
+    public int documentCount() {
+        State st = state;
+        int n = 0;
+        for (int i = 0; i < st.segments().size(); i++) {
+            n += st.segments().get(i).docs.length - st.removedFrom(st.names().get(i)).size();
+        }
+        return n;
+    }
+
+    /**
+     * Drop a document, e.g. one deleted from disk or about to be re-indexed.
+     * @return false if it was not in the index
+     */
+    public synchronized boolean remove(Path file) throws IOException {
+        String doc = file.toString();
+        if (!indexed.remove(doc)) return false;
+        State st = state;
+        Map<String, Set<String>> removed = new HashMap<>(st.removed());
+        for (int i = 0; i < st.segments().size(); i++) {
+            String name = st.names().get(i);
+            if (Arrays.asList(st.segments().get(i).docs).contains(doc) && !st.removedFrom(name).contains(doc)) {
+                Set<String> docs = new HashSet<>(st.removedFrom(name));
+                docs.add(doc);
+                removed.put(name, Set.copyOf(docs));
+            }
+        }
+        writeRemoved(removed);
+        state = new State(st.segments(), st.names(), Map.copyOf(removed));
+        return true;
+    }
+
+    /** Index one document; a file already in the index is left as it is. */
+    public synchronized void add(Path file, String text) throws IOException {
+        if (indexed.contains(file.toString())) return;
+        IndexSegment.Builder b = new IndexSegment.Builder();
+        b.add(file.toString(), text);
+        commit(file, b);
+    }
+
+    /**
+     * Index a document read through {@code text}, a piece at a time, so large
+     * files are never held in memory whole. Pieces end at paragraph breaks where
+     * possible so passages come out as they would from the whole text.
+     */
+    public synchronized void add(Path file, PagedText text) throws IOException {
+        if (indexed.contains(file.toString())) return;
+        long length = text.charLength();
+        if (length > Integer.MAX_VALUE) throw new IOException("Too large to index: " + file.getFileName());
+        IndexSegment.Builder b = new IndexSegment.Builder();
+        int doc = b.startDocument(file.toString());
+        for (long pos = 0; pos < length; ) {
+            String piece = text.text(pos, pos + CHUNK_CHARS);
+            int cut = piece.length();
+            if (pos + cut < length) {
+                int para = piece.lastIndexOf("\n\n");
+                int space = piece.lastIndexOf(' ');
+                cut = para > 0 ? para : space > 0 ? space : cut;
+            }
+            b.addPassages(doc, piece.substring(0, cut), (int) pos);
+            pos += cut;
+        }
+        commit(file, b);
+    }
+
+    private void commit(Path file, IndexSegment.Builder b) throws IOException {
+        State st = state;
+        List<IndexSegment> segs = new ArrayList<>(st.segments());
+        List<String> segNames = new ArrayList<>(st.names());
+        Map<String, Set<String>> removed = new HashMap<>(st.removed());
+        segs.add(b.build());
+        segNames.add(writeSegment(segs.get(segs.size() - 1)));
+
+        List<String> obsolete = new ArrayList<>();
+        while (segs.size() >= 2
+                && segs.get(segs.size() - 1).passageCount() * 2 >= segs.get(segs.size() - 2).passageCount()) {
+            // Removed documents are left out here, so their tombstones go with the old segments.
+            IndexSegment.Builder merged = new IndexSegment.Builder();
+            merged.add(segs.get(segs.size() - 2), removed.getOrDefault(segNames.get(segNames.size() - 2), Set.of()));
+            merged.add(segs.get(segs.size() - 1), removed.getOrDefault(segNames.get(segNames.size() - 1), Set.of()));
+            obsolete.add(segNames.remove(segNames.size() - 1));
+            obsolete.add(segNames.remove(segNames.size() - 1));
+            segs.remove(segs.size() - 1);
+            segs.set(segs.size() - 1, merged.build());
+            segNames.add(writeSegment(segs.get(segs.size() - 1)));
+        }
+        writeManifest(segNames);
+        boolean tombstonesDropped = removed.keySet().removeAll(obsolete);
+        if (tombstonesDropped) writeRemoved(removed);
+        state = new State(List.copyOf(segs), List.copyOf(segNames), Map.copyOf(removed));
+        indexed.add(file.toString());
+        for (String name : obsolete) Files.deleteIfExists(dir.resolve(name));
+    }
+
+    /** The best {@code limit} passages for {@code query}, best first. Terms are OR-ed. */
+    public List<Hit> search(String query, int limit) {
+        List<String> terms = TextTokenizer.queryTerms(query);
+        State st = state;
+        List<IndexSegment> segs = st.segments();
+        if (terms.isEmpty() || limit <= 0 || segs.isEmpty()) return List.of();
+
+        // Collection statistics across all segments
+        long passages = 0;
+        long totalTerms = 0;
+        long[] df = new long[terms.size()];
+        int[][] slots = new int[segs.size()][terms.size()];
+        for (int s = 0; s < segs.size(); s++) {
+            IndexSegment seg = segs.get(s);
+            passages += seg.passageCount();
+            totalTerms += seg.totalTerms();
+            for (int t = 0; t < terms.size(); t++) {
+                slots[s][t] = seg.find(terms.get(t));
+                if (slots[s][t] >= 0) df[t] += seg.docFreq[slots[s][t]];
+            }
+        }
+        double avgLength = Math.max(1, totalTerms / (double) Math.max(1, passages));
+        double[] idf = new double[terms.size()];
+        for (int t = 0; t < terms.size(); t++) {
+            idf[t] = Math.log(1 + (passages - df[t] + 0.5) / (df[t] + 0.5));
+        }
+
+        PriorityQueue<Hit> best = new PriorityQueue<>(limit + 1, (a, b) -> Double.compare(a.score(), b.score()));
+        for (int s = 0; s < segs.size(); s++) {
+            IndexSegment seg = segs.get(s);
+            double[] scores = null;
+            for (int t = 0; t < terms.size(); t++) {
+                if (slots[s][t] < 0) continue;
+                if (scores == null) scores = new double[seg.passageCount()];
+                IndexSegment.Postings p = seg.new Postings(slots[s][t]);
+                while (p.next()) {
+                    double norm = K1 * (1 - B + B * seg.passageTerms[p.passage] / avgLength);
+                    scores[p.passage] += idf[t] * p.freq * (K1 + 1) / (p.freq + norm);
+                }
+            }
+            if (scores == null) continue;
+            Set<String> removed = st.removedFrom(st.names().get(s));
+            boolean[] dead = null;
+            if (!removed.isEmpty()) {
+                dead = new boolean[seg.docs.length];
+                for (int d = 0; d < dead.length; d++) dead[d] = removed.contains(seg.docs[d]);
+            }
+            for (int i = 0; i < scores.length; i++) {
+                if (scores[i] <= 0 || (best.size() == limit && scores[i] <= best.peek().score())) continue;
+                if (dead != null && dead[seg.passageDoc[i]]) continue;
+                best.add(new Hit(Path.of(seg.docs[seg.passageDoc[i]]), seg.passageStart[i], seg.passageEnd[i], scores[i]));
+                if (best.size() > limit) best.poll();
+            }
+        }
+        List<Hit> hits = new ArrayList<>(best);
+        hits.sort((a, b) -> Double.compare(b.score(), a.score()));
+        return hits;
+    }
+
+    private String writeSegment(IndexSegment s) throws IOException {
+        String name = "seg-" + (generation++) + ".idx";
+        Path tmp = dir.resolve(name + ".tmp");
+        s.write(tmp);
+        Files.move(tmp, dir.resolve(name), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return name;
+    }
+
+    private void writeManifest(List<String> live) throws IOException {
+        Path tmp = dir.resolve(MANIFEST + ".tmp");
+        Files.write(tmp, live, StandardCharsets.UTF_8);
+        Files.move(tmp, dir.resolve(MANIFEST), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /** {@code segment <tab> document} per line, for the given live segments only. */
+    private Map<String, Set<String>> readRemoved(List<String> live) throws IOException {
+        Path file = dir.resolve(REMOVED);
+        if (!Files.exists(file)) return Map.of();
+        Set<String> liveNames = new HashSet<>(live);
+        Map<String, Set<String>> removed = new HashMap<>();
+        for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+            int tab = line.indexOf('\t');
+            if (tab <= 0 || !liveNames.contains(line.substring(0, tab))) continue;   // merged away since
+            removed.computeIfAbsent(line.substring(0, tab), k -> new HashSet<>()).add(line.substring(tab + 1));
+        }
+        Map<String, Set<String>> frozen = new HashMap<>();
+        removed.forEach((name, docs) -> frozen.put(name, Set.copyOf(docs)));
+        return Map.copyOf(frozen);
+    }
+
+    private void writeRemoved(Map<String, Set<String>> removed) throws IOException {
+        List<String> lines = new ArrayList<>();
+        removed.forEach((name, docs) -> docs.forEach(d -> lines.add(name + "\t" + d)));
+        Path tmp = dir.resolve(REMOVED + ".tmp");
+        Files.write(tmp, lines, StandardCharsets.UTF_8);
+        Files.move(tmp, dir.resolve(REMOVED), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /** Leftovers of an interrupted add or merge. */
+    private void deleteUnlisted() throws IOException {
+        Set<String> live = new HashSet<>(state.names());
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir, "seg-*")) {
+            for (Path p : stream) {
+                if (!live.contains(p.getFileName().toString())) Files.deleteIfExists(p);
+            }
+        }
+    }
+
+    private static int generationOf(String name) {
+        try {
+            return Integer.parseInt(name.substring(4, name.indexOf('.')));
+        } catch (RuntimeException e) {
+            return 0;
+        }
+    }
+}
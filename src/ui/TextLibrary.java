@@ -4,6 +4,9 @@ import java.io.File;
 import java.io.IOException;
 import java.nio.file.*;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Consumer;
 
 /**
  * TextLibrary provides:
@@ -11,9 +14,12 @@ import java.util.*;
  * 2) A simple persistent file library under ~/.studymate/library.
  *
  * The new instance APIs:
- *  - addFile(File): copies a selected file into the library directory and returns the saved Path.
+ *  - addFileAsync(File): queues a file for the background ingestion pipeline (copy, dedupe, index).
+ *  - addFile(File): the same, waiting for the result.
  *  - listFiles(): lists all files currently stored in the library directory.
  *  - readText(Path): reads text content from simple text-like files (txt/md) for preview.
+ *  - open(Path): pages through a txt/md file without loading it whole; use for large documents.
+ *  - search(String, int): ranked passages matching a query, from the index in ~/.studymate/index.
  */
 public class TextLibrary {
 
@@ -67,46 +73,103 @@ public class TextLibrary {
 
     // ===== New persistent file library =====
     private final Path baseDir;
-    private final List<Path> storedFiles = new ArrayList<>();
+    private final TextIndex index;
+    private final LibraryIngestor ingestor;
+
+    /** A passage that matched a search, with its text for display. */
+    public record SearchResult(Path file, String passage, double score) {}
+
+    /**
+     * Outcome of adding a file. {@code duplicate} means the content was already
+     * stored, and {@code file} is that earlier copy.
+     */
+    public record Ingested(Path file, String sha256, boolean duplicate, boolean indexed) {}
 
     public TextLibrary() {
         // Default storage: ~/.studymate/library
-        this.baseDir = Paths.get(System.getProperty("user.home"), ".studymate", "library");
+        this(Paths.get(System.getProperty("user.home"), ".studymate", "library"),
+                Paths.get(System.getProperty("user.home"), ".studymate", "index"));
+    }
+
+    public TextLibrary(Path baseDir, Path indexDir) {
+        this.baseDir = baseDir;
         try {
             Files.createDirectories(baseDir);
-            // Load existing files into memory so listFiles() returns them immediately.
-            try (DirectoryStream<Path> stream = Files.newDirectoryStream(baseDir)) {
-                for (Path p : stream) {
-                    if (Files.isRegularFile(p)) storedFiles.add(p);
-                }
-            }
+            index = new TextIndex(indexDir);
+            // Known files come from the manifest; the directory itself is scanned in the background.
+            ingestor = new LibraryIngestor(baseDir, index, indexDir);
         } catch (IOException e) {
             throw new RuntimeException("Failed to initialize TextLibrary storage: " + e.getMessage(), e);
         }
     }
 
     /**
-     * Copy the given file into the library directory with a unique name.
+     * Queue a file for copying into the library and indexing. Returns at once;
+     * the future completes on a pipeline thread once the file is stored and
+     * indexed, or found to be a duplicate by content.
      * @param source the file chosen by the user
-     * @return the saved path inside the library directory
-     * @throws IOException if copy fails
      */
-    public Path addFile(File source) throws IOException {
+    public CompletableFuture<Ingested> addFileAsync(File source) {
         if (source == null || !source.exists()) {
             throw new IllegalArgumentException("Source file does not exist");
         }
-        String uniqueName = System.currentTimeMillis() + "_" + sanitize(source.getName());
-        Path target = baseDir.resolve(uniqueName);
-        Files.copy(source.toPath(), target, StandardCopyOption.REPLACE_EXISTING);
-        storedFiles.add(target);
-        return target;
+        return ingestor.submit(source.toPath());
+    }
+
+    /**
+     * Add a file and wait until it is stored and indexed. Not for the FX thread;
+     * use {@link #addFileAsync} there.
+     * @param source the file chosen by the user
+     * @return the saved path inside the library directory (the existing one for a duplicate)
+     * @throws IOException if copy fails
+     */
+    public Path addFile(File source) throws IOException {
+        try {
+            return addFileAsync(source).get().file();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException io) throw io;
+            throw new IOException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while adding " + source.getName(), e);
+        }
+    }
+
+    /** Called on a pipeline thread whenever a new file is ready, including ones dropped into the folder. */
+    public void addListener(Consumer<Ingested> listener) {
+        ingestor.addListener(listener);
+    }
+
+    /** Stop the background pipeline and folder watching. */
+    public void close() {
+        ingestor.close();
+    }
+
+    /**
+     * Passages of txt/md files in the library that best match {@code query}.
+     * @param limit maximum number of results
+     * @return best match first; empty if nothing matches
+     */
+    public List<SearchResult> search(String query, int limit) {
+        List<SearchResult> results = new ArrayList<>();
+        for (TextIndex.Hit hit : index.search(query, limit)) {
+            try (PagedText text = open(hit.file())) {
+                String passage = text.text(hit.start(), hit.end());
+                if (passage.length() == hit.end() - hit.start()) {
+                    results.add(new SearchResult(hit.file(), passage, hit.score()));
+                }
+            } catch (IOException e) {
+                // removed from disk since it was indexed
+            }
+        }
+        return results;
     }
 
     /**
      * @return an unmodifiable view of all files currently stored in the library.
      */
     public List<Path> listFiles() {
-        return Collections.unmodifiableList(storedFiles);
+        return ingestor.files();
     }
 
     /**
@@ -116,15 +179,25 @@ public class TextLibrary {
      * @throws IOException if not supported or reading fails
      */
     public String readText(Path file) throws IOException {
-        String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
-        if (name.endsWith(".txt") || name.endsWith(".md")) {
+        if (isText(file)) {
             return Files.readString(file);
         }
-        throw new IOException("Unsupported text format for preview: " + name);
+        throw new IOException("Unsupported text format for preview: " + file.getFileName());
     }
 
-    private static String sanitize(String name) {
-        // Replace illegal filename characters on Windows/macOS/Linux
-        return name.replaceAll("[\\\\/:*?\"<>|]", "_");
+    /**
+     * Open a txt/md file for paged reading. Only the pages asked for are decoded.
+     * @param file a path returned by addFile/listFiles
+     * @throws IOException if not supported or the file cannot be opened
+     */
+    public PagedText open(Path file) throws IOException {
+        if (!isText(file)) throw new IOException("Unsupported text format: " + file.getFileName());
+        return PagedText.open(file);
     }
+
+    static boolean isText(Path file) {
+        String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+        return name.endsWith(".txt") || name.endsWith(".md");
+    }
+
 }
@@ -0,0 +1,93 @@
+package ui;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Splits text for {@link TextIndex}: into passages (paragraphs, with long ones
+ * cut near sentence ends) and into lower-cased letter/digit terms.
+ */
+final class TextTokenizer {
+    static final int MAX_TERM = 32;          // longer runs are cut; they are rarely searched for
+    static final int MAX_PASSAGE = 1_000;    // chars
+    private static final int MIN_PASSAGE = 200;
+
+    interface Sink {
+        void term(String term);
+    }
+
+    private TextTokenizer() {}
+
+    /** Feed every term of {@code text[from, to)} to {@code sink}, in order. */
+    static void tokenize(CharSequence text, int from, int to, Sink sink) {
+        StringBuilder term = new StringBuilder(MAX_TERM);
+        for (int i = from; i <= to; i++) {
+            char c = i < to ? text.charAt(i) : ' ';
+            if (Character.isLetterOrDigit(c)) {
+                if (term.length() < MAX_TERM) term.append(Character.toLowerCase(c));
+            } else if (term.length() > 0) {
+                sink.term(term.toString());
+                term.setLength(0);
+            }
+        }
+    }
+
+    /** Distinct terms of a search query, in order. */
+    static List<String> queryTerms(String query) {
+        List<String> terms = new ArrayList<>();
+        tokenize(query, 0, query.length(), t -> {
+            if (!terms.contains(t)) terms.add(t);
+        });
+        return terms;
+    }
+
+    /** Passage boundaries as {start, end} pairs: blank-line paragraphs, long ones split near sentence ends. */
+    static List<int[]> passages(String text) {
+        List<int[]> out = new ArrayList<>();
+        int n = text.length();
+        int start = 0;
+        while (start < n) {
+            while (start < n && Character.isWhitespace(text.charAt(start))) start++;
+            if (start >= n) break;
+            int end = paragraphEnd(text, start);
+            while (end - start > MAX_PASSAGE) {
+                int cut = cut(text, start, start + MAX_PASSAGE);
+                out.add(new int[] {start, cut});
+                start = cut;
+                while (start < end && Character.isWhitespace(text.charAt(start))) start++;
+            }
+            if (end > start) out.add(new int[] {start, end});
+            start = end;
+        }
+        return out;
+    }
+
+    private static int paragraphEnd(String text, int from) {
+        int blank = from;
+        while (true) {
+            int nl = text.indexOf('\n', blank);
+            if (nl < 0) return trimEnd(text, from, text.length());
+            int next = nl + 1;
+            while (next < text.length() && (text.charAt(next) == ' ' || text.charAt(next) == '\t'
+                    || text.charAt(next) == '\r')) next++;
+            if (next >= text.length() || text.charAt(next) == '\n') return trimEnd(text, from, nl);
+            blank = next;
+        }
+    }
+
+    /** Best place to end a passage that must not pass {@code limit}: a sentence end, else a space. */
+    private static int cut(String text, int start, int limit) {
+        int space = -1;
+        for (int i = limit - 1; i > start + MIN_PASSAGE; i--) {
+            char c = text.charAt(i);
+            if ((c == '.' || c == '!' || c == '?') && Character.isWhitespace(text.charAt(i + 1))) return i + 1;
+            if (space < 0 && Character.isWhitespace(c)) space = i;
+        }
+        return space > 0 ? space : limit;
+    }
+
+    private static int trimEnd(String text, int from, int end) {
+        while (end > from && Character.isWhitespace(text.charAt(end - 1))) end--;
+        return end;
+    }
+}
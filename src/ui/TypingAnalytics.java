@@ -0,0 +1,168 @@
+package ui;
+
+import java.util.Arrays;
+
+/**
+ * Keystroke timing for one typing session: inter-key latency overall, per
+ * character and per bigram, mistakes per expected character, and a consistency
+ * score. Everything lives in preallocated primitive arrays, so feeding it a key
+ * does not allocate.
+ *
+ * Keys are the printable ASCII range; anything else is counted overall only.
+ * Gaps longer than {@link #IDLE_NANOS} are treated as pauses, not latency.
+ */
+public final class TypingAnalytics {
+    public static final long IDLE_NANOS = 2_000_000_000L;
+    private static final int FIRST = 32;
+    private static final int KEYS = 127 - FIRST;    // ' ' .. '~'
+
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final long[] keyMicros = new long[KEYS];
+    private final int[] keyCount = new int[KEYS];
+    private final int[] keyErrors = new int[KEYS];
+    private final long[] bigramMicros = new long[KEYS * KEYS];
+    private final int[] bigramCount = new int[KEYS * KEYS];
+
+    private long lastNanos;
+    private int lastKey = -1;     // previous typed key, -1 at the start and after a deletion or paste
+    private int typed;
+    private int errors;
+
+    public void reset() {
+        latency.reset();
+        Arrays.fill(keyMicros, 0);
+        Arrays.fill(keyCount, 0);
+        Arrays.fill(keyErrors, 0);
+        Arrays.fill(bigramMicros, 0);
+        Arrays.fill(bigramCount, 0);
+        lastNanos = 0;
+        lastKey = -1;
+        typed = 0;
+        errors = 0;
+    }
+
+    /**
+     * One typed character.
+     *
+     * @param expected the target character at that position, or 0 past the end
+     */
+    public void key(char c, char expected, boolean correct, long nanos) {
+        typed++;
+        int k = slot(c);
+        if (!correct) {
+            errors++;
+            int e = slot(expected);
+            if (e >= 0) keyErrors[e]++;
+        }
+        if (lastNanos != 0) {
+            long gap = nanos - lastNanos;
+            if (gap > 0 && gap < IDLE_NANOS) {
+                long micros = gap / 1_000;
+                latency.record(micros);
+                if (k >= 0) {
+                    keyMicros[k] += micros;
+                    keyCount[k]++;
+                    if (lastKey >= 0) {
+                        bigramMicros[lastKey * KEYS + k] += micros;
+                        bigramCount[lastKey * KEYS + k]++;
+                    }
+                }
+            }
+        }
+        lastNanos = nanos;
+        lastKey = k;
+    }
+
+    /** A deletion or a multi-character edit: the next key has no meaningful predecessor. */
+    public void breakRun(long nanos) {
+        lastNanos = nanos;
+        lastKey = -1;
+    }
+
+    public LatencyHistogram latency() {
+        return latency;
+    }
+
+    public int typed() {
+        return typed;
+    }
+
+    public int errors() {
+        return errors;
+    }
+
+    /** 100 = perfectly even rhythm, lower as inter-key gaps vary (coefficient of variation). */
+    public double consistency() {
+        double mean = latency.mean();
+        if (latency.count() < 2 || mean == 0) return 0;
+        return Math.max(0, Math.min(100, 100 * (1 - latency.stdDev() / mean)));
+    }
+
+    /** Mean latency before typing {@code c}, in ms; 0 if never timed. */
+    public double keyLatencyMs(char c) {
+        int k = slot(c);
+        return k < 0 || keyCount[k] == 0 ? 0 : keyMicros[k] / 1000.0 / keyCount[k];
+    }
+
+    public int keyCount(char c) {
+        int k = slot(c);
+        return k < 0 ? 0 : keyCount[k];
+    }
+
+    /** How often {@code c} was expected but something else was typed. */
+    public int keyErrors(char c) {
+        int k = slot(c);
+        return k < 0 ? 0 : keyErrors[k];
+    }
+
+    /** Mean latency of typing {@code second} right after {@code first}, in ms; 0 if never timed. */
+    public double bigramLatencyMs(char first, char second) {
+        int a = slot(first);
+        int b = slot(second);
+        if (a < 0 || b < 0) return 0;
+        int n = bigramCount[a * KEYS + b];
+        return n == 0 ? 0 : bigramMicros[a * KEYS + b] / 1000.0 / n;
+    }
+
+    public int bigramCount(char first, char second) {
+        int a = slot(first);
+        int b = slot(second);
+        return a < 0 || b < 0 ? 0 : bigramCount[a * KEYS + b];
+    }
+
+    /**
+     * The {@code limit} bigrams with the highest mean latency among those seen at
+     * least {@code minCount} times, slowest first, as two-character strings.
+     */
+    public String[] slowestBigrams(int limit, int minCount) {
+        int[] best = new int[limit];
+        double[] bestMs = new double[limit];
+        int n = 0;
+        for (int i = 0; i < bigramCount.length; i++) {
+            if (bigramCount[i] < minCount) continue;
+            double ms = bigramMicros[i] / 1000.0 / bigramCount[i];
+            int pos = n < limit ? n++ : limit;
+            while (pos > 0 && bestMs[pos - 1] < ms) {
+                if (pos < limit) {
+                    best[pos] = best[pos - 1];
+                    bestMs[pos] = bestMs[pos - 1];
+                }
+                pos--;
+            }
+            if (pos < limit) {
+                best[pos] = i;
+                bestMs[pos] = ms;
+            }
+        }
+        String[] out = new String[n];
+        for (int i = 0; i < n; i++) {
+            out[i] = "" + (char) (best[i] / KEYS + FIRST) + (char) (best[i] % KEYS + FIRST);
+        }
+        return out;
+    }
+
+    private static int slot(char c) {
+        int k = c - FIRST;
+        return k >= 0 && k < KEYS ? k : -1;
+    }
+}
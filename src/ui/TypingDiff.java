@@ -0,0 +1,59 @@
+package ui;
+
+/**
+ * Tracks how far typed text matches a target passage, updated per edit rather
+ * than rescanned from the start.
+ *
+ * After an edit, only text from the edit position onwards is compared, and only
+ * if the edit touched the matching prefix. Typing at the end therefore costs
+ * O(1), whatever the passage length.
+ */
+public final class TypingDiff {
+    private String target = "";
+    private int typedLength;
+    private int firstMismatch;
+
+    /** Start over with a new target and nothing typed. */
+    public void reset(String target) {
+        this.target = target == null ? "" : target;
+        typedLength = 0;
+        firstMismatch = 0;
+    }
+
+    /**
+     * Record an edit that changed the typed text from position {@code start} on
+     * (e.g. {@code TextFormatter.Change.getRangeStart()}).
+     *
+     * @param typed the whole typed text after the edit
+     */
+    public void edit(int start, CharSequence typed) {
+        typedLength = typed.length();
+        if (start <= firstMismatch) {
+            firstMismatch = start;
+            int max = Math.min(typedLength, target.length());
+            while (firstMismatch < max && typed.charAt(firstMismatch) == target.charAt(firstMismatch)) {
+                firstMismatch++;
+            }
+        }
+        // an edit after the mismatch leaves the prefix alone, but deleting can still shorten it
+        firstMismatch = Math.min(firstMismatch, typedLength);
+    }
+
+    public String target() {
+        return target;
+    }
+
+    public int typedLength() {
+        return typedLength;
+    }
+
+    /** Length of the correctly typed prefix. */
+    public int firstMismatch() {
+        return firstMismatch;
+    }
+
+    /** True once the typed text equals the target. */
+    public boolean isComplete() {
+        return firstMismatch == target.length() && typedLength == target.length();
+    }
+}
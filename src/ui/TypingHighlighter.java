@@ -0,0 +1,108 @@
+package ui;
+
+import javafx.scene.paint.Color;
+import javafx.scene.paint.Paint;
+import javafx.scene.text.Font;
+import javafx.scene.text.Text;
+import javafx.scene.text.TextFlow;
+
+/**
+ * Colours a target passage in a {@link TextFlow}: correct prefix green, mistyped
+ * part red and underlined, the rest grey.
+ *
+ * The passage is cut into fixed-size segments, each one a {@code Text} node that
+ * never changes. Only the segments around the cursor are drawn by three live
+ * nodes, so a keystroke rewrites a few short strings instead of rebuilding the
+ * whole flow. Call from the FX thread.
+ */
+public final class TypingHighlighter {
+    private static final int SEGMENT = 64;
+    private static final Paint CORRECT = Color.web("#32CD32");
+    private static final Paint WRONG = Color.CRIMSON;
+    private static final Paint PENDING = Color.GRAY;
+
+    private final TextFlow flow;
+    private final Font font;
+    private final Text ok = new Text();
+    private final Text wrong = new Text();
+    private final Text rest = new Text();
+
+    private String target = "";
+    private int segments;
+    // live nodes cover segments first..last; earlier ones are frozen green, later ones grey
+    private int first;
+    private int last;
+
+    public TypingHighlighter(TextFlow flow, Font font) {
+        this.flow = flow;
+        this.font = font;
+        style(ok, CORRECT);
+        style(wrong, WRONG);
+        wrong.setUnderline(true);
+        style(rest, PENDING);
+    }
+
+    /** Show a new passage with nothing typed. */
+    public void setTarget(String target) {
+        this.target = target == null ? "" : target;
+        segments = Math.max(1, (this.target.length() + SEGMENT - 1) / SEGMENT);
+        first = 0;
+        last = 0;
+        flow.getChildren().setAll(ok, wrong, rest);
+        for (int s = 1; s < segments; s++) flow.getChildren().add(frozen(s, PENDING));
+        render(0, 0);
+    }
+
+    /** Redraw for a typed prefix of which the first {@code firstMismatch} chars are correct. */
+    public void render(int firstMismatch, int typedLength) {
+        int typed = Math.min(typedLength, target.length());
+        int correct = Math.min(firstMismatch, typed);
+        int newFirst = segmentOf(correct);
+        int newLast = Math.max(newFirst, segmentOf(typed));
+
+        // Order keeps first <= last throughout, so the live nodes always sit at index 'first'.
+        while (last < newLast) {
+            flow.getChildren().remove(first + 3);      // grey segment last+1 goes live
+            last++;
+        }
+        while (first > newFirst) {
+            first--;
+            flow.getChildren().remove(first);          // green segment goes live again
+        }
+        while (first < newFirst) {
+            flow.getChildren().add(first, frozen(first, CORRECT));
+            first++;
+        }
+        while (last > newLast) {
+            flow.getChildren().add(first + 3, frozen(last, PENDING));
+            last--;
+        }
+
+        ok.setText(target.substring(start(first), correct));
+        wrong.setText(target.substring(correct, typed));
+        rest.setText(target.substring(typed, end(last)));
+    }
+
+    private int segmentOf(int index) {
+        return Math.min(index / SEGMENT, segments - 1);
+    }
+
+    private int start(int segment) {
+        return segment * SEGMENT;
+    }
+
+    private int end(int segment) {
+        return Math.min(target.length(), (segment + 1) * SEGMENT);
+    }
+
+    private Text frozen(int segment, Paint fill) {
+        Text t = new Text(target.substring(start(segment), end(segment)));
+        style(t, fill);
+        return t;
+    }
+
+    private void style(Text t, Paint fill) {
+        t.setFill(fill);
+        t.setFont(font);
+    }
+}
@@ -0,0 +1,104 @@
+package ui;
+
+import model.Database;
+import model.TypingSession;
+import model.TypingSessionDAO;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Saves finished typing sessions to the shared database off the FX thread.
+ *
+ * Sessions queue up and are written in batches: whatever has accumulated by the
+ * time the writer thread gets to it goes in one transaction. Reads go through
+ * {@link #query} on the same thread, so they always see earlier saves.
+ */
+public final class TypingSessionLog {
+    private static final Logger LOG = LoggerFactory.getLogger(TypingSessionLog.class);
+    private static final ExecutorService WRITER = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "typing-sessions");
+        t.setDaemon(true);
+        return t;
+    });
+    private static final ConcurrentLinkedQueue<TypingSession> QUEUE = new ConcurrentLinkedQueue<>();
+    private static final AtomicBoolean DRAIN_SCHEDULED = new AtomicBoolean();
+    private static TypingSessionDAO dao;   // writer thread only
+
+    /** Work done against the DAO on the writer thread. */
+    public interface Query<T> {
+        T run(TypingSessionDAO dao) throws SQLException;
+    }
+
+    private TypingSessionLog() {}
+
+    /** Queue a session for saving; never blocks the caller. */
+    public static void save(TypingSession session) {
+        QUEUE.add(session);
+        if (DRAIN_SCHEDULED.compareAndSet(false, true)) WRITER.execute(TypingSessionLog::drain);
+    }
+
+    /** Run {@code query} after every session saved so far has been written. */
+    public static <T> CompletableFuture<T> query(Query<T> query) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return query.run(dao());
+            } catch (SQLException e) {
+                throw new RuntimeException(e);
+            }
+        }, WRITER);
+    }
+
+    /** Wait (briefly) for queued sessions to be written; call on shutdown. */
+    public static void flush() {
+        try {
+            WRITER.submit(() -> { }).get(5, TimeUnit.SECONDS);
+        } catch (Exception e) {
+            LOG.warn("Typing sessions not flushed: {}", e.getMessage());
+        }
+    }
+
+    /** Short stable id of a passage, for the per-text rollups. */
+    public static String textKey(String text) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(text.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(hash, 0, 8);
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static void drain() {
+        DRAIN_SCHEDULED.set(false);    // anything queued from now on schedules another drain
+        List<TypingSession> batch = new ArrayList<>();
+        for (TypingSession s; (s = QUEUE.poll()) != null; ) batch.add(s);
+        if (batch.isEmpty()) return;
+        try {
+            dao().insertAll(batch);
+        } catch (SQLException e) {
+            LOG.warn("Could not save {} typing session(s): {}", batch.size(), e.getMessage());
+        }
+    }
+
+    private static TypingSessionDAO dao() throws SQLException {
+        if (dao == null) {
+            TypingSessionDAO d = new TypingSessionDAO(Database.shared());
+            d.init();
+            dao = d;
+        }
+        return dao;
+    }
+}
@@ -0,0 +1,35 @@
+package ui.views;
+
+import javafx.beans.property.SimpleStringProperty;
+import javafx.beans.property.StringProperty;
+
+/**
+ * One line of the chat transcript. The text is observable so a reply can be
+ * streamed into a message that is already on screen.
+ */
+final class ChatMessage {
+    final boolean fromUser;
+    private final StringProperty text;
+
+    // last measured cell height and the width it was measured at; -1 = not measured
+    double measuredWidth = -1;
+    double measuredHeight;
+
+    ChatMessage(boolean fromUser, String text) {
+        this.fromUser = fromUser;
+        this.text = new SimpleStringProperty(text);
+        this.text.addListener((obs, old, now) -> measuredWidth = -1);
+    }
+
+    StringProperty textProperty() {
+        return text;
+    }
+
+    String getText() {
+        return text.get();
+    }
+
+    void setText(String value) {
+        text.set(value);
+    }
+}
@@ -13,39 +13,49 @@ import javafx.scene.text.Text;
 import javafx.scene.paint.LinearGradient;
 import javafx.scene.paint.CycleMethod;
 import javafx.scene.paint.Stop;
+import ui.Conversation;
+import ui.FrameCoalescer;
 import ui.GeminiClient;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class ChatView extends BorderPane {
+    private static final Logger LOG = LoggerFactory.getLogger(ChatView.class);
+
+    // Effects and fills are immutable once set up, so every bubble shares them.
+    private static final DropShadow SHADOW = makeShadow();
+    private static final Background USER_BG = bubbleBackground(Color.web("#f6c985"));
+    private static final Background AI_BG = bubbleBackground(Color.web("#ffffff"));
+    private static final Color TEXT_COLOR = Color.web("#25324B");
+    private static final Font TEXT_FONT = Font.font("System", 14);
 
-    private final VBox chatBox = new VBox(12);
-    private final ScrollPane scrollPane = new ScrollPane();
+    // Only the visible messages have nodes; cells are recycled while scrolling.
+    private final ListView<ChatMessage> transcript = new ListView<>();
     private final TextField inputField = new TextField();
     private final Button sendBtn = new Button("Send");
-    private GeminiClient geminiClient;
+    private final GeminiClient geminiClient;
+    private final Set<CompletableFuture<String>> inFlight = ConcurrentHashMap.newKeySet();
+    private final Conversation conversation = new Conversation(
+            "You are a helpful study assistant. " +
+            "Help students learn by explaining concepts clearly, " +
+            "summarizing information, and creating study materials. " +
+            "Keep responses concise and educational.");
 
-    public ChatView() {
+    /** @param geminiClient answers the chat; null for mock replies */
+    public ChatView(GeminiClient geminiClient) {
+        this.geminiClient = geminiClient;
         setPadding(new Insets(16));
 
-        // Initialize Gemini client
-        String apiKey = System.getenv("GOOGLE_API_KEY");
-        if (apiKey != null && !apiKey.isEmpty()) {
-            try {
-                geminiClient = new GeminiClient(apiKey);
-                System.out.println("ChatView: Gemini AI initialized");
-            } catch (Exception e) {
-                System.err.println("ChatView: Failed to initialize Gemini: " + e.getMessage());
-            }
-        } else {
-            System.out.println("ChatView: GOOGLE_API_KEY not found - using mock responses");
-        }
-
         // ----- Chat area -----
-        scrollPane.setFitToWidth(true);
-        scrollPane.setVbarPolicy(ScrollPane.ScrollBarPolicy.ALWAYS);
-        chatBox.setPadding(new Insets(10));
-        chatBox.setFillWidth(true);
-        scrollPane.setContent(chatBox);
-        setCenter(scrollPane);
+        transcript.setCellFactory(list -> new MessageCell());
+        transcript.setFocusTraversable(false);
+        transcript.setStyle("-fx-background-color: transparent; -fx-background-insets: 0; -fx-padding: 4;");
+        setCenter(transcript);
 
         // ----- Input area -----
         inputField.setPromptText("Ask anything...");
@@ -62,6 +72,11 @@ public class ChatView extends BorderPane {
         // ----- Actions -----
         sendBtn.setOnAction(e -> sendMessage());
         inputField.setOnAction(e -> sendMessage());
+
+        // Replaced by another view: don't keep waiting on Gemini for nobody.
+        sceneProperty().addListener((obs, oldScene, newScene) -> {
+            if (newScene == null) cancelPending();
+        });
     }
 
     /** Starts the chat with an initial user prompt (called from Home page). */
@@ -71,8 +86,7 @@ public class ChatView extends BorderPane {
         if (p.isEmpty()) return;
 
         addUserMessage(p);
-        addAiTyping();
-        generateAiAsync(p);
+        generateAiAsync(p, addAiTyping());
     }
 
     private void sendMessage() {
@@ -82,66 +96,77 @@ public class ChatView extends BorderPane {
         addUserMessage(text);
         inputField.clear();
 
-        addAiTyping();
-        generateAiAsync(text);
+        generateAiAsync(text, addAiTyping());
     }
 
     private void addUserMessage(String text) {
-        HBox box = makeBubble(text, Pos.CENTER_RIGHT, Color.web("#f6c985"), Color.web("#25324B"));
-        chatBox.getChildren().add(box);
-        scrollPane.setVvalue(1.0);
+        append(new ChatMessage(true, text));
     }
 
-    private void addAiMessage(String text) {
-        HBox box = makeBubble(text, Pos.CENTER_LEFT, Color.web("#ffffff"), Color.web("#25324B"));
-        chatBox.getChildren().add(box);
-        scrollPane.setVvalue(1.0);
+    /** Adds the "..." message that the reply is then streamed into. */
+    private ChatMessage addAiTyping() {
+        return append(new ChatMessage(false, "..."));
     }
 
-    private HBox typingBubble;
-    private void addAiTyping() {
-        typingBubble = makeBubble("...", Pos.CENTER_LEFT, Color.web("#ffffff"), Color.web("#25324B"));
-        chatBox.getChildren().add(typingBubble);
-        scrollPane.setVvalue(1.0);
+    private ChatMessage append(ChatMessage message) {
+        transcript.getItems().add(message);
+        transcript.scrollTo(transcript.getItems().size() - 1);
+        return message;
     }
-    private void removeAiTyping() {
-        chatBox.getChildren().remove(typingBubble);
+
+    private void setBubbleText(ChatMessage message, String text) {
+        message.setText(text);
+        int last = transcript.getItems().size() - 1;
+        if (last >= 0 && transcript.getItems().get(last) == message) transcript.scrollTo(last);
     }
 
-    /** Runs the AI call off the FX thread and posts the reply. */
-    private void generateAiAsync(String prompt) {
-        new Thread(() -> {
-            String response;
-
-            if (geminiClient != null) {
-                // Use real Gemini AI
-                try {
-                    System.out.println("Calling Gemini AI with prompt: " + prompt);
-
-                    // Add context to make Gemini act as a study assistant
-                    String contextualPrompt = "You are a helpful study assistant. " +
-                            "Help students learn by explaining concepts clearly, " +
-                            "summarizing information, and creating study materials. " +
-                            "Keep responses concise and educational.\n\n" +
-                            "Student question: " + prompt;
-
-                    response = geminiClient.askGemini(contextualPrompt);
-                    System.out.println("Gemini response received");
-                } catch (Exception e) {
-                    System.err.println("Error calling Gemini: " + e.getMessage());
-                    response = "Sorry, I encountered an error: " + e.getMessage();
-                }
+    /**
+     * Sends the prompt, with as much of the earlier conversation as fits the
+     * token budget, without blocking the FX thread and streams the reply
+     * into {@code bubble}, redrawing at most once per frame.
+     */
+    private void generateAiAsync(String prompt, ChatMessage bubble) {
+        FrameCoalescer partial = new FrameCoalescer(text -> setBubbleText(bubble, text));
+        Conversation.Exchange exchange = conversation.ask(prompt);
+        CompletableFuture<String> reply;
+        if (geminiClient != null) {
+            LOG.debug("Calling Gemini, prompt of {} chars", prompt.length());
+            partial.start();
+            reply = geminiClient.streamAsync(conversation.window(exchange), partial::append);
+        } else {
+            // Fall back to mock response if no API key
+            reply = CompletableFuture.completedFuture(mockReply(prompt)
+                    + "\n\n(Note: Set GOOGLE_API_KEY environment variable to enable real AI responses)");
+        }
+
+        inFlight.add(reply);
+        reply.whenComplete((response, err) -> {
+            inFlight.remove(reply);
+            if (reply.isCancelled()) {     // view was closed
+                Platform.runLater(partial::cancel);
+                return;
+            }
+            String text;
+            if (err != null) {
+                Throwable cause = err instanceof CompletionException && err.getCause() != null ? err.getCause() : err;
+                LOG.warn("Error calling Gemini: {}", cause.getMessage());
+                text = "Sorry, I encountered an error: " + cause.getMessage();
             } else {
-                // Fall back to mock response if no API key
-                response = mockReply(prompt) + "\n\n(Note: Set GOOGLE_API_KEY environment variable to enable real AI responses)";
+                LOG.debug("Gemini response received");
+                conversation.answer(exchange, response);
+                text = response;
             }
-
-            final String finalResponse = response;
             Platform.runLater(() -> {
-                removeAiTyping();
-                addAiMessage(finalResponse);
+                partial.stop();
+                setBubbleText(bubble, text);
             });
-        }, "gemini-ai-thread").start();
+        });
+    }
+
+    /** Abort every request still waiting for Gemini (e.g. the view was navigated away from). */
+    public void cancelPending() {
+        for (CompletableFuture<String> f : inFlight) f.cancel(true);
+        inFlight.clear();
     }
 
     private String mockReply(String userText) {
@@ -156,24 +181,55 @@ public class ChatView extends BorderPane {
         return "Thanks! I read: \"" + t + "\".\nWant me to summarise, explain, make flashcards, or quiz you?";
     }
 
-    // Utility: create a rounded "bubble" box
-    private HBox makeBubble(String msg, Pos alignment, Color bg, Color textColor) {
-        Text t = new Text(msg);
-        t.setFill(textColor);
-        t.setWrappingWidth(420);
-        t.setFont(Font.font("System", 14));
-
-        StackPane bubble = new StackPane(t);
-        bubble.setPadding(new Insets(10, 14, 10, 14));
-        bubble.setBackground(new Background(new BackgroundFill(bg, new CornerRadii(16), Insets.EMPTY)));
-        bubble.setEffect(makeShadow());
-
-        HBox box = new HBox(bubble);
-        box.setAlignment(alignment);
-        return box;
+    /** A rounded "bubble" row, reused for whichever message scrolls into view. */
+    private static final class MessageCell extends ListCell<ChatMessage> {
+        private final Text text = new Text();
+        private final StackPane bubble = new StackPane(text);
+        private final HBox row = new HBox(bubble);
+        private ChatMessage shown;
+
+        MessageCell() {
+            text.setFill(TEXT_COLOR);
+            text.setWrappingWidth(420);
+            text.setFont(TEXT_FONT);
+            bubble.setPadding(new Insets(10, 14, 10, 14));
+            bubble.setEffect(SHADOW);
+            setStyle("-fx-background-color: transparent; -fx-padding: 6 6 6 6;");
+        }
+
+        @Override
+        protected void updateItem(ChatMessage message, boolean empty) {
+            super.updateItem(message, empty);
+            if (shown != null) text.textProperty().unbind();
+            shown = empty ? null : message;
+            if (shown == null) {
+                setGraphic(null);
+                return;
+            }
+            text.textProperty().bind(message.textProperty());
+            bubble.setBackground(message.fromUser ? USER_BG : AI_BG);
+            row.setAlignment(message.fromUser ? Pos.CENTER_RIGHT : Pos.CENTER_LEFT);
+            setGraphic(row);
+        }
+
+        // Text layout is the expensive part of measuring; reuse it until the text or width changes.
+        @Override
+        protected double computePrefHeight(double width) {
+            ChatMessage m = shown;
+            if (m == null) return super.computePrefHeight(width);
+            if (m.measuredWidth == width) return m.measuredHeight;
+            double h = super.computePrefHeight(width);
+            m.measuredWidth = width;
+            m.measuredHeight = h;
+            return h;
+        }
+    }
+
+    private static Background bubbleBackground(Color bg) {
+        return new Background(new BackgroundFill(bg, new CornerRadii(16), Insets.EMPTY));
     }
 
-    private DropShadow makeShadow() {
+    private static DropShadow makeShadow() {
         DropShadow ds = new DropShadow();
         ds.setColor(Color.rgb(27, 43, 77, 0.12));
         ds.setRadius(10);
@@ -187,7 +243,7 @@ public class ChatView extends BorderPane {
         tf.setBorder(new Border(new BorderStroke(Color.web("#f1c77f"), BorderStrokeStyle.SOLID,
                 new CornerRadii(999), new BorderWidths(2))));
         tf.setPadding(new Insets(10, 18, 10, 18));
-        tf.setEffect(makeShadow());
+        tf.setEffect(SHADOW);
     }
 
     private void stylePrimaryButton(Button b) {
@@ -198,6 +254,6 @@ public class ChatView extends BorderPane {
                 new CornerRadii(999), Insets.EMPTY)));
         b.setTextFill(Color.web("#25324B"));
         b.setPadding(new Insets(10, 22, 10, 22));
-        b.setEffect(makeShadow());
+        b.setEffect(SHADOW);
     }
 }
\ No newline at end of file
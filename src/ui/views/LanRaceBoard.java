@@ -0,0 +1,137 @@
+package ui.views;
+
+import javafx.application.Platform;
+import javafx.geometry.Pos;
+import javafx.scene.control.Label;
+import javafx.scene.control.ProgressBar;
+import javafx.scene.layout.HBox;
+import javafx.scene.layout.Priority;
+import javafx.scene.layout.VBox;
+import ui.RaceClient;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+
+/**
+ * Progress bars for everyone in a LAN race. Network callbacks arrive on the
+ * client's thread and are applied on the FX thread. A tick carries only the
+ * racers that moved, so only their bars change.
+ */
+final class LanRaceBoard extends VBox implements RaceClient.Listener {
+    private record Row(HBox box, Label name, ProgressBar bar) {}
+
+    private final Label status = new Label("Not connected");
+    private final Map<Integer, Row> rows = new HashMap<>();    // FX thread only
+    private int myId = -1;
+    private int textLength = 1;
+    private Consumer<String> onStart = text -> { };
+    private IntConsumer onPlace = place -> { };
+
+    LanRaceBoard() {
+        super(4);
+        status.setStyle("-fx-text-fill: #555;");
+        getChildren().add(status);
+    }
+
+    /** Called with the passage when the host starts a race. */
+    void setOnStart(Consumer<String> onStart) {
+        this.onStart = onStart;
+    }
+
+    /** Called with this player's place when they finish. */
+    void setOnPlace(IntConsumer onPlace) {
+        this.onPlace = onPlace;
+    }
+
+    void setStatus(String text) {
+        status.setText(text);
+    }
+
+    void clear() {
+        rows.clear();
+        getChildren().setAll(status);
+        myId = -1;
+    }
+
+    @Override
+    public void welcome(int id) {
+        Platform.runLater(() -> myId = id);
+    }
+
+    @Override
+    public void joined(int id, String name) {
+        Platform.runLater(() -> {
+            Row old = rows.remove(id);
+            if (old != null) getChildren().remove(old.box());
+            Label label = new Label(id == myId ? name + " (you)" : name);
+            label.setMinWidth(160);
+            ProgressBar bar = new ProgressBar(0);
+            bar.setMaxWidth(Double.MAX_VALUE);
+            HBox.setHgrow(bar, Priority.ALWAYS);
+            HBox box = new HBox(8, label, bar);
+            box.setAlignment(Pos.CENTER_LEFT);
+            rows.put(id, new Row(box, label, bar));
+            getChildren().add(box);
+            status.setText(rows.size() + " racer(s) connected");
+        });
+    }
+
+    @Override
+    public void left(int id) {
+        Platform.runLater(() -> {
+            Row row = rows.remove(id);
+            if (row != null) getChildren().remove(row.box());
+            status.setText(rows.size() + " racer(s) connected");
+        });
+    }
+
+    @Override
+    public void started(String text) {
+        Platform.runLater(() -> {
+            textLength = Math.max(1, text.length());
+            for (Row row : rows.values()) {
+                row.bar().setProgress(0);
+                row.bar().setStyle("");
+            }
+            status.setText("Race on!");
+            onStart.accept(text);
+        });
+    }
+
+    @Override
+    public void tick(long serverNanos, int count, int[] ids, int[] correct, int[] typed) {
+        int[] idCopy = Arrays.copyOf(ids, count);
+        int[] correctCopy = Arrays.copyOf(correct, count);
+        int[] typedCopy = Arrays.copyOf(typed, count);
+        Platform.runLater(() -> {
+            for (int i = 0; i < count; i++) {
+                Row row = rows.get(idCopy[i]);
+                if (row == null) continue;
+                row.bar().setProgress(correctCopy[i] / (double) textLength);
+                row.bar().setStyle(typedCopy[i] > correctCopy[i] ? "-fx-accent: crimson;" : "");
+            }
+        });
+    }
+
+    @Override
+    public void finished(int id, int place, long millis) {
+        Platform.runLater(() -> {
+            Row row = rows.get(id);
+            if (row != null) {
+                row.name().setText(row.name().getText().replaceFirst(" — .*", "")
+                        + String.format(" — #%d, %.1f s", place, millis / 1000.0));
+            }
+            if (id == myId) onPlace.accept(place);
+        });
+    }
+
+    @Override
+    public void closed(IOException cause) {
+        Platform.runLater(() -> status.setText(cause == null ? "Disconnected"
+                : "Connection lost: " + cause.getMessage()));
+    }
+}
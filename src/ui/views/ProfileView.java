@@ -4,9 +4,16 @@ import javafx.geometry.Insets;
 import javafx.geometry.Pos;
 import javafx.scene.control.*;
 import javafx.scene.layout.*;
+import javafx.application.Platform;
+import model.TypingRollup;
+import model.TypingSessionDAO;
 import model.User;
 import model.UserDAO;
 import ui.Session;
+import ui.TypingSessionLog;
+
+import java.time.LocalDate;
+import java.util.List;
 
 public class ProfileView extends BorderPane {
     private final Label emailLabel = new Label("-");
@@ -15,6 +22,9 @@ public class ProfileView extends BorderPane {
     private final PasswordField newPasswordField = new PasswordField();
     private final PasswordField confirmPasswordField = new PasswordField();
     private final Label msg = new Label();
+    private final Label typingTotals = new Label("-");
+    private final Label typingDays = new Label();
+    private final Label typingWeeks = new Label();
 
     private UserDAO userDAO;
 
@@ -56,7 +66,13 @@ public class ProfileView extends BorderPane {
         g.add(bold("New Password:"),0,r); g.add(newPasswordField,1,r++);
         g.add(bold("Confirm Password:"),0,r); g.add(confirmPasswordField,1,r); g.add(changePwd,2,r++);
 
-        card.getChildren().addAll(title, g, msg);
+        Label typingTitle = new Label("Typing");
+        typingTitle.setStyle("-fx-font-size:16px; -fx-font-weight:bold;");
+        typingDays.setStyle("-fx-font-family: monospace;");
+        typingWeeks.setStyle("-fx-font-family: monospace;");
+
+        card.getChildren().addAll(title, g, msg, typingTitle, typingTotals,
+                bold("Last 7 days"), typingDays, bold("Last 8 weeks"), typingWeeks);
         return card;
     }
 
@@ -73,6 +89,43 @@ public class ProfileView extends BorderPane {
         createdAtLabel.setText(user.getCreatedAt()==null ? "-" : user.getCreatedAt().toString());
         usernameField.setText(user.getUsername()==null ? "" : user.getUsername());
         newPasswordField.clear(); confirmPasswordField.clear();
+        loadTypingStats(user.getId());
+    }
+
+    /** Trends come from the pre-aggregated rollups: a few primary-key reads, however long the history. */
+    private void loadTypingStats(long userId) {
+        LocalDate today = LocalDate.now();
+        TypingSessionLog.query(dao -> new TypingStats(
+                dao.rollup(userId, TypingRollup.ALL, ""),
+                dao.rollups(userId, TypingRollup.DAY,
+                        TypingSessionDAO.dayBucket(today.minusDays(6)), TypingSessionDAO.dayBucket(today)),
+                dao.rollups(userId, TypingRollup.WEEK,
+                        TypingSessionDAO.weekBucket(today.minusWeeks(7)), TypingSessionDAO.weekBucket(today))
+        )).whenComplete((stats, err) -> Platform.runLater(() -> {
+            if (err != null) {
+                typingTotals.setText("Typing history unavailable: " + err.getMessage());
+                return;
+            }
+            TypingRollup all = stats.all();
+            typingTotals.setText(all.getSessions() == 0 ? "No typing sessions yet." : String.format(
+                    "%d sessions • avg %.1f WPM • best %.1f WPM • avg accuracy %.1f%%",
+                    all.getSessions(), all.getAverageWpm(), all.getBestWpm(), all.getAverageAccuracy()));
+            typingDays.setText(trend(stats.days()));
+            typingWeeks.setText(trend(stats.weeks()));
+        }));
+    }
+
+    private record TypingStats(TypingRollup all, List<TypingRollup> days, List<TypingRollup> weeks) {}
+
+    private static String trend(List<TypingRollup> rollups) {
+        if (rollups.isEmpty()) return "-";
+        StringBuilder sb = new StringBuilder();
+        for (TypingRollup t : rollups) {
+            if (!sb.isEmpty()) sb.append('\n');
+            sb.append(String.format("%-10s %3d sessions  %5.1f WPM  %5.1f%%",
+                    t.getBucket(), t.getSessions(), t.getAverageWpm(), t.getAverageAccuracy()));
+        }
+        return sb.toString();
     }
 
     private void handleSaveUsername() {
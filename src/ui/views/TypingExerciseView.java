@@ -8,13 +8,23 @@ import javafx.scene.control.*;
 import javafx.scene.layout.*;
 import javafx.scene.text.Font;
 import javafx.scene.text.FontWeight;
-import javafx.scene.text.Text;
 import javafx.scene.text.TextFlow;
+import javafx.stage.FileChooser;
 import javafx.util.Duration;
-import javafx.scene.paint.Color;
+import ui.KeystrokeRecorder;
+import ui.PagedText;
 import ui.TextLibrary;
+import ui.TypingSessionLog;
+import ui.TypingDiff;
+import ui.TypingHighlighter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
 
 public class TypingExerciseView extends BorderPane {
+    private static final Logger LOG = LoggerFactory.getLogger(TypingExerciseView.class);
 
     // Header
     private final Button backBtn = new Button("Back");
@@ -23,8 +33,14 @@ public class TypingExerciseView extends BorderPane {
 
     // Body
     private final TextFlow targetFlow = new TextFlow();
+    private final TypingHighlighter highlighter = new TypingHighlighter(targetFlow, Font.font(16));
+    private final TypingDiff diff = new TypingDiff();
+    private final KeystrokeRecorder recorder = new KeystrokeRecorder();
     private final TextArea inputArea = new TextArea();
     private final Button nextBtn = new Button("Next");
+    private final Button openBtn = new Button("Open file...");
+    private final Button samplesBtn = new Button("Samples");
+    private final Label sourceLabel = new Label("");
 
     // Footer
     private final Label stats = new Label("");
@@ -35,7 +51,12 @@ public class TypingExerciseView extends BorderPane {
     private Timeline clock;
     private Runnable onBack;
     private boolean exerciseStarted = false;
-    private int mistakesCount = 0;
+
+    // Passages come from a paged document when one is open, otherwise from the samples
+    private static final int PASSAGE_CHARS = 400;
+    private PagedText document;
+    private String documentName = "";
+    private long cursor;          // char offset of the next passage
 
     public TypingExerciseView() {
         setPadding(new Insets(10));
@@ -57,7 +78,9 @@ public class TypingExerciseView extends BorderPane {
         inputArea.setPrefRowCount(6);
         inputArea.setPrefHeight(160);
 
-        HBox actions = new HBox(8, nextBtn);
+        sourceLabel.setStyle("-fx-text-fill: #555;");
+        HBox actions = new HBox(8, nextBtn, openBtn, samplesBtn, sourceLabel);
+        actions.setAlignment(Pos.CENTER_LEFT);
         VBox center = new VBox(10, targetFlow, inputArea, actions);
         setCenter(center);
 
@@ -69,6 +92,14 @@ public class TypingExerciseView extends BorderPane {
         // Wiring
         backBtn.setOnAction(e -> { if (onBack != null) onBack.run(); });
         nextBtn.setOnAction(e -> prepareRound());
+        openBtn.setOnAction(e -> openDocument());
+        samplesBtn.setOnAction(e -> {
+            closeDocument();
+            prepareRound();
+        });
+
+        // Reports each edit's range, so the listener below only looks at what changed.
+        recorder.attach(inputArea);
 
         // Live typing listener
         inputArea.textProperty().addListener((obs, oldValue, newValue) -> {
@@ -77,20 +108,11 @@ public class TypingExerciseView extends BorderPane {
                 exerciseStarted = true;
             }
 
-            // Count new mistakes as the user types
-            int pos = newValue.length() - 1;
-            if (pos >= 0 && pos < target.length()) {
-                char typedChar = newValue.charAt(pos);
-                char targetChar = target.charAt(pos);
-                if (typedChar != targetChar) {
-                    mistakesCount++;
-                }
-            }
-
-            highlight(newValue);
-            updateStats(newValue);
+            diff.edit(recorder.record(oldValue, newValue, System.nanoTime()), newValue);
+            highlighter.render(diff.firstMismatch(), diff.typedLength());
+            updateStats();
 
-            if (newValue.equals(target)) {
+            if (diff.isComplete()) {
                 finishExercise();
             }
         });
@@ -107,11 +129,12 @@ public class TypingExerciseView extends BorderPane {
 
     private void prepareRound() {
         target = buildParagraph();
-        renderTarget("", 0);
         inputArea.clear();
+        diff.reset(target);
+        highlighter.setTarget(target);
+        recorder.reset(target);
         inputArea.setDisable(false);
         exerciseStarted = false;
-        mistakesCount = 0;
 
         nextBtn.setDisable(false);
         stats.setText("");
@@ -131,7 +154,12 @@ public class TypingExerciseView extends BorderPane {
     private void finishExercise() {
         clock.stop();
         inputArea.setDisable(true);
-        updateStats(inputArea.getText());
+        updateStats();
+
+        model.TypingSession session = recorder.summarize("exercise", System.nanoTime());
+        stats.setText(stats.getText() + String.format(" | Median key: %.0f ms | Consistency: %.0f%%",
+                session.getP50Ms(), session.getConsistency()));
+        TypingSessionLog.save(session);
     }
 
     private void tick() {
@@ -139,64 +167,87 @@ public class TypingExerciseView extends BorderPane {
         int m = elapsedSec / 60;
         int s = elapsedSec % 60;
         timerLabel.setText(String.format("%02d:%02d", m, s));
-        updateStats(inputArea.getText());
+        updateStats();
     }
 
-    private void updateStats(String typed) {
-        double minutes = Math.max(1.0 / 60.0, elapsedSec / 60.0); // min 1 second
-        int correctChars = Math.min(typed.length(), target.length()) - mistakesCount;
-        if (correctChars < 0) correctChars = 0;
-
-        double accuracy = typed.length() == 0 ? 0.0 : (100.0 * correctChars / typed.length());
-        double wpm = (typed.length() / 5.0) / minutes;
+    private void updateStats() {
+        double accuracy = recorder.accuracy();
+        double wpm = recorder.wpm(System.nanoTime());
 
         stats.setText(String.format("Time: %s | WPM: %.1f | Accuracy: %.1f%%",
                 timerLabel.getText(), wpm, accuracy));
     }
 
-    private void highlight(String typed) {
-        int firstMismatch = firstMismatchIndex(typed, target);
-        renderTarget(typed, firstMismatch);
+    private String buildParagraph() {
+        if (document != null) {
+            try {
+                String passage = nextPassage();
+                if (!passage.isEmpty()) return passage;
+            } catch (IOException e) {
+                LOG.warn("Could not read {}: {}", documentName, e.getMessage());
+            }
+            closeDocument();
+        }
+        sourceLabel.setText("");
+        return TextLibrary.getRandomText();
     }
 
-    private void renderTarget(String typed, int firstMismatch) {
-        targetFlow.getChildren().clear();
-        if (typed == null) typed = "";
-
-        int typedLen = typed.length();
-        int tgtLen = target.length();
-        int correctEnd = Math.min(firstMismatch, tgtLen);
-        int mismatchEnd = Math.min(typedLen, tgtLen);
-
-        if (correctEnd > 0) {
-            Text ok = new Text(target.substring(0, correctEnd));
-            ok.setFill(Color.web("#32CD32"));
-            ok.setFont(Font.font(16));
-            targetFlow.getChildren().add(ok);
-        }
-        if (mismatchEnd > correctEnd) {
-            Text wrong = new Text(target.substring(correctEnd, mismatchEnd));
-            wrong.setFill(Color.CRIMSON);
-            wrong.setUnderline(true);
-            wrong.setFont(Font.font(16));
-            targetFlow.getChildren().add(wrong);
-        }
-        if (tgtLen > mismatchEnd) {
-            Text rest = new Text(target.substring(mismatchEnd));
-            rest.setFill(Color.GRAY);
-            rest.setFont(Font.font(16));
-            targetFlow.getChildren().add(rest);
+    // ===== Documents =====
+    private void openDocument() {
+        FileChooser chooser = new FileChooser();
+        chooser.setTitle("Practice from a text file");
+        chooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("Text (txt, md)", "*.txt", "*.md"));
+        File file = chooser.showOpenDialog(getScene() == null ? null : getScene().getWindow());
+        if (file == null) return;
+        closeDocument();
+        try {
+            document = PagedText.open(file.toPath());   // maps the file; nothing is read yet
+            documentName = file.getName();
+            cursor = 0;
+        } catch (IOException e) {
+            LOG.warn("Could not open {}: {}", file, e.getMessage());
+            sourceLabel.setText("Could not open " + file.getName());
+            return;
         }
+        prepareRound();
     }
 
-    private static int firstMismatchIndex(String typed, String target) {
-        int i = 0;
-        int max = Math.min(typed.length(), target.length());
-        while (i < max && typed.charAt(i) == target.charAt(i)) i++;
-        return i;
+    private void closeDocument() {
+        if (document == null) return;
+        try {
+            document.close();
+        } catch (IOException ignored) {
+        }
+        document = null;
     }
 
-    private static String buildParagraph() {
-        return TextLibrary.getRandomText();
+    /**
+     * The next passage of the open document: about {@link #PASSAGE_CHARS} chars
+     * ending at a sentence or word, with whitespace collapsed. Wraps at the end.
+     * Only the page or two under the cursor get decoded.
+     */
+    private String nextPassage() throws IOException {
+        for (int attempt = 0; attempt < 2; attempt++) {
+            String window = document.text(cursor, cursor + PASSAGE_CHARS + 100);
+            int cut = window.length();
+            if (cut > PASSAGE_CHARS) {
+                cut = -1;
+                for (int i = PASSAGE_CHARS; i > PASSAGE_CHARS / 3 && cut < 0; i--) {
+                    char c = window.charAt(i - 1);
+                    if ((c == '.' || c == '!' || c == '?') && Character.isWhitespace(window.charAt(i))) cut = i;
+                }
+                if (cut < 0) cut = Math.max(window.lastIndexOf(' ', PASSAGE_CHARS), PASSAGE_CHARS / 2);
+            }
+            String passage = window.substring(0, cut).strip().replaceAll("\\s+", " ");
+            long start = cursor;
+            cursor += cut;
+            if (!passage.isEmpty()) {
+                sourceLabel.setText(String.format("%s, page %d of %d", documentName,
+                        document.pageOf(start) + 1, document.pageCount()));
+                return passage;
+            }
+            if (window.isEmpty()) cursor = 0;      // end of the document: start over
+        }
+        return "";
     }
 }
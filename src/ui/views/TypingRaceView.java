@@ -1,26 +1,49 @@
 package ui.views;
 
-import javafx.animation.KeyFrame;
-import javafx.animation.Timeline;
+import javafx.application.Platform;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
 import javafx.scene.control.*;
 import javafx.scene.layout.*;
 import javafx.scene.text.*;
-import javafx.util.Duration;
-import javafx.scene.paint.Color;
+import ui.KeystrokeRecorder;
+import ui.RaceClient;
+import ui.RaceEngine;
+import ui.RaceOpponent;
+import ui.RaceServer;
+import ui.Session;
 import ui.TextLibrary;
+import ui.TypingSessionLog;
+import ui.TypingDiff;
+import ui.TypingHighlighter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.CompletableFuture;
 
 public class TypingRaceView extends BorderPane {
+    private static final Logger LOG = LoggerFactory.getLogger(TypingRaceView.class);
 
     // Header
     private final Button backBtn = new Button("Back");
     private final Label heading = new Label("Typing Race");
     private final Label timerLabel = new Label("00:00");
+    private final MenuButton lanMenu = new MenuButton("LAN");
+    private final MenuItem hostItem = new MenuItem("Host race");
+    private final MenuItem joinItem = new MenuItem("Join race...");
+    private final MenuItem startItem = new MenuItem("Start race");
+    private final MenuItem leaveItem = new MenuItem("Leave");
 
     // Body
     private final TextFlow userFlow = new TextFlow();
-    private final TextFlow aiFlow = new TextFlow();
+    private final VBox opponentsBox = new VBox(6);
+    private final TypingHighlighter userHighlighter = new TypingHighlighter(userFlow, Font.font(16));
+    private final TypingDiff diff = new TypingDiff();
+    private final KeystrokeRecorder recorder = new KeystrokeRecorder();
     private final TextArea inputArea = new TextArea();
 
     // Footer
@@ -29,16 +52,21 @@ public class TypingRaceView extends BorderPane {
     // Data
     private String target = "";
     private int elapsedSec = 0;
-    private Timeline clock;
     private Runnable onBack;
     private boolean exerciseStarted = false;
-    private int mistakesCount = 0;
 
-    // AI settings
-    private double aiWPM = 20;      // low difficulty
-    private double aiAccuracy = 90; // % of chars correct
-    private int aiIndex = 0;
-    private Timeline aiClock;
+    // AI opponents; one engine drives them and the clock off the frame pulse
+    private final RaceEngine engine = new RaceEngine();
+    private List<RaceOpponent> opponents = List.of(
+            new RaceOpponent("Steady", 20, 90, 0.1),
+            new RaceOpponent("Sprinter", 35, 85, 0.8),
+            new RaceOpponent("Ace", 50, 97, 0.3));
+    private SplittableRandom seeds = new SplittableRandom();
+
+    // LAN race; the host also joins its own server as a client
+    private final LanRaceBoard lanBoard = new LanRaceBoard();
+    private RaceServer server;
+    private RaceClient client;
 
     public TypingRaceView() {
         setPadding(new Insets(10));
@@ -49,21 +77,21 @@ public class TypingRaceView extends BorderPane {
         Region spacer = new Region();
         HBox.setHgrow(spacer, Priority.ALWAYS);
 
-        HBox top = new HBox(12, backBtn, heading, spacer, timerLabel);
+        lanMenu.getItems().addAll(hostItem, joinItem, startItem, leaveItem);
+        HBox top = new HBox(12, backBtn, heading, spacer, lanMenu, timerLabel);
         top.setAlignment(Pos.CENTER_LEFT);
         setTop(top);
         BorderPane.setMargin(top, new Insets(0, 0, 10, 0));
 
         // ===== Center =====
         userFlow.setPrefWidth(800);
-        aiFlow.setPrefWidth(800);
 
         inputArea.setWrapText(true);
         inputArea.setPrefRowCount(5);
         inputArea.setPrefHeight(120);
 
         VBox center = new VBox(10, new Label("Your progress:"), userFlow,
-                new Label("AI progress:"), aiFlow, inputArea);
+                opponentsBox, lanBoard, inputArea);
         setCenter(center);
 
         // ===== Bottom =====
@@ -73,6 +101,20 @@ public class TypingRaceView extends BorderPane {
 
         // Wiring
         backBtn.setOnAction(e -> { if (onBack != null) onBack.run(); });
+        hostItem.setOnAction(e -> hostLan());
+        joinItem.setOnAction(e -> {
+            TextInputDialog dialog = new TextInputDialog("localhost");
+            dialog.setHeaderText("Host address of the race");
+            dialog.showAndWait().map(String::trim).filter(h -> !h.isEmpty()).ifPresent(h -> joinLan(h, null));
+        });
+        startItem.setOnAction(e -> { if (server != null) server.startRace(TextLibrary.getRandomText()); });
+        leaveItem.setOnAction(e -> leaveLan());
+        lanBoard.setOnStart(this::prepareRound);
+        lanBoard.setOnPlace(place -> stats.setText(stats.getText() + " | Place: " + place));
+        showLan(false);
+
+        // Reports each edit's range, so the listener below only looks at what changed.
+        recorder.attach(inputArea);
 
         // Live typing listener
         inputArea.textProperty().addListener((obs, oldValue, newValue) -> {
@@ -81,153 +123,192 @@ public class TypingRaceView extends BorderPane {
                 exerciseStarted = true;
             }
 
-            // Count mistakes
-            int pos = newValue.length() - 1;
-            if (pos >= 0 && pos < target.length()) {
-                char typedChar = newValue.charAt(pos);
-                char targetChar = target.charAt(pos);
-                if (typedChar != targetChar) mistakesCount++;
-            }
+            diff.edit(recorder.record(oldValue, newValue, System.nanoTime()), newValue);
+            userHighlighter.render(diff.firstMismatch(), diff.typedLength());
+            updateStats();
+            if (client != null) client.sendProgress(diff.firstMismatch(), diff.typedLength());
 
-            highlightPlayer(newValue);
-            updateStats(newValue);
-
-            if (newValue.equals(target)) {
+            if (diff.isComplete()) {
                 finishExercise();
             }
         });
 
-        // Timer
-        clock = new Timeline(new KeyFrame(Duration.seconds(1), e -> tick()));
-        clock.setCycleCount(Timeline.INDEFINITE);
-
-        // AI Timer
-        double aiIntervalSec = 60.0 / (aiWPM * 5.0); // time per char
-        aiClock = new Timeline(new KeyFrame(Duration.seconds(aiIntervalSec), e -> updateAI()));
-        aiClock.setCycleCount(Timeline.INDEFINITE);
+        engine.setOnFrame(this::tick);
+        engine.setOnFinish(this::opponentFinished);
 
+        buildLanes();
         prepareRound();
     }
 
     public void setOnBack(Runnable r) { this.onBack = r; }
 
+    /** Race against these opponents from the next round on. */
+    public void setOpponents(List<RaceOpponent> opponents) {
+        this.opponents = List.copyOf(opponents);
+        buildLanes();
+        prepareRound();
+    }
+
+    /** Make the following rounds reproducible: same seed and passage, same opponent runs. */
+    public void setSeed(long seed) {
+        seeds = new SplittableRandom(seed);
+        prepareRound();
+    }
+
+    private void buildLanes() {
+        engine.clear();
+        opponentsBox.getChildren().clear();
+        for (RaceOpponent o : opponents) {
+            TextFlow flow = new TextFlow();
+            flow.setPrefWidth(800);
+            engine.add(o, new TypingHighlighter(flow, Font.font(16)));
+            opponentsBox.getChildren().addAll(new Label(laneTitle(o)), flow);
+        }
+    }
+
+    private static String laneTitle(RaceOpponent o) {
+        return String.format("%s (%.0f WPM, %.0f%%):", o.getName(), o.getWpm(), o.getAccuracy());
+    }
+
+    // ===== LAN =====
+    private void hostLan() {
+        if (client != null) return;
+        try {
+            server = new RaceServer(RaceServer.DEFAULT_PORT);
+        } catch (IOException e) {
+            LOG.warn("Could not host race: {}", e.getMessage());
+            lanBoard.setStatus("Could not host: " + e.getMessage());
+            return;
+        }
+        String address;
+        try {
+            address = InetAddress.getLocalHost().getHostAddress();
+        } catch (IOException e) {
+            address = "this computer";
+        }
+        joinLan("localhost", "Hosting on " + address + ":" + server.port());
+    }
+
+    private void joinLan(String host, String hostingNote) {
+        if (client != null) return;
+        String name = Session.isLoggedIn() ? Session.getCurrentUser().getUsername() : "Guest";
+        int port = server != null ? server.port() : RaceServer.DEFAULT_PORT;
+        lanBoard.clear();
+        lanBoard.setStatus("Connecting to " + host + "...");
+        showLan(true);
+        CompletableFuture.supplyAsync(() -> {
+            try {
+                return RaceClient.connect(host, port, name, lanBoard);
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        }).whenComplete((c, err) -> Platform.runLater(() -> {
+            if (err != null) {
+                LOG.warn("Could not join race: {}", err.getCause().getMessage());
+                leaveLan();
+                lanBoard.setStatus("Could not join " + host + ": " + err.getCause().getMessage());
+                return;
+            }
+            client = c;
+            lanBoard.setStatus(hostingNote != null ? hostingNote : "Waiting for the host to start");
+        }));
+    }
+
+    private void leaveLan() {
+        if (client != null) client.close();
+        if (server != null) server.close();
+        client = null;
+        server = null;
+        lanBoard.clear();
+        lanBoard.setStatus("Not connected");
+        showLan(false);
+        buildLanes();
+        prepareRound();
+    }
+
+    /** Swap the AI lanes for the LAN board and back. */
+    private void showLan(boolean lan) {
+        if (lan) engine.clear();       // the engine keeps running the clock, with no opponents
+        opponentsBox.setVisible(!lan);
+        opponentsBox.setManaged(!lan);
+        lanBoard.setVisible(lan);
+        lanBoard.setManaged(lan);
+        hostItem.setDisable(lan);
+        joinItem.setDisable(lan);
+        startItem.setDisable(!lan || server == null);
+        leaveItem.setDisable(!lan);
+    }
+
     private void prepareRound() {
-        target = TextLibrary.getRandomText();
-        userFlow.getChildren().clear();
-        aiFlow.getChildren().clear();
+        prepareRound(TextLibrary.getRandomText());
+    }
+
+    private void prepareRound(String text) {
+        target = text;
         inputArea.clear();
+        diff.reset(target);
+        userHighlighter.setTarget(target);
+        engine.reset(target, seeds.nextLong());
+        recorder.reset(target);
         inputArea.setDisable(false);
         exerciseStarted = false;
-        mistakesCount = 0;
-        aiIndex = 0;
+        for (int i = 0; i < opponents.size(); i++) {
+            ((Label) opponentsBox.getChildren().get(2 * i)).setText(laneTitle(opponents.get(i)));
+        }
 
         elapsedSec = 0;
         timerLabel.setText("00:00");
         stats.setText("");
-
-        clock.stop();
-        aiClock.stop();
-        highlightPlayer("");
-        renderAI("");
     }
 
     private void startExercise() {
         elapsedSec = 0;
         timerLabel.setText("00:00");
-        clock.playFromStart();
         inputArea.setDisable(false);
         inputArea.requestFocus();
 
-        aiIndex = 0;
-        aiClock.playFromStart();
+        engine.start();
     }
 
     private void finishExercise() {
-        clock.stop();
-        aiClock.stop();
+        int place = engine.finishedCount() + 1;
+        engine.stop();
         inputArea.setDisable(true);
-        updateStats(inputArea.getText());
+        updateStats();
+        if (client == null) {
+            stats.setText(stats.getText() + String.format(" | Place: %d of %d", place, opponents.size() + 1));
+        }   // in a LAN race the server reports the place
+
+        model.TypingSession session = recorder.summarize("race", System.nanoTime());
+        stats.setText(stats.getText() + String.format(" | Median key: %.0f ms | Consistency: %.0f%%",
+                session.getP50Ms(), session.getConsistency()));
+        TypingSessionLog.save(session);
     }
 
-    private void tick() {
-        elapsedSec++;
+    /** Runs every frame; the clock and stats only change once a second. */
+    private void tick(long elapsedNanos) {
+        int sec = (int) (elapsedNanos / 1_000_000_000L);
+        if (sec == elapsedSec) return;
+        elapsedSec = sec;
         int m = elapsedSec / 60;
         int s = elapsedSec % 60;
         timerLabel.setText(String.format("%02d:%02d", m, s));
-        updateStats(inputArea.getText());
+        updateStats();
     }
 
-    private void updateStats(String typed) {
-        double minutes = Math.max(1.0 / 60.0, elapsedSec / 60.0); // min 1 sec
-        int correctChars = Math.min(typed.length(), target.length()) - mistakesCount;
-        if (correctChars < 0) correctChars = 0;
-
-        double accuracy = typed.length() == 0 ? 0.0 : (100.0 * correctChars / typed.length());
-        double wpm = (typed.length() / 5.0) / minutes;
+    private void updateStats() {
+        double accuracy = recorder.accuracy();
+        double wpm = recorder.wpm(System.nanoTime());
 
         stats.setText(String.format("Time: %s | WPM: %.1f | Accuracy: %.1f%%",
                 timerLabel.getText(), wpm, accuracy));
     }
 
-    // ===== User highlighting =====
-    private void highlightPlayer(String typed) {
-        renderTextFlow(userFlow, typed);
-    }
-
-    private void renderTextFlow(TextFlow flow, String typed) {
-        flow.getChildren().clear();
-        if (typed == null) typed = "";
-
-        int typedLen = typed.length();
-        int tgtLen = target.length();
-        int firstMismatch = firstMismatchIndex(typed, target);
-        int correctEnd = Math.min(firstMismatch, tgtLen);
-        int mismatchEnd = Math.min(typedLen, tgtLen);
-
-        if (correctEnd > 0) {
-            Text ok = new Text(target.substring(0, correctEnd));
-            ok.setFill(Color.web("#32CD32"));
-            ok.setFont(Font.font(16));
-            flow.getChildren().add(ok);
-        }
-        if (mismatchEnd > correctEnd) {
-            Text wrong = new Text(target.substring(correctEnd, mismatchEnd));
-            wrong.setFill(Color.CRIMSON);
-            wrong.setUnderline(true);
-            wrong.setFont(Font.font(16));
-            flow.getChildren().add(wrong);
-        }
-        if (tgtLen > mismatchEnd) {
-            Text rest = new Text(target.substring(mismatchEnd));
-            rest.setFill(Color.GRAY);
-            rest.setFont(Font.font(16));
-            flow.getChildren().add(rest);
-        }
-    }
-
     // ===== AI =====
-    private void updateAI() {
-        if (aiIndex >= target.length()) {
-            aiClock.stop();
-            return;
-        }
-
-        // Determine if AI makes mistake
-        char c = target.charAt(aiIndex);
-        boolean mistake = Math.random() > aiAccuracy / 100.0;
-        String typedChar = mistake ? "_" : String.valueOf(c); // underscore for error
-        aiIndex++;
-        renderAI(target.substring(0, aiIndex - (mistake ? 1 : 0)) + typedChar);
-    }
-
-    private void renderAI(String typed) {
-        renderTextFlow(aiFlow, typed);
-    }
-
-    private static int firstMismatchIndex(String typed, String target) {
-        int i = 0;
-        int max = Math.min(typed.length(), target.length());
-        while (i < max && typed.charAt(i) == target.charAt(i)) i++;
-        return i;
+    private void opponentFinished(RaceOpponent o) {
+        int i = opponents.indexOf(o);
+        Label title = (Label) opponentsBox.getChildren().get(2 * i);
+        title.setText(String.format("%s finished #%d in %.1f s", laneTitle(o),
+                engine.finishedCount(), o.finishedAt() / 1e9));
     }
 }
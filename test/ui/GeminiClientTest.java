@@ -0,0 +1,154 @@
+package ui;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/** GeminiClient against a local MockWebServer standing in for the Gemini API. */
+class GeminiClientTest {
+    private static final Duration TIMEOUT = Duration.ofSeconds(5);
+
+    private MockWebServer server;
+    private GeminiClient client;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = new MockWebServer();
+        server.start();
+        client = new GeminiClient("test-key", server.url("/models/").toString());
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        server.shutdown();
+    }
+
+    @Test
+    void streamsChunkedEventsSplitAcrossFrames() throws Exception {
+        String body = "data: " + event("The ") + "\r\n\r\n"
+                + "data: " + event("quick brown ") + "\n\n"
+                + ": keep-alive\n\n"
+                + "data: " + event("fox") + "\n\n";
+        // 5-byte HTTP chunks: every event and most lines arrive in pieces.
+        server.enqueue(new MockResponse()
+                .setHeader("Content-Type", "text/event-stream")
+                .setChunkedBody(body, 5));
+
+        List<String> chunks = new CopyOnWriteArrayList<>();
+        String full = client.streamAsync("prompt", TIMEOUT, chunks::add).get(5, TimeUnit.SECONDS);
+
+        assertEquals(List.of("The ", "quick brown ", "fox"), chunks);
+        assertEquals("The quick brown fox", full);
+        RecordedRequest request = server.takeRequest();
+        assertTrue(request.getPath().contains(":streamGenerateContent?alt=sse"), request.getPath());
+        assertTrue(request.getBody().readUtf8().contains("\"prompt\""));
+    }
+
+    @Test
+    void lastEventWithoutTrailingBlankLineIsDelivered() throws Exception {
+        server.enqueue(new MockResponse()
+                .setHeader("Content-Type", "text/event-stream")
+                .setChunkedBody("data: " + event("a") + "\n\ndata: " + event("b"), 3));
+
+        List<String> chunks = new CopyOnWriteArrayList<>();
+        assertEquals("ab", client.streamAsync("prompt", TIMEOUT, chunks::add).get(5, TimeUnit.SECONDS));
+        assertEquals(List.of("a", "b"), chunks);
+    }
+
+    @Test
+    void errorStatusFailsTheStream() {
+        server.enqueue(new MockResponse().setResponseCode(503).setBody("{\"error\":{\"message\":\"busy\"}}"));
+
+        List<String> chunks = new CopyOnWriteArrayList<>();
+        ExecutionException e = assertThrows(ExecutionException.class,
+                () -> client.streamAsync("prompt", TIMEOUT, chunks::add).get(5, TimeUnit.SECONDS));
+        assertInstanceOf(IOException.class, e.getCause());
+        assertTrue(e.getCause().getMessage().contains("503"), e.getCause().getMessage());
+        assertTrue(chunks.isEmpty());
+    }
+
+    @Test
+    void errorStatusFailsAskAsync() {
+        server.enqueue(new MockResponse().setResponseCode(429));
+
+        ExecutionException e = assertThrows(ExecutionException.class,
+                () -> client.askAsync("prompt", TIMEOUT).get(5, TimeUnit.SECONDS));
+        assertInstanceOf(IOException.class, e.getCause());
+        assertTrue(e.getCause().getMessage().contains("429"), e.getCause().getMessage());
+    }
+
+    @Test
+    void errorEventMidStreamFailsTheStream() {
+        server.enqueue(new MockResponse()
+                .setHeader("Content-Type", "text/event-stream")
+                .setChunkedBody("data: " + event("partial") + "\n\n"
+                        + "data: {\"error\":{\"message\":\"quota exceeded\"}}\n\n", 16));
+
+        List<String> chunks = new CopyOnWriteArrayList<>();
+        ExecutionException e = assertThrows(ExecutionException.class,
+                () -> client.streamAsync("prompt", TIMEOUT, chunks::add).get(5, TimeUnit.SECONDS));
+        assertEquals("quota exceeded", e.getCause().getMessage());
+        assertEquals(List.of("partial"), chunks);
+    }
+
+    @Test
+    void cancellingWhileStreamingStopsDelivery() throws Exception {
+        StringBuilder body = new StringBuilder();
+        for (int i = 0; i < 200; i++) body.append("data: ").append(event("chunk" + i + " ")).append("\n\n");
+        // Trickle the body so the stream is still running when it is cancelled.
+        server.enqueue(new MockResponse()
+                .setHeader("Content-Type", "text/event-stream")
+                .setChunkedBody(body.toString(), 64)
+                .throttleBody(128, 50, TimeUnit.MILLISECONDS));
+
+        CountDownLatch firstChunk = new CountDownLatch(1);
+        List<String> chunks = new CopyOnWriteArrayList<>();
+        CompletableFuture<String> future = client.streamAsync("prompt", TIMEOUT, chunk -> {
+            chunks.add(chunk);
+            firstChunk.countDown();
+        });
+        assertTrue(firstChunk.await(5, TimeUnit.SECONDS));
+
+        assertTrue(future.cancel(true));
+        int atCancel = chunks.size();
+        Thread.sleep(500);
+
+        assertTrue(future.isCancelled());
+        assertTrue(chunks.size() <= atCancel + 1, "chunks kept arriving after cancel: " + chunks.size());
+        assertTrue(chunks.size() < 200);
+    }
+
+    /** One streamGenerateContent event carrying {@code text}. */
+    static String event(String text) {
+        JsonObject part = new JsonObject();
+        part.addProperty("text", text);
+        JsonArray parts = new JsonArray();
+        parts.add(part);
+        JsonObject content = new JsonObject();
+        content.addProperty("role", "model");
+        content.add("parts", parts);
+        JsonObject candidate = new JsonObject();
+        candidate.add("content", content);
+        JsonArray candidates = new JsonArray();
+        candidates.add(candidate);
+        JsonObject event = new JsonObject();
+        event.add("candidates", candidates);
+        return event.toString();
+    }
+}
@@ -0,0 +1,50 @@
+package ui;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GeminiStreamParserTest {
+
+    @Test
+    void eventEndsAtBlankLine() {
+        GeminiStreamParser parser = new GeminiStreamParser();
+        assertNull(parser.feed("data: " + GeminiClientTest.event("Hello")));
+        assertEquals("Hello", parser.feed(""));
+        assertNull(parser.flush());
+    }
+
+    @Test
+    void dataSplitOverSeveralLinesIsJoined() {
+        GeminiStreamParser parser = new GeminiStreamParser();
+        assertNull(parser.feed("data: {\"candidates\":[{\"content\":"));
+        assertNull(parser.feed("data:{\"parts\":[{\"text\":\"split\"},{\"text\":\" frame\"}]}}]}"));
+        assertEquals("split frame", parser.feed(""));
+    }
+
+    @Test
+    void otherFieldsAndCommentsAreIgnored() {
+        GeminiStreamParser parser = new GeminiStreamParser();
+        assertNull(parser.feed(": keep-alive"));
+        assertNull(parser.feed("event: message"));
+        assertNull(parser.feed("id: 7"));
+        assertNull(parser.feed(""));
+        assertNull(parser.feed("data: " + GeminiClientTest.event("x")));
+        assertEquals("x", parser.feed(""));
+    }
+
+    @Test
+    void lastEventWithoutBlankLineComesOutOfFlush() {
+        GeminiStreamParser parser = new GeminiStreamParser();
+        parser.feed("data: " + GeminiClientTest.event("tail"));
+        assertEquals("tail", parser.flush());
+    }
+
+    @Test
+    void errorPayloadThrows() {
+        GeminiStreamParser parser = new GeminiStreamParser();
+        parser.feed("data: {\"error\":{\"code\":429,\"message\":\"quota exceeded\"}}");
+        IllegalStateException e = assertThrows(IllegalStateException.class, () -> parser.feed(""));
+        assertEquals("quota exceeded", e.getMessage());
+    }
+}
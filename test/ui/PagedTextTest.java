@@ -0,0 +1,92 @@
+package ui;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * PagedText's char offsets against the text its pages decode to. For valid
+ * UTF-8 that is also the whole file decoded at once; a malformed sequence cut by
+ * a page boundary may be replaced differently, but offsets must follow the pages.
+ */
+class PagedTextTest {
+    private static final int PAGE = PagedText.PAGE_BYTES;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void cp1252FileMatchesTheDecoderAcrossPages() throws IOException {
+        // A Windows .txt: smart quotes and em dashes are lone 0x93/0x94/0x97 bytes, not UTF-8.
+        Charset cp1252 = Charset.forName("windows-1252");
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        String line = "“quoted” — notes from the lecture, café and all.\r\n";
+        while (out.size() < 3 * PAGE + 100) out.writeBytes(line.getBytes(cp1252));
+        byte[] bytes = out.toByteArray();
+        // and a run of them right where the second page starts
+        for (int i = PAGE - 2; i < PAGE + 5; i++) bytes[i] = (byte) 0x94;
+
+        assertMatchesPages(write(bytes));
+    }
+
+    @Test
+    void wellFormedUtf8IsCountedWithoutDecoding() throws IOException {
+        StringBuilder sb = new StringBuilder();
+        while (sb.length() < 2 * PAGE) sb.append("mitochondria équation 学习 📚 theory ");
+        Path file = write(sb.toString().getBytes(StandardCharsets.UTF_8));
+        try (PagedText text = PagedText.open(file)) {
+            assertEquals(sb.toString(), text.text(0, Long.MAX_VALUE));
+        }
+        assertMatchesPages(file);
+    }
+
+    @Test
+    void overlongsAndSurrogatesAreReplacedLikeTheDecoder() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[][] bad = {{(byte) 0xC0, (byte) 0xAF}, {(byte) 0xED, (byte) 0xA0, (byte) 0x80},
+                {(byte) 0xF4, (byte) 0x90, (byte) 0x80, (byte) 0x80}, {(byte) 0xE2, (byte) 0x82}};
+        for (int i = 0; out.size() < 2 * PAGE; i++) {
+            out.writeBytes("plain text ".getBytes(StandardCharsets.US_ASCII));
+            out.writeBytes(bad[i % bad.length]);
+        }
+        assertMatchesPages(write(out.toByteArray()));
+    }
+
+    private Path write(byte[] bytes) throws IOException {
+        Path file = dir.resolve("text.txt");
+        Files.write(file, bytes);
+        return file;
+    }
+
+    private static void assertMatchesPages(Path file) throws IOException {
+        String whole;
+        try (PagedText pages = PagedText.open(file)) {
+            StringBuilder sb = new StringBuilder();
+            for (int p = 0; p < pages.pageCount(); p++) sb.append(pages.page(p));
+            whole = sb.toString();
+        }
+        // a fresh instance, so offsets are counted before any page is decoded
+        try (PagedText text = PagedText.open(file)) {
+            assertTrue(text.pageCount() > 1);
+            assertEquals(whole.length(), text.charLength());
+            for (int p = 0; p < text.pageCount(); p++) {
+                long start = text.charOffset(p);
+                assertEquals(whole.substring((int) start, (int) text.charOffset(p + 1)), text.page(p), "page " + p);
+                assertEquals(p, text.pageOf(start));
+                // a passage straddling the boundary into this page
+                int from = (int) Math.max(0, start - 40);
+                int to = (int) Math.min(whole.length(), start + 40);
+                assertEquals(whole.substring(from, to), text.text(from, to), "across page " + p);
+            }
+            assertEquals(whole, text.text(0, whole.length()));
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package ui;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TextIndexTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void removedDocumentsStopMatchingAndStayRemovedAfterReopen() throws IOException {
+        TextIndex index = new TextIndex(dir);
+        Path gone = dir.resolve("gone.txt");
+        Path kept = dir.resolve("kept.txt");
+        index.add(gone, "mitochondria are the powerhouse of the cell");
+        index.add(kept, "the cell membrane and the mitochondria");
+
+        assertTrue(index.remove(gone));
+        assertFalse(index.remove(gone));
+        assertFalse(index.contains(gone));
+        assertEquals(List.of(kept), files(index.search("mitochondria", 10)));
+        assertEquals(1, index.documentCount());
+
+        TextIndex reopened = new TextIndex(dir);
+        assertEquals(List.of(kept), files(reopened.search("mitochondria", 10)));
+        assertEquals(1, reopened.documentCount());
+    }
+
+    @Test
+    void removedDocumentCanBeIndexedAgainWithNewText() throws IOException {
+        TextIndex index = new TextIndex(dir);
+        Path notes = dir.resolve("notes.txt");
+        index.add(notes, "entropy of a closed system");
+        index.remove(notes);
+        index.add(notes, "supply and demand in a market");
+
+        assertTrue(files(index.search("entropy", 10)).isEmpty());
+        assertEquals(List.of(notes), files(index.search("market", 10)));
+    }
+
+    @Test
+    void mergesDropRemovedDocuments() throws IOException {
+        TextIndex index = new TextIndex(dir);
+        for (int i = 0; i < 20; i++) index.add(dir.resolve("doc" + i + ".txt"), "lecture " + i + " on thermodynamics");
+        for (int i = 0; i < 20; i += 2) index.remove(dir.resolve("doc" + i + ".txt"));
+        // more adds trigger merges that rewrite the segments holding the removed documents
+        for (int i = 20; i < 40; i++) index.add(dir.resolve("doc" + i + ".txt"), "lecture " + i + " on thermodynamics");
+
+        List<Path> hits = files(index.search("thermodynamics", 100));
+        assertEquals(30, hits.size());
+        for (int i = 0; i < 20; i += 2) assertFalse(hits.contains(dir.resolve("doc" + i + ".txt")));
+        assertEquals(30, new TextIndex(dir).documentCount());
+    }
+
+    private static List<Path> files(List<TextIndex.Hit> hits) {
+        return hits.stream().map(TextIndex.Hit::file).toList();
+    }
+}